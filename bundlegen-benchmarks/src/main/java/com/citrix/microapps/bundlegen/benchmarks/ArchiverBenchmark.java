@@ -0,0 +1,60 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
+import com.citrix.microapps.bundlegen.bundles.CompressionProfile;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+import com.citrix.microapps.bundlegen.bundles.ParallelDeflater;
+
+/**
+ * Building of zip archive of one bundle in memory with different compression profiles, with and without parallel
+ * deflate of its large template. Sizes of the archives of the
+ * whole catalog are reported by {@link CompressionReport}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiverBenchmark {
+    @Param({"FAST", "BALANCED", "MAX", "ADAPTIVE"})
+    public CompressionProfile profile;
+
+    @Param({"false", "true"})
+    public boolean parallelDeflate;
+
+    private FsBundle bundle;
+    private BundlesArchiver archiver;
+
+    @Setup
+    public void setup() {
+        bundle = Fixtures.jiraBundle();
+        // Nothing is written to the directory by buildArchive().
+        Optional<ParallelDeflater> deflater = parallelDeflate
+                ? Optional.of(new ParallelDeflater(ParallelDeflater.DEFAULT_BLOCK_SIZE,
+                Runtime.getRuntime().availableProcessors()))
+                : Optional.empty();
+        archiver = new BundlesArchiver(Paths.get("archives"), profile, deflater);
+    }
+
+    @Benchmark
+    public byte[] buildArchive() {
+        return archiver.buildArchive(bundle);
+    }
+}
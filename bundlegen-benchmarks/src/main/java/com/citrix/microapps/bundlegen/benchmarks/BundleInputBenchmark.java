@@ -0,0 +1,57 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.bundles.CompressionProfile;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+
+/**
+ * Loading and archiving of one bundle with the files read once and shared by both stages or read again by the
+ * archiver. The compressed entries are reused from the second invocation, the difference is only in I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BundleInputBenchmark {
+    private FsBundle bundle;
+    private BundlesLoader loader;
+    private BundlesArchiver archiver;
+
+    @Setup
+    public void setup() {
+        bundle = Fixtures.jiraBundle();
+        loader = new BundlesLoader();
+        // Nothing is written to the directory by buildArchive().
+        archiver = new BundlesArchiver(Paths.get("archives"), CompressionProfile.MAX);
+    }
+
+    @Benchmark
+    public byte[] sharedContents() {
+        Bundle loaded = loader.loadBundle(bundle);
+        return archiver.buildArchive(loaded);
+    }
+
+    @Benchmark
+    public byte[] separateReads() {
+        loader.loadBundle(bundle);
+        return archiver.buildArchive(bundle);
+    }
+}
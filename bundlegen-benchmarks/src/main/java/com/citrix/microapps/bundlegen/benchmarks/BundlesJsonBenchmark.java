@@ -0,0 +1,93 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.citrix.microapps.bundlegen.bundles.ArchiveCache;
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.BundlesJsonWriter;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.bundles.BundlesProcessor;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+
+/**
+ * Writing of `bundles.json` with a catalog of the given size, metadata of one real bundle is repeated.
+ * <p>
+ * The `processor` variant is the writer used by {@link BundlesProcessor} with all entries cached from the previous
+ * invocation, `cold` serializes every entry again by a new writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BundlesJsonBenchmark {
+    @Param({"1", "100", "1000"})
+    public int bundlesCount;
+
+    @Param({"processor", "cold"})
+    public String writer;
+
+    private Path distDir;
+    private BundlesProcessor processor;
+    private List<OutMetadata> bundles;
+
+    @Setup
+    public void setup() throws IOException {
+        distDir = Files.createTempDirectory("bundlegen-benchmark");
+        URI bundlesRepository = URI.create("https://example.com/bundles/archives/");
+        processor = new BundlesProcessor(new BundlesFinder(Fixtures.bundlesDir()),
+                new BundlesLoader(),
+                new BundlesArchiver(distDir),
+                ArchiveCache.disabled(),
+                distDir,
+                bundlesRepository,
+                1);
+
+        FsBundle fsBundle = Fixtures.jiraBundle();
+        Bundle bundle = new BundlesLoader().loadBundle(fsBundle);
+        OutMetadata metadata = new OutMetadata(bundle.getMetadata(),
+                fsBundle.getDownloadUrl(bundlesRepository),
+                "ca1eaf16e36e258c8c7c8bc29d57e388");
+        bundles = Collections.nCopies(bundlesCount, metadata);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(distDir.resolve("bundles.json"));
+        Files.deleteIfExists(distDir);
+    }
+
+    @Benchmark
+    public Path writeBundlesJson() {
+        Path bundlesJson = distDir.resolve("bundles.json");
+        if ("cold".equals(writer)) {
+            new BundlesJsonWriter().write(bundles, bundlesJson);
+        } else {
+            processor.writeBundlesJson(bundles, bundlesJson);
+        }
+        return bundlesJson;
+    }
+}
@@ -0,0 +1,71 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.citrix.microapps.bundlegen.bundles.ArchiverStats;
+import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.CompressionProfile;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+
+/**
+ * Size of the archives and CPU time of their building for each {@link CompressionProfile}, data for the choice of
+ * the trade-off between build time and download size.
+ * <p>
+ * All bundles of the catalog are archived in memory by a single thread, the first rounds only warm up the JVM.
+ * <p>
+ * Usage: `CompressionReport [--rounds 5] [--bundles DIR]`
+ */
+public class CompressionReport {
+    private static final String CSV_HEADER =
+            "profile,bundles,entries,stored_entries,input_bytes,output_bytes,ratio,cpu_ms";
+
+    public static void main(String[] args) {
+        int rounds = 5;
+        Path bundlesDir = Fixtures.bundlesDir();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rounds":
+                    rounds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--bundles":
+                    bundlesDir = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Fixtures.reduceLogging();
+        List<FsBundle> bundles = new BundlesFinder(bundlesDir).findBundles().collect(Collectors.toList());
+
+        System.out.println(CSV_HEADER);
+        for (CompressionProfile profile : CompressionProfile.values()) {
+            for (int round = 1; round < rounds; round++) {
+                archiveAll(bundles, profile);
+            }
+
+            ArchiverStats stats = archiveAll(bundles, profile);
+            System.out.println(String.join(",",
+                    profile.getName(),
+                    String.valueOf(stats.getArchives()),
+                    String.valueOf(stats.getEntries()),
+                    String.valueOf(stats.getStoredEntries()),
+                    String.valueOf(stats.getInputBytes()),
+                    String.valueOf(stats.getOutputBytes()),
+                    String.format("%.4f", stats.getRatio()),
+                    String.format("%.1f", stats.getCpuNanos() / 1e6)));
+        }
+    }
+
+    private static ArchiverStats archiveAll(List<FsBundle> bundles, CompressionProfile profile) {
+        // Nothing is written to the directory by buildArchive().
+        BundlesArchiver archiver = new BundlesArchiver(Paths.get("archives"), profile);
+        bundles.forEach(archiver::buildArchive);
+        return archiver.getStats();
+    }
+}
@@ -0,0 +1,95 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+
+/**
+ * Duplicity of files across all bundles and versions of the catalog, an estimate of how much compression is saved by
+ * the content-addressable store of {@link com.citrix.microapps.bundlegen.bundles.BundlesArchiver}.
+ * <p>
+ * Files are grouped by their kind, `i18n/*` for translations and the file name otherwise. Nothing is compressed,
+ * only SHA-256 of every file is computed.
+ * <p>
+ * Usage: `DedupeReport [--bundles DIR]`
+ */
+public class DedupeReport {
+    private static final String CSV_HEADER = "kind,files,unique_files,bytes,unique_bytes,dedupe_ratio";
+    private static final String TOTAL = "total";
+
+    public static void main(String[] args) {
+        Path bundlesDir = args.length >= 2 && "--bundles".equals(args[0])
+                ? Paths.get(args[1])
+                : Fixtures.bundlesDir();
+
+        Fixtures.reduceLogging();
+        List<FsBundle> bundles = new BundlesFinder(bundlesDir).findBundles().collect(Collectors.toList());
+        Map<String, Counter> counters = new TreeMap<>();
+        Counter total = new Counter();
+
+        for (FsBundle bundle : bundles) {
+            for (Path file : bundle.getFiles()) {
+                byte[] content = readFile(bundle.getPath().resolve(file));
+                String hash = DigestUtils.sha256Hex(content);
+
+                counters.computeIfAbsent(kind(file), kind -> new Counter()).add(hash, content.length);
+                total.add(hash, content.length);
+            }
+        }
+
+        System.out.println(CSV_HEADER);
+        counters.forEach((kind, counter) -> System.out.println(counter.toCsv(kind)));
+        System.out.println(total.toCsv(TOTAL));
+    }
+
+    private static String kind(Path file) {
+        String name = file.toString().replace('\\', '/');
+        return name.startsWith("i18n/") ? "i18n/*" : name;
+    }
+
+    private static byte[] readFile(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading of file failed: " + path, e);
+        }
+    }
+
+    private static class Counter {
+        private final Set<String> hashes = new HashSet<>();
+        private long files = 0;
+        private long bytes = 0;
+        private long uniqueBytes = 0;
+
+        void add(String hash, long size) {
+            files++;
+            bytes += size;
+            if (hashes.add(hash)) {
+                uniqueBytes += size;
+            }
+        }
+
+        String toCsv(String kind) {
+            return String.join(",",
+                    kind,
+                    String.valueOf(files),
+                    String.valueOf(hashes.size()),
+                    String.valueOf(bytes),
+                    String.valueOf(uniqueBytes),
+                    String.format("%.4f", bytes == 0 ? 1.0 : (double) uniqueBytes / bytes));
+        }
+    }
+}
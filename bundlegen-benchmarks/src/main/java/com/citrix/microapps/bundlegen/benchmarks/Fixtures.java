@@ -0,0 +1,54 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+
+/**
+ * Input data of the benchmarks, the real bundles catalog of the repository is used.
+ * <p>
+ * The catalog is searched in `bundles` and `../bundles` directories to work both from repository root and from the
+ * module directory, system property `bundlegen.bundles` can define a different location.
+ */
+class Fixtures {
+    static final String JIRA_BUNDLE_ID = "com.sapho.services.jira.JiraService";
+
+    static {
+        reduceLogging();
+    }
+
+    private Fixtures() {
+    }
+
+    /**
+     * Logging of every processed bundle would be measured too.
+     */
+    static void reduceLogging() {
+        ((Logger) LoggerFactory.getLogger("com.citrix.microapps.bundlegen")).setLevel(Level.WARN);
+    }
+
+    static Path bundlesDir() {
+        String configured = System.getProperty("bundlegen.bundles");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+
+        Path local = Paths.get("bundles");
+        return Files.isDirectory(local) ? local : Paths.get("..", "bundles");
+    }
+
+    static FsBundle jiraBundle() {
+        return new BundlesFinder(bundlesDir())
+                .findBundles()
+                .filter(bundle -> JIRA_BUNDLE_ID.equals(bundle.getId()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("JIRA bundle not found in: " + bundlesDir()));
+    }
+}
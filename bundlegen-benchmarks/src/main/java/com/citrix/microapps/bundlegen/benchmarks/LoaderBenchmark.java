@@ -0,0 +1,43 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+
+/**
+ * Loading and validation of one bundle: metadata, template and all translations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+    private FsBundle bundle;
+    private BundlesLoader loader;
+
+    @Setup
+    public void setup() {
+        bundle = Fixtures.jiraBundle();
+        loader = new BundlesLoader();
+    }
+
+    @Benchmark
+    public Bundle loadBundle() {
+        return loader.loadBundle(bundle);
+    }
+}
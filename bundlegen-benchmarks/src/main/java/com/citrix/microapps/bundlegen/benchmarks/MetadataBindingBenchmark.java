@@ -0,0 +1,118 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+import com.citrix.microapps.bundlegen.pojo.DipMetadata;
+import com.citrix.microapps.bundlegen.pojo.HttpMetadata;
+import com.citrix.microapps.bundlegen.pojo.Metadata;
+import com.citrix.microapps.bundlegen.pojo.Type;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Data binding of all `metadata.json` files of a synthetic metadata-heavy catalog, see {@link SyntheticCatalog}.
+ * The files are read to memory in the setup, only the binding is measured.
+ * <p>
+ * The `cached` variant uses typed readers built once like {@link com.citrix.microapps.bundlegen.bundles.BundlesLoader}
+ * does, `forType` derives a new reader for every file. The `cold` benchmark binds one file by a new mapper, it is
+ * the startup cost of the data binding paid once per run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataBindingBenchmark {
+    @Param({"1000", "5000"})
+    public int bundlesCount;
+
+    @Param({"cached", "forType"})
+    public String binding;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader dipReader = mapper.readerFor(DipMetadata.class);
+    private final ObjectReader httpReader = mapper.readerFor(HttpMetadata.class);
+
+    private Path bundlesDir;
+    private List<Type> types;
+    private List<byte[]> contents;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Fixtures.reduceLogging();
+        bundlesDir = Files.createTempDirectory("bundlegen-benchmark");
+        // One language and a small template, the catalog is dominated by metadata
+        SyntheticCatalog.realistic(bundlesCount, 20, 1, 1_000).generate(bundlesDir);
+
+        types = new ArrayList<>();
+        contents = new ArrayList<>();
+        for (FsBundle bundle : new BundlesFinder(bundlesDir).findBundles().collect(Collectors.toList())) {
+            types.add(bundle.getType());
+            contents.add(Files.readAllBytes(bundle.getMetadataPath()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(bundlesDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Metadata> bindAll() throws IOException {
+        List<Metadata> result = new ArrayList<>(contents.size());
+
+        for (int i = 0; i < contents.size(); i++) {
+            result.add(reader(types.get(i)).readValue(contents.get(i)));
+        }
+
+        return result;
+    }
+
+    private ObjectReader reader(Type type) {
+        Class<? extends Metadata> metadataClass = type == Type.DIP ? DipMetadata.class : HttpMetadata.class;
+
+        if ("forType".equals(binding)) {
+            return mapper.reader().forType(metadataClass);
+        }
+
+        return type == Type.DIP ? dipReader : httpReader;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 20)
+    public Metadata cold() throws IOException {
+        return new ObjectMapper().readerFor(DipMetadata.class).readValue(contents.get(types.indexOf(Type.DIP)));
+    }
+}
@@ -0,0 +1,219 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.citrix.microapps.bundlegen.bundles.ArchiveCache;
+import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.bundles.BundlesProcessor;
+import com.citrix.microapps.bundlegen.bundles.FsConstants;
+
+/**
+ * End-to-end benchmark of {@link BundlesProcessor} on synthetic catalogs of increasing size, see
+ * {@link SyntheticCatalog}.
+ * <p>
+ * Every catalog is generated once to the work directory and then processed in this JVM. Wall time, throughput in
+ * bundles and megabytes of input per second and peak heap usage are reported for each size, the report is appended
+ * to a CSV file to track the scaling curve over time.
+ * <p>
+ * Usage: `ScalingBenchmark [--sizes 10,100,1000] [--threads N] [--languages 8] [--template-size 250000]
+ * [--bundles-per-vendor 20] [--work-dir DIR] [--report FILE]`
+ */
+public class ScalingBenchmark {
+    private static final String CSV_HEADER =
+            "timestamp,java,cores,threads,bundles,vendors,languages,template_size,input_bytes,output_bytes,wall_ms,bundles_per_s,input_mb_per_s," +
+                    "peak_heap_mb";
+
+    private static final long HEAP_SAMPLING_MILLIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = Arrays.asList(10, 100, 1000);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int languages = SyntheticCatalog.LANGUAGES.size();
+        int templateSize = 250_000;
+        int bundlesPerVendor = 20;
+        Path workDir = Paths.get("target", "scaling");
+        Path report = Paths.get("target", "scaling.csv");
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = Stream.of(args[i + 1].split(","))
+                            .map(Integer::valueOf)
+                            .collect(Collectors.toList());
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--languages":
+                    languages = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--template-size":
+                    templateSize = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--bundles-per-vendor":
+                    bundlesPerVendor = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--work-dir":
+                    workDir = Paths.get(args[i + 1]);
+                    break;
+                case "--report":
+                    report = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Fixtures.reduceLogging();
+        System.out.println(CSV_HEADER);
+        for (int size : sizes) {
+            SyntheticCatalog catalog = SyntheticCatalog.realistic(size, bundlesPerVendor, languages, templateSize);
+            String line = run(catalog, threads, workDir);
+            System.out.println(line);
+            appendToReport(report, line);
+        }
+    }
+
+    private static String run(SyntheticCatalog catalog, int threads, Path workDir) throws InterruptedException {
+        Path bundlesDir = workDir.resolve(catalog.getName());
+        Path distDir = workDir.resolve("dist");
+
+        if (!Files.isDirectory(bundlesDir)) {
+            System.err.println("Generating catalog: " + bundlesDir);
+            catalog.generate(bundlesDir);
+        }
+
+        deleteRecursively(distDir);
+
+        BundlesProcessor processor = new BundlesProcessor(
+                new BundlesFinder(bundlesDir),
+                new BundlesLoader(),
+                new BundlesArchiver(distDir.resolve(FsConstants.ARCHIVES_DIR)),
+                ArchiveCache.disabled(),
+                distDir,
+                URI.create("https://example.com/bundles/archives/"),
+                threads);
+
+        System.gc();
+        HeapSampler sampler = new HeapSampler();
+        sampler.start();
+
+        long start = System.nanoTime();
+        boolean success = processor.processAllBundles();
+        long wallNanos = System.nanoTime() - start;
+
+        sampler.interrupt();
+        sampler.join();
+
+        if (!success) {
+            throw new IllegalStateException("Processing of synthetic catalog failed: " + bundlesDir);
+        }
+
+        long inputBytes = directorySize(bundlesDir);
+        long outputBytes = directorySize(distDir);
+        double seconds = wallNanos / 1e9;
+
+        return String.join(",",
+                Instant.now().toString(),
+                System.getProperty("java.version"),
+                String.valueOf(Runtime.getRuntime().availableProcessors()),
+                String.valueOf(threads),
+                String.valueOf(catalog.getBundles()),
+                String.valueOf(catalog.getVendors()),
+                String.valueOf(catalog.getLanguages()),
+                String.valueOf(catalog.getTemplateSize()),
+                String.valueOf(inputBytes),
+                String.valueOf(outputBytes),
+                String.valueOf(wallNanos / 1_000_000),
+                String.format("%.1f", catalog.getBundles() / seconds),
+                String.format("%.2f", inputBytes / 1e6 / seconds),
+                String.valueOf(sampler.getPeakBytes() / 1_000_000));
+    }
+
+    private static void appendToReport(Path report, String line) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(report)) {
+            lines.add(CSV_HEADER);
+        }
+        lines.add(line);
+
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        Files.write(report, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static long directorySize(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Listing of directory failed: " + directory, e);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Deleting of directory failed: " + directory, e);
+        }
+    }
+
+    /**
+     * Sample used heap periodically, peak usage of the memory pools would include garbage waiting for collection.
+     */
+    private static class HeapSampler extends Thread {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong peakBytes = new AtomicLong();
+
+        HeapSampler() {
+            super("heap-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                peakBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+
+                try {
+                    Thread.sleep(HEAP_SAMPLING_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long getPeakBytes() {
+            return peakBytes.get();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.search.SearchDocument;
+import com.citrix.microapps.bundlegen.search.SearchIndex;
+import com.citrix.microapps.bundlegen.search.SearchIndexBuilder;
+
+/**
+ * Building and querying of the full-text index of a synthetic catalog of the given size, see {@link SyntheticCatalog}.
+ * <p>
+ * Size of the index, plain and gzipped, is printed once per trial. The queries are words of the synthetic texts,
+ * `prefix` matches many terms, `words` intersects postings of two of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+    @Param({"100", "1000"})
+    public int bundlesCount;
+
+    private Path bundlesDir;
+    private List<SearchDocument> documents;
+    private SearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Fixtures.reduceLogging();
+        bundlesDir = Files.createTempDirectory("bundlegen-benchmark");
+        SyntheticCatalog.realistic(bundlesCount, 20, SyntheticCatalog.LANGUAGES.size(), 10_000).generate(bundlesDir);
+
+        BundlesLoader loader = new BundlesLoader();
+        List<Bundle> bundles = new BundlesFinder(bundlesDir).findBundles()
+                .map(loader::loadBundle)
+                .collect(Collectors.toList());
+        documents = bundles.stream()
+                .map(bundle -> SearchDocument.of(bundle.getMetadata(), bundle.getFs()))
+                .collect(Collectors.toList());
+
+        byte[] content = build();
+        index = SearchIndex.read(new ByteArrayInputStream(content));
+        System.out.printf("%nSearch index: %d bundles, %d B, %d B gzipped%n", bundlesCount, content.length,
+                gzippedSize(content));
+    }
+
+    private static int gzippedSize(byte[] content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(content);
+        }
+        return output.size();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(bundlesDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] build() throws IOException {
+        SearchIndexBuilder builder = new SearchIndexBuilder();
+        documents.forEach(builder::add);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        builder.write(output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public List<Integer> prefix() {
+        return index.search("re", "en");
+    }
+
+    @Benchmark
+    public List<Integer> words() {
+        return index.search("ticket status", "de");
+    }
+}
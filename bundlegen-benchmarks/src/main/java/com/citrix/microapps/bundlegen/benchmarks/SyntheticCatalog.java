@@ -0,0 +1,319 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.citrix.microapps.bundlegen.bundles.FsConstants;
+import com.citrix.microapps.bundlegen.bundles.TranslationValidator;
+import com.citrix.microapps.bundlegen.pojo.ModelTranslation;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Generator of synthetic bundles catalogs of any size with the standard structure of directories, see
+ * {@link com.citrix.microapps.bundlegen.bundles.BundlesFinder}.
+ * <p>
+ * All generated bundles are valid, the translation checksums in templates match the translations. The content is
+ * pseudo-random but fully determined by the configuration, the same catalog is generated every time.
+ */
+public class SyntheticCatalog {
+    /**
+     * All supported languages, English is mandatory.
+     */
+    static final List<String> LANGUAGES = Collections.unmodifiableList(
+            Arrays.asList("en", "de", "es", "fr", "ja", "nl", "pt-BR", "zh-CN"));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+
+    private static final String[] WORDS = {
+            "ticket", "issue", "status", "priority", "assignee", "project", "comment", "update", "create", "details",
+            "request", "approval", "expense", "report", "customer", "account", "opportunity", "contact", "task",
+            "reminder", "notification", "summary", "description", "resolution", "escalation", "queue", "team"
+    };
+
+    private final int dipBundles;
+    private final int httpBundles;
+    private final int vendors;
+    private final int languages;
+    private final int templateSize;
+    private final int appsPerBundle;
+    private final int keysPerApp;
+    private final long seed;
+
+    /**
+     * @param dipBundles    number of DIP bundles
+     * @param httpBundles   number of HTTP bundles
+     * @param vendors       number of vendor directories the bundles are spread over
+     * @param languages     number of translations per bundle, 1 to {@link #LANGUAGES} size
+     * @param templateSize  approximate size of `file.sapp` in bytes
+     * @param appsPerBundle number of apps per bundle
+     * @param keysPerApp    number of translated strings per app
+     * @param seed          seed of the pseudo-random content
+     */
+    SyntheticCatalog(int dipBundles,
+                     int httpBundles,
+                     int vendors,
+                     int languages,
+                     int templateSize,
+                     int appsPerBundle,
+                     int keysPerApp,
+                     long seed) {
+        if (languages < 1 || languages > LANGUAGES.size()) {
+            throw new IllegalArgumentException("Number of languages must be 1 to " + LANGUAGES.size());
+        }
+
+        this.dipBundles = dipBundles;
+        this.httpBundles = httpBundles;
+        this.vendors = Math.max(1, vendors);
+        this.languages = languages;
+        this.templateSize = templateSize;
+        this.appsPerBundle = Math.max(1, appsPerBundle);
+        this.keysPerApp = Math.max(1, keysPerApp);
+        this.seed = seed;
+    }
+
+    /**
+     * Usage: `SyntheticCatalog output-dir bundles [languages] [template-size] [bundles-per-vendor]`
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticCatalog output-dir bundles [languages] [template-size] " +
+                    "[bundles-per-vendor]");
+            System.exit(1);
+        }
+
+        SyntheticCatalog catalog = realistic(
+                Integer.parseInt(args[1]),
+                args.length > 4 ? Integer.parseInt(args[4]) : 20,
+                args.length > 2 ? Integer.parseInt(args[2]) : LANGUAGES.size(),
+                args.length > 3 ? Integer.parseInt(args[3]) : 250_000);
+        catalog.generate(Paths.get(args[0]));
+    }
+
+    /**
+     * Catalog with the other parameters similar to the real one, 90 % of the bundles are DIP ones.
+     *
+     * @param bundles          number of all bundles
+     * @param bundlesPerVendor average number of bundles of one vendor
+     * @param languages        number of translations per bundle
+     * @param templateSize     approximate size of `file.sapp` in bytes
+     */
+    static SyntheticCatalog realistic(int bundles, int bundlesPerVendor, int languages, int templateSize) {
+        int httpBundles = bundles / 10;
+        return new SyntheticCatalog(bundles - httpBundles, httpBundles, Math.max(1, bundles / bundlesPerVendor),
+                languages, templateSize, 2, 70, 42);
+    }
+
+    int getBundles() {
+        return dipBundles + httpBundles;
+    }
+
+    int getVendors() {
+        return vendors;
+    }
+
+    int getLanguages() {
+        return languages;
+    }
+
+    int getTemplateSize() {
+        return templateSize;
+    }
+
+    /**
+     * Unique name of the catalog derived from all its parameters.
+     */
+    String getName() {
+        return String.format("catalog-%d-%d-%d-%d-%d-%d-%d-%d",
+                dipBundles, httpBundles, vendors, languages, templateSize, appsPerBundle, keysPerApp, seed);
+    }
+
+    /**
+     * Write the whole catalog to the directory.
+     *
+     * @param bundlesDir root directory of the catalog, it should be empty
+     */
+    void generate(Path bundlesDir) {
+        Random random = new Random(seed);
+
+        for (int i = 0; i < dipBundles; i++) {
+            String vendor = vendorName(i);
+            String id = "com.example.services.Service" + i;
+            String version = "1." + (i % 3) + "." + (i % 7);
+            Path path = bundlesDir.resolve(FsConstants.DIP_DIR).resolve(vendor).resolve(id).resolve(version);
+            writeBundle(path, random, "DIP", vendor, id, Collections.singletonMap("version", version));
+        }
+
+        for (int i = 0; i < httpBundles; i++) {
+            String vendor = vendorName(i);
+            String id = new UUID(random.nextLong(), random.nextLong()).toString();
+            Path path = bundlesDir.resolve(FsConstants.HTTP_DIR).resolve(vendor).resolve(id);
+            writeBundle(path, random, "HTTP", vendor, id, Collections.emptyMap());
+        }
+    }
+
+    private String vendorName(int bundleIndex) {
+        return "Vendor" + (bundleIndex % vendors);
+    }
+
+    private void writeBundle(Path path,
+                             Random random,
+                             String type,
+                             String vendor,
+                             String id,
+                             Map<String, String> extraFields) {
+        try {
+            Files.createDirectories(path.resolve(FsConstants.TRANSLATIONS_DIR));
+
+            List<String> apps = new ArrayList<>();
+            for (int i = 0; i < appsPerBundle; i++) {
+                apps.add(new UUID(random.nextLong(), random.nextLong()).toString());
+            }
+
+            List<String> bundleLanguages = new ArrayList<>(LANGUAGES.subList(0, languages));
+            Collections.sort(bundleLanguages);
+
+            Map<String, Map<String, String>> keys = translationKeys(random, apps);
+            for (String language : bundleLanguages) {
+                WRITER.writeValue(path.resolve(FsConstants.TRANSLATIONS_DIR)
+                        .resolve(language + FsConstants.TRANSLATION_EXTENSION).toFile(), translate(keys, language));
+            }
+
+            String checksum = new TranslationValidator(new ModelTranslation(keys))
+                    .checksum()
+                    .orElseThrow(() -> new IllegalStateException("No translations"));
+            writeTemplate(path.resolve(FsConstants.TEMPLATE_FILE), random, apps, checksum);
+
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("type", type);
+            metadata.put("vendor", vendor);
+            metadata.put("id", id);
+            metadata.putAll(extraFields);
+            metadata.put("title", sentence(random, 3));
+            metadata.put("description", sentence(random, 12));
+            metadata.put("iconUrl", "https://example.com/icons/" + id + ".svg");
+            metadata.put("masVersion", "1.4.9-SNAPSHOT");
+            metadata.put("categories", Collections.singletonList("WEB_SERVICES"));
+            metadata.put("created", "2020-02-26T10:14:29");
+            metadata.put("supportsOAuthForActions", random.nextBoolean());
+            metadata.put("i18nLanguages", bundleLanguages);
+            metadata.put("apps", appsMetadata(random, apps));
+            metadata.put("vaResolvers", Collections.emptyList());
+            metadata.put("tags", Collections.emptyList());
+            WRITER.writeValue(path.resolve(FsConstants.METADATA_FILE).toFile(), metadata);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing of synthetic bundle failed: " + path, e);
+        }
+    }
+
+    private Map<String, Map<String, String>> translationKeys(Random random, List<String> apps) {
+        Map<String, Map<String, String>> keys = new LinkedHashMap<>();
+
+        for (String app : apps) {
+            Map<String, String> appKeys = new LinkedHashMap<>();
+            for (int i = 0; i < keysPerApp; i++) {
+                appKeys.put(new UUID(random.nextLong(), random.nextLong()).toString(), sentence(random, 4));
+            }
+            keys.put(app, appKeys);
+        }
+
+        return keys;
+    }
+
+    private static Map<String, Map<String, String>> translate(Map<String, Map<String, String>> keys,
+                                                              String language) {
+        Map<String, Map<String, String>> translated = new LinkedHashMap<>();
+
+        keys.forEach((app, appKeys) -> {
+            Map<String, String> values = new LinkedHashMap<>();
+            appKeys.forEach((key, value) -> values.put(key, language + ": " + value));
+            translated.put(app, values);
+        });
+
+        return translated;
+    }
+
+    private static List<Map<String, Object>> appsMetadata(Random random, List<String> apps) {
+        List<Map<String, Object>> result = new ArrayList<>();
+
+        for (String app : apps) {
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("uuid", app);
+            metadata.put("title", sentence(random, 2));
+            metadata.put("numberOfEvents", random.nextInt(20));
+            metadata.put("action", random.nextBoolean());
+            result.add(metadata);
+        }
+
+        return result;
+    }
+
+    /**
+     * Template with nested pages of apps up to the configured size and the translation checksum at the end, the
+     * same layout as the exported templates have.
+     */
+    private void writeTemplate(Path path, Random random, List<String> apps, String checksum) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(templateSize + 1024);
+
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(bytes, JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("applications");
+
+            int page = 0;
+            while (bytes.size() + generator.getOutputBuffered() < templateSize || page == 0) {
+                generator.writeStartObject();
+                generator.writeStringField("appId", apps.get(page % apps.size()));
+                generator.writeStringField("id", new UUID(random.nextLong(), random.nextLong()).toString());
+                generator.writeStringField("type", "DETAIL");
+                generator.writeStringField("title", sentence(random, 3));
+                generator.writeArrayFieldStart("components");
+                for (int i = 0; i < 3; i++) {
+                    generator.writeStartObject();
+                    generator.writeStringField("label", sentence(random, 2));
+                    generator.writeNumberField("order", i);
+                    generator.writeBooleanField("visible", random.nextBoolean());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+                page++;
+            }
+
+            generator.writeEndArray();
+            generator.writeStringField("translationChecksum", checksum);
+            generator.writeStringField("buildVersion", "1.0.0");
+            generator.writeEndObject();
+        }
+
+        Files.write(path, bytes.toByteArray());
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+import com.citrix.microapps.bundlegen.bundles.FsConstants;
+import com.citrix.microapps.bundlegen.bundles.TranslationValidator;
+import com.citrix.microapps.bundlegen.pojo.ModelTranslation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Translation checksum of all translations of one bundle. The files are either parsed in advance, fully bound to
+ * {@link ModelTranslation} or streamed with only the keys collected.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TranslationValidatorBenchmark {
+    private final ObjectReader reader = new ObjectMapper().readerFor(ModelTranslation.class);
+
+    private List<Path> files;
+    private List<ModelTranslation> translations;
+
+    @Setup
+    public void setup() {
+        FsBundle bundle = Fixtures.jiraBundle();
+
+        files = bundle.getFiles()
+                .stream()
+                .filter(FsConstants.BUNDLE_ALLOWED_TRANSLATIONS::contains)
+                .map(bundle.getPath()::resolve)
+                .collect(Collectors.toList());
+
+        translations = files
+                .stream()
+                .map(path -> {
+                    try {
+                        return reader.<ModelTranslation>readValue(path.toFile());
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Loading of translation failed: " + path, e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void checksum(Blackhole blackhole) {
+        for (ModelTranslation translation : translations) {
+            Optional<String> checksum = new TranslationValidator(translation).checksum();
+            blackhole.consume(checksum);
+        }
+    }
+
+    @Benchmark
+    public void bindAndChecksum(Blackhole blackhole) throws IOException {
+        for (Path file : files) {
+            ModelTranslation translation = reader.readValue(file.toFile());
+            blackhole.consume(new TranslationValidator(translation).checksum());
+        }
+    }
+
+    @Benchmark
+    public void streamChecksum(Blackhole blackhole) throws IOException {
+        for (Path file : files) {
+            blackhole.consume(TranslationValidator.checksum(file));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.citrix.microapps.bundlegen.benchmarks;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.bundles.BundlesValidator;
+import com.citrix.microapps.bundlegen.pojo.Type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticCatalogTest {
+    @Test
+    void generatedBundlesAreValid(@TempDir Path tempDir) {
+        SyntheticCatalog catalog = SyntheticCatalog.realistic(20, 5, 3, 5_000);
+        catalog.generate(tempDir);
+
+        BundlesLoader loader = new BundlesLoader();
+        List<Bundle> bundles = new BundlesFinder(tempDir).findBundles()
+                .map(loader::loadBundle)
+                .collect(Collectors.toList());
+
+        assertEquals(catalog.getBundles(), bundles.size());
+        assertEquals(2, bundles.stream().filter(bundle -> bundle.getFs().getType() == Type.HTTP).count());
+        for (Bundle bundle : bundles) {
+            assertThat(bundle.getIssues()).as("Issues of %s", bundle).isEmpty();
+            assertThat(bundle.getMetadata().getI18nLanguages()).hasSize(3);
+        }
+
+        assertTrue(new BundlesValidator(new BundlesFinder(tempDir), loader).validateAllBundles(1));
+    }
+}
@@ -1,19 +1,39 @@
 package com.citrix.microapps.bundlegen;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.qos.logback.classic.LoggerContext;
+import com.citrix.microapps.bundlegen.bundles.ArchiveCache;
 import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
 import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
 import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
 import com.citrix.microapps.bundlegen.bundles.BundlesProcessor;
+import com.citrix.microapps.bundlegen.bundles.BundlesValidator;
+import com.citrix.microapps.bundlegen.bundles.BundlesWatcher;
+import com.citrix.microapps.bundlegen.bundles.ChangedBundles;
+import com.citrix.microapps.bundlegen.bundles.CompressionProfile;
+import com.citrix.microapps.bundlegen.bundles.ParallelDeflater;
+import com.citrix.microapps.bundlegen.metrics.FlightRecorder;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+import com.citrix.microapps.bundlegen.server.CatalogServer;
 
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVES_DIR;
 
@@ -23,6 +43,15 @@ import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVES_DIR;
 class BundlegenMain {
     private static final Logger logger = LoggerFactory.getLogger(BundlegenMain.class);
 
+    private static final String VALIDATE_ONLY = "validate-only";
+    private static final String WATCH = "watch";
+    private static final String PARALLEL_DEFLATE = "parallel-deflate";
+
+    /**
+     * Editors write a file in several steps, wait for a quiet period before rebuild.
+     */
+    private static final long WATCH_DEBOUNCE_MILLIS = 100;
+
     public static void main(String[] args) {
         // Maven injects "com.citrix.microapps.bundlegen.BundlegenMain.main()"
         Thread.currentThread().setName("main");
@@ -30,44 +59,287 @@ class BundlegenMain {
         logLifeCycleEvent("STARTING APPLICATION");
         Thread.setDefaultUncaughtExceptionHandler((thread, e) -> logger.error("Uncaught exception: {}", thread, e));
 
-        if (args.length < 3) {
-            logger.info("Usage:   bundlegen bundles-dir dist-dir link-bundles");
-            logger.info("Example: bundlegen bundles bundles-dist https://github" +
-                    ".com/michaltc/workspace-microapps-bundles/tree/master/bundles/");
+        CommandLine commandLine = parseCommandLine(args);
+        List<String> positional = commandLine.getPositional();
+        boolean validateOnly = commandLine.hasFlag(VALIDATE_ONLY);
 
+        if (positional.size() < (validateOnly ? 1 : 3)) {
+            printUsage();
             logger.error("Missing mandatory arguments");
             System.exit(1);
         }
 
-        Path bundlesDir = Paths.get(args[0]);
-        Path distDir = Paths.get(args[1]);
-        Path archivesDir = distDir.resolve(ARCHIVES_DIR);
-        URI bundlesRepository = URI.create(
-                args[2].endsWith("/")
-                        ? args[2] + ARCHIVES_DIR
-                        : args[2] + "/" + ARCHIVES_DIR);
+        int threads = parseThreads(commandLine);
+        Path bundlesDir = Paths.get(positional.get(0));
+        checkBundlesDir(bundlesDir);
+
+        FlightRecorder.installEvents();
+        Optional<Closeable> recording = commandLine.getOption("jfr")
+                .map(Paths::get)
+                .flatMap(BundlegenMain::startFlightRecording);
+
+        if (validateOnly) {
+            validateAllBundles(commandLine, bundlesDir, threads);
+        } else {
+            processAllBundles(commandLine, bundlesDir, threads);
+        }
+
+        recording.ifPresent(BundlegenMain::stopFlightRecording);
+
+        logLifeCycleEvent("APPLICATION STOPPED");
+        logger.debug("Stopping logging subsystem");
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+    }
 
+    private static void checkBundlesDir(Path bundlesDir) {
         if (!Files.isDirectory(bundlesDir) || !Files.isReadable(bundlesDir)) {
             logger.error("Input path with bundles does not exist or is not a readable directory: {}", bundlesDir);
             System.exit(1);
         }
+    }
+
+    private static void validateAllBundles(CommandLine commandLine, Path bundlesDir, int threads) {
+        BundlesValidator validator = new BundlesValidator(new BundlesFinder(bundlesDir), new BundlesLoader());
+        boolean valid = validator.validateAllBundles(threads);
+        reportMetrics(commandLine);
+
+        if (!valid) {
+            logger.error("Bundles validation failed");
+            System.exit(1);
+        }
+    }
+
+    private static void processAllBundles(CommandLine commandLine, Path bundlesDir, int threads) {
+        List<String> positional = commandLine.getPositional();
+        ArchiveCache cache = commandLine.getOption("cache-dir")
+                .map(cacheDir -> new ArchiveCache(Paths.get(cacheDir)))
+                .orElseGet(ArchiveCache::disabled);
+
+        Path distDir = Paths.get(positional.get(1));
+        Path archivesDir = distDir.resolve(ARCHIVES_DIR);
+        URI bundlesRepository = URI.create(
+                positional.get(2).endsWith("/")
+                        ? positional.get(2) + ARCHIVES_DIR
+                        : positional.get(2) + "/" + ARCHIVES_DIR);
 
         createDirectories(distDir);
         createDirectories(archivesDir);
 
         BundlesFinder finder = new BundlesFinder(bundlesDir);
-        BundlesLoader loader = new BundlesLoader();
-        BundlesArchiver archiver = new BundlesArchiver(archivesDir);
-        BundlesProcessor processor = new BundlesProcessor(finder, loader, archiver, distDir, bundlesRepository);
+        // The author saves files while they are processed, a mapped file could change or be truncated under a run
+        BundlesLoader loader = new BundlesLoader(!commandLine.hasFlag(WATCH));
+        Optional<ParallelDeflater> parallelDeflater = commandLine.hasFlag(PARALLEL_DEFLATE)
+                ? Optional.of(new ParallelDeflater(ParallelDeflater.DEFAULT_BLOCK_SIZE, threads))
+                : Optional.empty();
+        BundlesArchiver archiver = new BundlesArchiver(archivesDir, parseCompressionProfile(commandLine),
+                parallelDeflater);
+        BundlesProcessor processor = new BundlesProcessor(finder, loader, archiver, cache, distDir,
+                bundlesRepository, threads);
+
+        Optional<Integer> servePort = parseServePort(commandLine);
+
+        if (commandLine.hasFlag(WATCH)) {
+            watchBundles(commandLine, bundlesDir, distDir, finder, processor, servePort);
+            return;
+        }
+
+        Optional<ChangedBundles> changedBundles = commandLine.getOption("changed-paths")
+                .map(BundlegenMain::readChangedPaths)
+                .flatMap(finder::findChangedBundles);
+
+        boolean success = changedBundles
+                .map(processor::processChangedBundles)
+                .orElseGet(processor::processAllBundles);
+        reportMetrics(commandLine);
 
-        if (!processor.processAllBundles()) {
+        if (!success) {
             logger.error("Bundles processing failed");
             System.exit(1);
         }
 
-        logLifeCycleEvent("APPLICATION STOPPED");
-        logger.debug("Stopping logging subsystem");
-        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        servePort.ifPresent(port -> serveForever(distDir, port));
+    }
+
+    /**
+     * Process all bundles once and then only the changed ones, forever. Failures are only reported, the author fixes
+     * them and saves again. The metrics are reported after every run.
+     */
+    private static void watchBundles(CommandLine commandLine,
+                                     Path bundlesDir,
+                                     Path distDir,
+                                     BundlesFinder finder,
+                                     BundlesProcessor processor,
+                                     Optional<Integer> servePort) {
+        // Registered before the first run, no change during it is lost
+        try (BundlesWatcher watcher = new BundlesWatcher(bundlesDir, finder, processor, WATCH_DEBOUNCE_MILLIS,
+                () -> reportMetrics(commandLine))) {
+            if (!processor.processAllBundles()) {
+                logger.error("Bundles processing failed, fix the issues and save again");
+            }
+
+            reportMetrics(commandLine);
+
+            Optional<CatalogServer> server = servePort.map(port -> new CatalogServer(distDir, port));
+            server.ifPresent(CatalogServer::start);
+
+            try {
+                watcher.watch();
+            } finally {
+                server.ifPresent(CatalogServer::close);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Closing of bundles watcher failed", e);
+        }
+    }
+
+    /**
+     * Serve the dist directory until the process is killed, the counters are logged on exit.
+     */
+    private static void serveForever(Path distDir, int port) {
+        CatalogServer server = new CatalogServer(distDir, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+        server.start();
+
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The recording is written also on {@link System#exit(int)}.
+     */
+    private static Optional<Closeable> startFlightRecording(Path file) {
+        Optional<Closeable> recording = FlightRecorder.startRecording(file);
+
+        if (recording.isPresent()) {
+            logger.info("Flight recording started: {}", file);
+        } else {
+            logger.warn("Flight recording is not supported, Java 11+ build and runtime is needed: {}", file);
+        }
+
+        return recording;
+    }
+
+    private static void stopFlightRecording(Closeable recording) {
+        try {
+            recording.close();
+            logger.info("Flight recording stopped");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Stopping of flight recording failed", e);
+        }
+    }
+
+    /**
+     * Log duration of the stages and the slowest bundles, write the optional machine-readable reports.
+     */
+    private static void reportMetrics(CommandLine commandLine) {
+        StageMetrics metrics = StageMetrics.global();
+        logger.info("Stage metrics: {}", metrics);
+        logger.info("Slowest bundles: {}", metrics.getSlowestBundles(StageMetrics.SLOWEST_BUNDLES)
+                .entrySet()
+                .stream()
+                .map(entry -> entry.getKey() + " " + entry.getValue() / 1_000_000 + " ms")
+                .collect(Collectors.joining(", ")));
+
+        commandLine.getOption("metrics-report").map(Paths::get).ifPresent(path -> {
+            logger.info("Storing metrics report: {}", path);
+            metrics.writeReport(path);
+        });
+        commandLine.getOption("metrics-textfile").map(Paths::get).ifPresent(path -> {
+            logger.info("Storing metrics in Prometheus text format: {}", path);
+            metrics.writePrometheus(path);
+        });
+    }
+
+    /**
+     * One path per line, relative to the working directory, e.g. output of `git diff --name-only --no-renames`.
+     */
+    private static List<Path> readChangedPaths(String source) {
+        try {
+            List<String> lines = "-".equals(source)
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    .lines()
+                    .collect(Collectors.toList())
+                    : Files.readAllLines(Paths.get(source), StandardCharsets.UTF_8);
+
+            List<Path> paths = lines.stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .map(Paths::get)
+                    .collect(Collectors.toList());
+
+            logger.info("Changed paths loaded: {} paths, {}", paths.size(), source);
+            return paths;
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Reading of changed paths failed: " + source, e);
+        }
+    }
+
+    private static void printUsage() {
+        logger.info("Usage:   bundlegen [options] bundles-dir dist-dir link-bundles");
+        logger.info("         bundlegen [options] --validate-only bundles-dir");
+        logger.info("Example: bundlegen bundles bundles-dist https://github" +
+                ".com/michaltc/workspace-microapps-bundles/tree/master/bundles/");
+        logger.info("Options:");
+        logger.info("  --threads N          number of worker threads, default is number of CPU cores");
+        logger.info("  --cache-dir DIR      reuse archives of unchanged bundles from previous runs");
+        logger.info("  --validate-only      only validate the bundles, no output is written");
+        logger.info("  --changed-paths F    process only bundles with changed files listed in file F or `-` for stdin");
+        logger.info("  --watch              process all bundles and then rebuild the changed ones until stopped");
+        logger.info("  --serve PORT         serve the dist directory over HTTP after processing, until stopped");
+        logger.info("  --compression P      compression profile fast, balanced, max or adaptive, default is max");
+        logger.info("  --parallel-deflate   compress large files by multiple threads, the archives are different");
+        logger.info("  --metrics-report F   write time, CPU, allocations and I/O of the stages to JSON file F");
+        logger.info("  --metrics-textfile F write the same metrics to file F in Prometheus text format");
+        logger.info("  --jfr F              record Java Flight Recorder events of the stages to file F, Java 11+");
+    }
+
+    private static CommandLine parseCommandLine(String[] args) {
+        try {
+            return CommandLine.parse(args, new HashSet<>(Arrays.asList(VALIDATE_ONLY, WATCH, PARALLEL_DEFLATE)));
+        } catch (IllegalArgumentException e) {
+            printUsage();
+            logger.error(e.getMessage());
+            System.exit(1);
+            throw e; // Unreachable
+        }
+    }
+
+    private static CompressionProfile parseCompressionProfile(CommandLine commandLine) {
+        Optional<String> name = commandLine.getOption("compression");
+        Optional<CompressionProfile> profile = name
+                .map(CompressionProfile::fromName)
+                .orElse(Optional.of(CompressionProfile.MAX));
+
+        if (!profile.isPresent()) {
+            logger.error("Invalid value of option `--compression`: `{}`, expecting one of fast, balanced, max, " +
+                    "adaptive", name.get());
+            System.exit(1);
+        }
+
+        return profile.get();
+    }
+
+    private static Optional<Integer> parseServePort(CommandLine commandLine) {
+        try {
+            return commandLine.getPositiveIntOption("serve");
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            System.exit(1);
+            throw e; // Unreachable
+        }
+    }
+
+    private static int parseThreads(CommandLine commandLine) {
+        try {
+            return commandLine.getPositiveIntOption("threads", Runtime.getRuntime().availableProcessors());
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            System.exit(1);
+            throw e; // Unreachable
+        }
     }
 
     private static void createDirectories(Path directory) {
@@ -0,0 +1,112 @@
+package com.citrix.microapps.bundlegen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Command line arguments, positional ones, `--name value` options and `--name` flags.
+ */
+class CommandLine {
+    private static final String OPTION_PREFIX = "--";
+
+    private final List<String> positional;
+    private final Map<String, String> options;
+    private final Set<String> flags;
+
+    private CommandLine(List<String> positional, Map<String, String> options, Set<String> flags) {
+        this.positional = Collections.unmodifiableList(positional);
+        this.options = Collections.unmodifiableMap(options);
+        this.flags = Collections.unmodifiableSet(flags);
+    }
+
+    /**
+     * Split the arguments to positional ones and options. Every option expects exactly one value.
+     *
+     * @throws IllegalArgumentException on an option with missing value
+     */
+    static CommandLine parse(String[] args) {
+        return parse(args, Collections.emptySet());
+    }
+
+    /**
+     * Split the arguments to positional ones, options and flags. Flags have no value, every option expects exactly
+     * one value.
+     *
+     * @param flagNames names of all known flags, without the prefix
+     * @throws IllegalArgumentException on an option with missing value
+     */
+    static CommandLine parse(String[] args, Set<String> flagNames) {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        Set<String> flags = new HashSet<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+
+            if (!arg.startsWith(OPTION_PREFIX)) {
+                positional.add(arg);
+                continue;
+            }
+
+            String name = arg.substring(OPTION_PREFIX.length());
+            if (flagNames.contains(name)) {
+                flags.add(name);
+                continue;
+            }
+
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of option: " + arg);
+            }
+
+            options.put(name, args[++i]);
+        }
+
+        return new CommandLine(positional, options, flags);
+    }
+
+    List<String> getPositional() {
+        return positional;
+    }
+
+    boolean hasFlag(String name) {
+        return flags.contains(name);
+    }
+
+    Optional<String> getOption(String name) {
+        return Optional.ofNullable(options.get(name));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    int getPositiveIntOption(String name, int defaultValue) {
+        return getPositiveIntOption(name).orElse(defaultValue);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    Optional<Integer> getPositiveIntOption(String name) {
+        return getOption(name)
+                .map(value -> {
+                    try {
+                        int parsed = Integer.parseInt(value);
+                        if (parsed > 0) {
+                            return parsed;
+                        }
+                    } catch (NumberFormatException e) {
+                        // Reported below
+                    }
+
+                    throw new IllegalArgumentException(
+                            String.format("Invalid value of option `--%s`: `%s`, expecting positive integer",
+                                    name, value));
+                });
+    }
+}
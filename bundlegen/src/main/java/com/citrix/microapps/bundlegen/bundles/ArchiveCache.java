@@ -0,0 +1,238 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Persistent cache of bundle archives shared between runs.
+ * <p>
+ * The archives are keyed by a fingerprint of all files of the bundle and of the archiver configuration. Bundles that
+ * didn't change since the previous run reuse their archive and MD5 checksum, nothing is compressed again. The cache
+ * is only an optimization, any broken or unreadable entry is reported as a warning and the archive is built again.
+ */
+public class ArchiveCache {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveCache.class);
+
+    /**
+     * Increment on every change of the fingerprint or of the zip layout to invalidate all existing entries.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    private static final String CHECKSUM_EXTENSION = ".md5";
+    private static final String TEMP_PREFIX = "tmp-";
+
+    /**
+     * Names of all files this cache writes, an entry or a temporary file of {@link #writeAtomically}. Nothing else
+     * is ever deleted, the directory may be shared.
+     */
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile(
+            "(" + TEMP_PREFIX + "[0-9]+)?([0-9a-f]{64})(?:" + Pattern.quote(ARCHIVE_EXTENSION) + "|"
+                    + Pattern.quote(CHECKSUM_EXTENSION) + ")");
+
+    private final Optional<Path> cacheDir;
+    private final Set<String> usedFingerprints = ConcurrentHashMap.newKeySet();
+
+    private ArchiveCache(Optional<Path> cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public ArchiveCache(Path cacheDir) {
+        this(Optional.of(cacheDir));
+    }
+
+    /**
+     * Cache that never stores anything, all archives are always built.
+     */
+    public static ArchiveCache disabled() {
+        return new ArchiveCache(Optional.empty());
+    }
+
+    /**
+     * Store archive of the bundle to its location, copy it from the cache or build it and store it to the cache.
+     */
+    public BundleArchive getOrBuild(FsBundle bundle, BundlesArchiver archiver) {
+        return getOrBuild(new BundleContents(bundle), archiver);
+    }
+
+    /**
+     * The same for a loaded bundle, its large files are mapped only once for the fingerprint and the archive.
+     */
+    public BundleArchive getOrBuild(Bundle bundle, BundlesArchiver archiver) {
+        return getOrBuild(bundle.getContents(), archiver);
+    }
+
+    private BundleArchive getOrBuild(BundleContents contents, BundlesArchiver archiver) {
+        FsBundle bundle = contents.getBundle();
+        if (!cacheDir.isPresent()) {
+            return archiver.writeArchive(contents);
+        }
+
+        String fingerprint = fingerprint(contents, archiver);
+        usedFingerprints.add(fingerprint);
+
+        Optional<BundleArchive> cached = load(cacheDir.get(), fingerprint, bundle, archiver);
+        if (cached.isPresent()) {
+            logger.debug("Bundle archive loaded from cache: {}, fingerprint {}", bundle, fingerprint);
+            return cached.get();
+        }
+
+        BundleArchive archive = archiver.writeArchive(contents);
+        store(cacheDir.get(), fingerprint, bundle, archive);
+        return archive;
+    }
+
+    /**
+     * Remove all entries that were not used since construction of this object and all leftover temporary files, the
+     * cache would grow indefinitely otherwise. Call it only after all bundles were processed.
+     */
+    public void prune() {
+        if (!cacheDir.isPresent() || !Files.isDirectory(cacheDir.get())) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.list(cacheDir.get())) {
+            paths.filter(Files::isRegularFile)
+                    .filter(this::isUnused)
+                    .forEach(ArchiveCache::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Pruning of archive cache failed: {}", cacheDir.get(), e);
+        }
+    }
+
+    /**
+     * Hash of everything that influences content of the archive.
+     */
+    static String fingerprint(FsBundle bundle, BundlesArchiver archiver) {
+        return fingerprint(new BundleContents(bundle), archiver);
+    }
+
+    private static String fingerprint(BundleContents contents, BundlesArchiver archiver) {
+        FsBundle bundle = contents.getBundle();
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        update(digest, FORMAT_VERSION);
+        update(digest, archiver.getConfiguration());
+        update(digest, bundle.getArchiveName());
+
+        for (Path file : bundle.getFiles()) {
+            try {
+                FileContent content = contents.get(file);
+                update(digest, file.toString().replace('\\', '/'));
+                update(digest, String.valueOf(content.size()));
+                content.updateDigest(digest);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Computing of bundle fingerprint failed: "
+                        + bundle.getPath().resolve(file), e);
+            }
+        }
+
+        return Hex.encodeHexString(digest.digest(), true);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static Optional<BundleArchive> load(Path cacheDir,
+                                                String fingerprint,
+                                                FsBundle bundle,
+                                                BundlesArchiver archiver) {
+        Path archivePath = cacheDir.resolve(fingerprint + ARCHIVE_EXTENSION);
+        Path checksumPath = cacheDir.resolve(fingerprint + CHECKSUM_EXTENSION);
+
+        if (!Files.exists(archivePath) || !Files.exists(checksumPath)) {
+            return Optional.empty();
+        }
+
+        try {
+            String md5Hex = new String(Files.readAllBytes(checksumPath), StandardCharsets.US_ASCII).trim();
+            // The copy is overwritten by a newly built archive on a checksum mismatch.
+            BundleArchive archive = archiver.copyArchive(bundle, archivePath);
+
+            if (!md5Hex.equals(archive.getMd5Hex())) {
+                logger.warn("Broken entry in archive cache, building the archive again: {}", archivePath);
+                return Optional.empty();
+            }
+
+            return Optional.of(archive);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Reading from archive cache failed, building the archive again: {}", archivePath, e);
+            return Optional.empty();
+        }
+    }
+
+    private static void store(Path cacheDir, String fingerprint, FsBundle bundle, BundleArchive archive) {
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.ARCHIVE_STORE,
+                bundle.toString(), bundle.getType())) {
+            Files.createDirectories(cacheDir);
+            writeAtomically(cacheDir, fingerprint + ARCHIVE_EXTENSION,
+                    tempFile -> Files.copy(archive.getPath(), tempFile, REPLACE_EXISTING));
+            writeAtomically(cacheDir, fingerprint + CHECKSUM_EXTENSION,
+                    tempFile -> Files.write(tempFile, archive.getMd5Hex().getBytes(StandardCharsets.US_ASCII)));
+            measurement.addBytesRead(archive.getSize());
+            measurement.addBytesWritten(archive.getSize());
+        } catch (IOException e) {
+            logger.warn("Writing to archive cache failed: {}, fingerprint {}", cacheDir, fingerprint, e);
+        }
+    }
+
+    /**
+     * Concurrent readers and possibly killed process should never see a partially written file.
+     */
+    private static void writeAtomically(Path directory, String fileName, FileWriter writer) throws IOException {
+        Path tempFile = Files.createTempFile(directory, TEMP_PREFIX, fileName);
+
+        try {
+            writer.write(tempFile);
+            Files.move(tempFile, directory.resolve(fileName), ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private boolean isUnused(Path path) {
+        Matcher matcher = FILE_NAME_PATTERN.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            return false;
+        }
+
+        boolean tempFile = matcher.group(1) != null;
+        return tempFile || !usedFingerprints.contains(matcher.group(2));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            logger.debug("Removing unused entry from archive cache: {}", path);
+            Files.delete(path);
+        } catch (IOException e) {
+            logger.warn("Removing of unused entry from archive cache failed: {}", path, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(Path file) throws IOException;
+    }
+}
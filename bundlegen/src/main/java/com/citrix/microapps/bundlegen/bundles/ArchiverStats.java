@@ -0,0 +1,120 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of archives built by {@link BundlesArchiver}, data for the choice of {@link CompressionProfile}. Archives
+ * copied from {@link ArchiveCache} are not counted, nothing was compressed.
+ * <p>
+ * CPU time includes the blocks compressed by the threads of {@link ParallelDeflater}.
+ */
+public class ArchiverStats {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final LongAdder archives = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder storedEntries = new LongAdder();
+    private final LongAdder reusedEntries = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder reusedBytes = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+
+    /**
+     * CPU time of the current thread, wall time if the JVM doesn't support its measurement.
+     */
+    static long currentCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * @param size   size of the original content
+     * @param stored the entry is not compressed
+     * @param reused the compressed data was found in {@link EntryStore}
+     */
+    void recordEntry(long size, boolean stored, boolean reused) {
+        entries.increment();
+        inputBytes.add(size);
+        if (stored) {
+            storedEntries.increment();
+        }
+        if (reused) {
+            reusedEntries.increment();
+            reusedBytes.add(size);
+        }
+    }
+
+    void recordArchive(long size, long cpuNanos) {
+        archives.increment();
+        outputBytes.add(size);
+        this.cpuNanos.add(cpuNanos);
+    }
+
+    /**
+     * CPU time spent outside of the thread that builds the archive.
+     */
+    void recordPoolCpu(long cpuNanos) {
+        this.cpuNanos.add(cpuNanos);
+    }
+
+    public long getArchives() {
+        return archives.sum();
+    }
+
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    public long getStoredEntries() {
+        return storedEntries.sum();
+    }
+
+    /**
+     * Entries whose content was already compressed for another archive.
+     */
+    public long getReusedEntries() {
+        return reusedEntries.sum();
+    }
+
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    public long getReusedBytes() {
+        return reusedBytes.sum();
+    }
+
+    public long getOutputBytes() {
+        return outputBytes.sum();
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    /**
+     * Size of the archives relative to size of their content, zip headers included.
+     */
+    public double getRatio() {
+        long input = getInputBytes();
+        return input == 0 ? 1.0 : (double) getOutputBytes() / input;
+    }
+
+    /**
+     * Part of the content that had to be compressed, the rest was reused from {@link EntryStore}.
+     */
+    public double getDedupeRatio() {
+        long input = getInputBytes();
+        return input == 0 ? 1.0 : (double) (input - getReusedBytes()) / input;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d archives, %d entries (%d stored, %d reused), %d B -> %d B, ratio %.3f, " +
+                        "dedupe ratio %.3f, CPU %d ms",
+                getArchives(), getEntries(), getStoredEntries(), getReusedEntries(), getInputBytes(),
+                getOutputBytes(), getRatio(), getDedupeRatio(), getCpuNanos() / 1_000_000);
+    }
+}
@@ -0,0 +1,261 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary delta of two byte arrays in the spirit of VCDIFF, a sequence of instructions that copy ranges of the source
+ * or add literal data.
+ * <p>
+ * Format, all numbers are unsigned LEB128 varints:
+ * <pre>
+ * "BGD1" sourceLength sourceCrc32 targetLength targetCrc32 instruction*
+ * instruction = 0x01 length data         ... ADD literal data
+ *             | 0x02 sourceOffset length ... COPY from the source
+ * </pre>
+ * Blocks of the source at aligned offsets are indexed by a hash, the target is scanned by a rolling hash of the same
+ * window. The matches are extended in both directions. Both encoding and decoding run in linear time and the delta
+ * depends only on the two inputs.
+ */
+class BinaryDelta {
+    private static final byte[] MAGIC = "BGD1".getBytes(StandardCharsets.US_ASCII);
+    private static final int ADD = 0x01;
+    private static final int COPY = 0x02;
+
+    /**
+     * Size of the indexed blocks and of the rolling window, the shortest possible match.
+     */
+    private static final int BLOCK_SIZE = 16;
+    private static final int HASH_MULTIPLIER = 0x01000193;
+    private static final int HASH_REMOVE_MULTIPLIER = power(HASH_MULTIPLIER, BLOCK_SIZE);
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * Compute delta that transforms the source to the target.
+     */
+    static byte[] diff(byte[] source, byte[] target) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(target.length / 8 + 64);
+        output.write(MAGIC, 0, MAGIC.length);
+        writeVarint(output, source.length);
+        writeVarint(output, CompressedEntry.crc(source, 0, source.length));
+        writeVarint(output, target.length);
+        writeVarint(output, CompressedEntry.crc(target, 0, target.length));
+
+        int[] index = indexBlocks(source);
+        int mask = index.length - 1;
+        int literalStart = 0;
+        int position = 0;
+        int hash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+
+        while (position + BLOCK_SIZE <= target.length) {
+            // Offsets are stored plus one, zero is an empty slot
+            int candidate = index[hash & mask] - 1;
+
+            if (candidate >= 0 && equalBlocks(source, candidate, target, position)) {
+                int start = position;
+                int sourceStart = candidate;
+                while (start > literalStart && sourceStart > 0 && source[sourceStart - 1] == target[start - 1]) {
+                    start--;
+                    sourceStart--;
+                }
+
+                int end = position + BLOCK_SIZE;
+                int sourceEnd = candidate + BLOCK_SIZE;
+                while (end < target.length && sourceEnd < source.length && source[sourceEnd] == target[end]) {
+                    end++;
+                    sourceEnd++;
+                }
+
+                writeAdd(output, target, literalStart, start);
+                output.write(COPY);
+                writeVarint(output, sourceStart);
+                writeVarint(output, end - start);
+
+                literalStart = end;
+                position = end;
+                if (position + BLOCK_SIZE <= target.length) {
+                    hash = hash(target, position);
+                }
+            } else {
+                if (position + BLOCK_SIZE < target.length) {
+                    hash = hash * HASH_MULTIPLIER
+                            - (target[position] & 0xFF) * HASH_REMOVE_MULTIPLIER
+                            + (target[position + BLOCK_SIZE] & 0xFF);
+                }
+                position++;
+            }
+        }
+
+        writeAdd(output, target, literalStart, target.length);
+        return output.toByteArray();
+    }
+
+    /**
+     * Apply the delta to the source.
+     *
+     * @throws IllegalArgumentException if the delta is invalid or if it was computed from a different source
+     */
+    static byte[] patch(byte[] source, byte[] delta) {
+        Reader reader = new Reader(delta);
+        if (!Arrays.equals(reader.readBytes(MAGIC.length), MAGIC)) {
+            throw new IllegalArgumentException("Invalid delta: unknown format");
+        }
+
+        long sourceLength = reader.readVarint();
+        long sourceCrc = reader.readVarint();
+        if (sourceLength != source.length || sourceCrc != CompressedEntry.crc(source, 0, source.length)) {
+            throw new IllegalArgumentException("Invalid delta: computed from a different source");
+        }
+
+        long targetLength = reader.readVarint();
+        long targetCrc = reader.readVarint();
+        if (targetLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid delta: target too large: " + targetLength);
+        }
+
+        byte[] target = new byte[(int) targetLength];
+        int position = 0;
+
+        while (reader.hasMore()) {
+            int instruction = reader.readByte();
+            switch (instruction) {
+                case ADD: {
+                    int length = reader.readLength(target.length - position);
+                    System.arraycopy(reader.readBytes(length), 0, target, position, length);
+                    position += length;
+                    break;
+                }
+                case COPY: {
+                    int offset = reader.readLength(source.length);
+                    int length = reader.readLength(Math.min(target.length - position, source.length - offset));
+                    System.arraycopy(source, offset, target, position, length);
+                    position += length;
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Invalid delta: unknown instruction " + instruction);
+            }
+        }
+
+        if (position != target.length || targetCrc != CompressedEntry.crc(target, 0, target.length)) {
+            throw new IllegalArgumentException("Invalid delta: target checksum mismatch");
+        }
+
+        return target;
+    }
+
+    /**
+     * Hash table of the source blocks, the first block wins on a collision.
+     */
+    private static int[] indexBlocks(byte[] source) {
+        int blocks = source.length / BLOCK_SIZE;
+        int[] index = new int[Integer.highestOneBit(Math.max(1, blocks) * 2 - 1) * 2];
+        int mask = index.length - 1;
+
+        for (int offset = 0; offset + BLOCK_SIZE <= source.length; offset += BLOCK_SIZE) {
+            int slot = hash(source, offset) & mask;
+            if (index[slot] == 0) {
+                index[slot] = offset + 1;
+            }
+        }
+
+        return index;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = hash * HASH_MULTIPLIER + (data[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static int power(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    private static boolean equalBlocks(byte[] source, int sourceOffset, byte[] target, int targetOffset) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (source[sourceOffset + i] != target[targetOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeAdd(ByteArrayOutputStream output, byte[] target, int start, int end) {
+        if (end > start) {
+            output.write(ADD);
+            writeVarint(output, end - start);
+            output.write(target, start, end - start);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, long value) {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            output.write((int) ((rest & 0x7F) | 0x80));
+            rest >>>= 7;
+        }
+        output.write((int) rest);
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private int position = 0;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        boolean hasMore() {
+            return position < data.length;
+        }
+
+        int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Invalid delta: unexpected end");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        byte[] readBytes(int length) {
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("Invalid delta: unexpected end");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid delta: too long number");
+        }
+
+        /**
+         * @param max maximal allowed value
+         */
+        int readLength(long max) {
+            long value = readVarint();
+            if (value > max) {
+                throw new IllegalArgumentException("Invalid delta: value out of range: " + value);
+            }
+            return (int) value;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.citrix.microapps.bundlegen.bundles;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import com.citrix.microapps.bundlegen.pojo.Metadata;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 
 /**
  * Bundle with all information from filesystem and metadata file.
@@ -13,11 +17,20 @@ import com.citrix.microapps.bundlegen.pojo.Metadata;
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public class Bundle {
     private final FsBundle fs;
+    private final BundleContents contents;
     private final Optional<Metadata> metadata;
     private final List<ValidationException> issues;
 
     public Bundle(FsBundle fs, Optional<Metadata> metadata, List<ValidationException> issues) {
-        this.fs = fs;
+        this(new BundleContents(fs), metadata, issues);
+    }
+
+    /**
+     * @param contents the files already read during loading, archiving reuses them
+     */
+    Bundle(BundleContents contents, Optional<Metadata> metadata, List<ValidationException> issues) {
+        this.fs = contents.getBundle();
+        this.contents = contents;
         this.metadata = metadata;
         this.issues = issues;
     }
@@ -26,6 +39,19 @@ public class Bundle {
         return fs;
     }
 
+    BundleContents getContents() {
+        return contents;
+    }
+
+    /**
+     * Parser of a file of the bundle, the content is shared with the other stages, see {@link BundleContents}.
+     *
+     * @param file relative path to a file inside the bundle
+     */
+    public JsonParser createParser(Path file, JsonFactory factory) throws IOException {
+        return contents.get(file).createParser(factory);
+    }
+
     public Metadata getMetadata() {
         return metadata
                 .orElseThrow(() -> new UnsupportedOperationException("No metadata, validations should prevent this"));
@@ -0,0 +1,30 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.file.Path;
+
+/**
+ * Zip archive of a bundle stored in filesystem with its size and checksum.
+ */
+public class BundleArchive {
+    private final Path path;
+    private final long size;
+    private final String md5Hex;
+
+    public BundleArchive(Path path, long size, String md5Hex) {
+        this.path = path;
+        this.size = size;
+        this.md5Hex = md5Hex;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getMd5Hex() {
+        return md5Hex;
+    }
+}
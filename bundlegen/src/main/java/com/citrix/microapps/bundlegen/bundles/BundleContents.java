@@ -0,0 +1,64 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Contents of the files of a bundle shared by all stages: validation, translation checksums, the fingerprint of
+ * {@link ArchiveCache} and archiving, see {@link FileContent}.
+ * <p>
+ * Large memory-mapped files are read only once, they cost no heap and stay in the page cache. Small files are read
+ * again by every stage, all bundles are validated before the first one is archived and keeping them would need heap
+ * proportional to the whole catalog.
+ * <p>
+ * A mapping sees every later write to the file and a truncated file fails on access, mapping can be turned off when
+ * the files are edited during processing. Each stage then reads its own copy like for the small files.
+ */
+class BundleContents {
+    private final FsBundle bundle;
+    private final boolean mapLarge;
+    private final ConcurrentMap<Path, FileContent> mapped = new ConcurrentHashMap<>();
+
+    BundleContents(FsBundle bundle) {
+        this(bundle, true);
+    }
+
+    /**
+     * @param mapLarge memory-map the large files and share them by the stages
+     */
+    BundleContents(FsBundle bundle, boolean mapLarge) {
+        this.bundle = bundle;
+        this.mapLarge = mapLarge;
+    }
+
+    FsBundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * @param file relative path to a file inside the bundle
+     * @throws IOException if the file can't be read
+     */
+    FileContent get(Path file) throws IOException {
+        Optional<FileContent> cached = Optional.ofNullable(mapped.get(file));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // Two stages of the same bundle never run concurrently, a duplicate mapping is harmless anyway
+        FileContent content = FileContent.read(bundle.getPath().resolve(file), mapLarge);
+        if (content.isMapped()) {
+            mapped.put(file, content);
+        }
+
+        return content;
+    }
+
+    @Override
+    public String toString() {
+        return bundle.toString();
+    }
+}
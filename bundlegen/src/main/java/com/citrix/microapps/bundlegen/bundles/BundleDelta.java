@@ -0,0 +1,36 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.file.Path;
+
+/**
+ * Binary delta from the archive of the previous version of a bundle stored in filesystem, see {@link BinaryDelta}.
+ */
+public class BundleDelta {
+    private final String fromVersion;
+    private final Path path;
+    private final long size;
+    private final String md5Hex;
+
+    public BundleDelta(String fromVersion, Path path, long size, String md5Hex) {
+        this.fromVersion = fromVersion;
+        this.path = path;
+        this.size = size;
+        this.md5Hex = md5Hex;
+    }
+
+    public String getFromVersion() {
+        return fromVersion;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getMd5Hex() {
+        return md5Hex;
+    }
+}
@@ -0,0 +1,109 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import com.citrix.microapps.bundlegen.pojo.Type;
+
+/**
+ * Ordering of versions of DIP bundles, e.g. `1.2.10` is newer than `1.2.9` and `1.3.0-SNAPSHOT` is older than `1.3.0`.
+ */
+class BundleVersions {
+    /**
+     * Compare only the versions accepted by the validation, see {@link BundlesLoader#VERSION_PATTERN}.
+     */
+    static final Comparator<String> COMPARATOR = BundleVersions::compare;
+
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
+    private BundleVersions() {
+    }
+
+    /**
+     * Find the previous version of every DIP bundle that has one. Bundles with an invalid version are ignored.
+     *
+     * @param bundles bundles in any order, e.g. output of {@link BundlesFinder#findBundles()}
+     * @return the previous version of the same vendor and ID keyed by path of the newer bundle
+     */
+    static Map<Path, FsBundle> findPreviousVersions(Collection<FsBundle> bundles) {
+        Map<String, List<FsBundle>> versions = new TreeMap<>();
+        for (FsBundle bundle : bundles) {
+            Optional<String> version = bundle.getVersion();
+            if (bundle.getType() == Type.DIP && version.isPresent() && isValid(version.get())) {
+                versions.computeIfAbsent(bundle.getVendor() + "/" + bundle.getId(), key -> new ArrayList<>())
+                        .add(bundle);
+            }
+        }
+
+        Map<Path, FsBundle> previous = new HashMap<>();
+        for (List<FsBundle> sameId : versions.values()) {
+            sameId.sort(Comparator.comparing((FsBundle bundle) -> bundle.getVersion().get(), COMPARATOR));
+            for (int i = 1; i < sameId.size(); i++) {
+                previous.put(sameId.get(i).getPath(), sameId.get(i - 1));
+            }
+        }
+
+        return previous;
+    }
+
+    static boolean isValid(String version) {
+        return BundlesLoader.VERSION_PATTERN.matcher(version).matches();
+    }
+
+    /**
+     * Numeric comparison of the dot separated parts, snapshot is older than the release. Versions that are equal
+     * numerically, e.g. `1.0` and `1.00`, are ordered by their text to have a stable order.
+     */
+    private static int compare(String version1, String version2) {
+        boolean snapshot1 = version1.endsWith(SNAPSHOT_SUFFIX);
+        boolean snapshot2 = version2.endsWith(SNAPSHOT_SUFFIX);
+        String[] parts1 = strip(version1, snapshot1).split("\\.");
+        String[] parts2 = strip(version2, snapshot2).split("\\.");
+
+        for (int i = 0; i < Math.max(parts1.length, parts2.length); i++) {
+            int result = compareNumbers(i < parts1.length ? parts1[i] : "0", i < parts2.length ? parts2[i] : "0");
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        if (snapshot1 != snapshot2) {
+            return snapshot1 ? -1 : 1;
+        }
+
+        return version1.compareTo(version2);
+    }
+
+    private static String strip(String version, boolean snapshot) {
+        return snapshot ? version.substring(0, version.length() - SNAPSHOT_SUFFIX.length()) : version;
+    }
+
+    /**
+     * Numbers of any length, there is no overflow.
+     */
+    private static int compareNumbers(String number1, String number2) {
+        String stripped1 = stripLeadingZeros(number1);
+        String stripped2 = stripLeadingZeros(number2);
+
+        if (stripped1.length() != stripped2.length()) {
+            return Integer.compare(stripped1.length(), stripped2.length());
+        }
+
+        return stripped1.compareTo(stripped2);
+    }
+
+    private static String stripLeadingZeros(String number) {
+        int start = 0;
+        while (start < number.length() - 1 && number.charAt(start) == '0') {
+            start++;
+        }
+        return number.substring(start);
+    }
+}
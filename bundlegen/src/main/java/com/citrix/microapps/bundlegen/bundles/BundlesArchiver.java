@@ -1,19 +1,26 @@
 package com.citrix.microapps.bundlegen.bundles;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.zip.Deflater;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Optional;
 
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 
@@ -21,45 +28,281 @@ import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
  * Builder of zip archive with bundle. Produce always exactly same zip on byte level for the same input, any difference
  * would cause unwanted growing of git repository with archives, invalidating of possible HTTP proxy caches in CDN,
  * files re-downloading, etc.
+ * <p>
+ * Level of compression of the entries is defined by {@link CompressionProfile}, {@link CompressionProfile#MAX} by
+ * default. Sizes and CPU time of the built archives are collected to {@link ArchiverStats}. Large entries can be
+ * compressed by multiple threads using {@link ParallelDeflater}.
+ * <p>
+ * Every unique file is compressed only once, the identical files of other bundles and versions reuse the compressed
+ * data from {@link EntryStore}. Large files of a {@link Bundle} loaded by {@link BundlesLoader} are not read again,
+ * see {@link BundleContents}.
+ * <p>
+ * Archive of a DIP bundle can be accompanied by a {@link BinaryDelta} from the archive of its previous version, the
+ * clients that have the previous version download only the patch.
  */
 public class BundlesArchiver {
-    private static final FileTime EPOCH = FileTime.fromMillis(0);
+    private static final CompressionProfile DEFAULT_PROFILE = CompressionProfile.MAX;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private final Path archivesDir;
+    private final CompressionProfile profile;
+    private final Optional<ParallelDeflater> parallelDeflater;
+    private final EntryStore store = new EntryStore(EntryStore.DEFAULT_MAX_BYTES);
+    private volatile ArchiverStats stats = new ArchiverStats();
 
     public BundlesArchiver(Path archivesDir) {
+        this(archivesDir, DEFAULT_PROFILE);
+    }
+
+    /**
+     * @param archivesDir destination directory
+     * @param profile     compression of the entries
+     */
+    public BundlesArchiver(Path archivesDir, CompressionProfile profile) {
+        this(archivesDir, profile, Optional.empty());
+    }
+
+    /**
+     * @param archivesDir      destination directory
+     * @param profile          compression of the entries
+     * @param parallelDeflater compression of the entries larger than its block size by multiple threads, the
+     *                         archives differ from the single-threaded ones
+     */
+    public BundlesArchiver(Path archivesDir,
+                           CompressionProfile profile,
+                           Optional<ParallelDeflater> parallelDeflater) {
         this.archivesDir = archivesDir;
+        this.profile = profile;
+        this.parallelDeflater = parallelDeflater;
     }
 
     /**
-     * Build zip archive with all the files of the bundle.
+     * Description of all settings that influence content of the produced archives, see {@link ArchiveCache}.
+     */
+    public String getConfiguration() {
+        return profile.getConfiguration() + parallelDeflater
+                .map(deflater -> "-parallel-" + deflater.getBlockSize())
+                .orElse("");
+    }
+
+    public CompressionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Counters of all archives built by this archiver since its creation or the last {@link #resetStats()}.
+     */
+    public ArchiverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Start new counters, e.g. for the next run in watch mode. Call it only when no archive is being built.
+     *
+     * @return the previous counters
+     */
+    public ArchiverStats resetStats() {
+        ArchiverStats previous = stats;
+        stats = new ArchiverStats();
+        return previous;
+    }
+
+    /**
+     * Build zip archive with all the files of the bundle in memory.
      */
     public byte[] buildArchive(FsBundle bundle) {
-        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-             ZipOutputStream zipStream = new ZipOutputStream(bytes)) {
-            zipStream.setMethod(ZipEntry.DEFLATED);
-            zipStream.setLevel(Deflater.BEST_COMPRESSION);
-
-            String archiveName = bundle.getArchiveName();
-
-            // Empty directories are intentionally ignored while traversing, they will be missing in the archive.
-            // Git can't store them and the archives would be only a little bigger with no benefit. If you decide
-            // to have also directory entries in zip, directory entry is defined to be one whose name ends with a
-            // '/' and have no content.
-            //
-            // Make sure the files are always iterated and added to zip in the same order.
-            bundle.getFiles()
-                    .stream()
-                    .map(path -> bundle.getPath().resolve(path))
-                    .forEach(file -> addToArchive(zipStream, archiveName, bundle.getPath(), file));
-
-            zipStream.finish();
+        return buildArchive(new BundleContents(bundle));
+    }
+
+    /**
+     * Build zip archive of a loaded bundle in memory, the large files mapped by {@link BundlesLoader} are
+     * reused.
+     */
+    public byte[] buildArchive(Bundle bundle) {
+        return buildArchive(bundle.getContents());
+    }
+
+    private byte[] buildArchive(BundleContents contents) {
+        FsBundle bundle = contents.getBundle();
+        long start = ArchiverStats.currentCpuNanos();
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.ZIP_BUILD, bundle.toString(),
+                bundle.getType());
+             ByteArrayOutputStream bytes = new ByteArrayOutputStream()) {
+            measurement.addBytesRead(writeZip(contents, bytes));
+            measurement.addBytesWritten(bytes.size());
+            stats.recordArchive(bytes.size(), ArchiverStats.currentCpuNanos() - start);
             return bytes.toByteArray();
         } catch (IOException e) {
             throw new UncheckedIOException("Creation of zip archive failed: " + bundle, e);
         }
     }
 
+    /**
+     * Build zip archive with all the files of the bundle and stream it directly to its location in filesystem, see
+     * {@link #storeArchive(FsBundle, byte[])}. Checksum and size of the archive are computed while writing.
+     * <p>
+     * The content is written to a temporary file first and atomically moved to the final location at the end, a
+     * partially written archive never appears there.
+     *
+     * @param bundle bundle to archive
+     * @return the stored archive
+     */
+    public BundleArchive writeArchive(FsBundle bundle) {
+        return writeArchive(new BundleContents(bundle));
+    }
+
+    /**
+     * Build and store zip archive of a loaded bundle, the large files mapped by {@link BundlesLoader} are
+     * reused.
+     *
+     * @see #writeArchive(FsBundle)
+     */
+    public BundleArchive writeArchive(Bundle bundle) {
+        return writeArchive(bundle.getContents());
+    }
+
+    BundleArchive writeArchive(BundleContents contents) {
+        FsBundle bundle = contents.getBundle();
+        long start = ArchiverStats.currentCpuNanos();
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.ZIP_BUILD,
+                bundle.toString(), bundle.getType())) {
+            BundleArchive archive = writeAtomically(bundle.getArchivePath(archivesDir),
+                    output -> measurement.addBytesRead(writeZip(contents, output)));
+            measurement.addBytesWritten(archive.getSize());
+            stats.recordArchive(archive.getSize(), ArchiverStats.currentCpuNanos() - start);
+            return archive;
+        }
+    }
+
+    /**
+     * Store an already built archive of the bundle, e.g. from a cache. Checksum and size are computed while copying.
+     *
+     * @param bundle  bundle to store
+     * @param archive path to the archive to copy
+     * @return the stored archive
+     */
+    public BundleArchive copyArchive(FsBundle bundle, Path archive) {
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.ARCHIVE_STORE,
+                bundle.toString(), bundle.getType())) {
+            BundleArchive stored = writeAtomically(bundle.getArchivePath(archivesDir),
+                    output -> Files.copy(archive, output));
+            measurement.addBytesRead(stored.getSize());
+            measurement.addBytesWritten(stored.getSize());
+            return stored;
+        }
+    }
+
+    /**
+     * Compute binary delta from the stored archive of the previous version to the stored archive of the bundle and
+     * store it next to the archive, see {@link FsBundle#getDeltaPath(Path)}. Both archives must be already stored.
+     * <p>
+     * The delta is not stored and its stale version is deleted if the previous archive is missing or if the delta
+     * wouldn't be smaller than the archive itself.
+     *
+     * @param bundle   bundle whose archive is the target of the delta
+     * @param previous previous version of the same bundle
+     * @return the stored delta
+     */
+    public Optional<BundleDelta> writeDelta(FsBundle bundle, FsBundle previous) {
+        Path sourcePath = previous.getArchivePath(archivesDir);
+        Path targetPath = bundle.getArchivePath(archivesDir);
+        String fromVersion = previous.getVersion()
+                .orElseThrow(() -> new IllegalArgumentException("Previous bundle has no version: " + previous));
+
+        if (!Files.isRegularFile(sourcePath)) {
+            deleteDelta(bundle);
+            return Optional.empty();
+        }
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.DELTA_BUILD,
+                bundle.toString(), bundle.getType())) {
+            byte[] source = readArchive(sourcePath);
+            byte[] target = readArchive(targetPath);
+            byte[] delta = BinaryDelta.diff(source, target);
+            measurement.addBytesRead(source.length + target.length);
+
+            if (delta.length >= target.length) {
+                deleteDelta(bundle);
+                return Optional.empty();
+            }
+
+            BundleArchive stored = writeAtomically(bundle.getDeltaPath(archivesDir), output -> output.write(delta));
+            measurement.addBytesWritten(stored.getSize());
+            return Optional.of(new BundleDelta(fromVersion, stored.getPath(), stored.getSize(), stored.getMd5Hex()));
+        }
+    }
+
+    /**
+     * Delete delta of a bundle that doesn't exist anymore or that has no previous version now.
+     */
+    public void deleteDelta(FsBundle bundle) {
+        Path deltaPath = bundle.getDeltaPath(archivesDir);
+
+        try {
+            Files.deleteIfExists(deltaPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Deleting of delta failed: " + deltaPath, e);
+        }
+    }
+
+    private static byte[] readArchive(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading of zip archive failed: " + path, e);
+        }
+    }
+
+    /**
+     * @return size of the archived files
+     */
+    private long writeZip(BundleContents contents, OutputStream output) throws IOException {
+        FsBundle bundle = contents.getBundle();
+        ZipWriter zipWriter = new ZipWriter(output);
+        String archiveName = bundle.getArchiveName();
+
+        // Empty directories are intentionally ignored while traversing, they will be missing in the archive.
+        // Git can't store them and the archives would be only a little bigger with no benefit. If you decide
+        // to have also directory entries in zip, directory entry is defined to be one whose name ends with a
+        // '/' and have no content.
+        //
+        // Make sure the files are always iterated and added to zip in the same order.
+        long size = bundle.getFiles()
+                .stream()
+                .mapToLong(file -> addToArchive(zipWriter, archiveName, contents, file))
+                .sum();
+
+        zipWriter.finish();
+        return size;
+    }
+
+    private static BundleArchive writeAtomically(Path archivePath, ArchiveWriter writer) {
+        try {
+            Files.createDirectories(archivePath.getParent());
+            Path tempPath = Files.createTempFile(archivePath.getParent(), archivePath.getFileName().toString(), ".tmp");
+
+            try {
+                MessageDigest md5 = DigestUtils.getMd5Digest();
+                long size;
+
+                try (DigestingOutputStream output = new DigestingOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tempPath), BUFFER_SIZE), md5)) {
+                    writer.write(output);
+                    size = output.getCount();
+                }
+
+                Files.move(tempPath, archivePath, ATOMIC_MOVE, REPLACE_EXISTING);
+                return new BundleArchive(archivePath, size, Hex.encodeHexString(md5.digest(), true));
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Storing of file to file system failed: " + archivePath, e);
+        }
+    }
+
     /**
      * Store bundle archive to the file system on path like `archivesDir/vendor/vendor_bundleID.zip`.
      * <p>
@@ -76,35 +319,75 @@ public class BundlesArchiver {
     public Path storeArchive(FsBundle bundle, byte[] content) {
         Path archivePath = bundle.getArchivePath(archivesDir);
 
-        try {
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.ARCHIVE_STORE,
+                bundle.toString(), bundle.getType())) {
             Files.createDirectories(archivePath.getParent());
             Files.write(archivePath, content, CREATE, TRUNCATE_EXISTING);
+            measurement.addBytesWritten(content.length);
             return archivePath;
         } catch (IOException e) {
             throw new UncheckedIOException("Storing of zip archive to file system failed: " + archivePath, e);
         }
     }
 
-    private void addToArchive(ZipOutputStream zipStream, String archiveName, Path topDirectory, Path file) {
+    /**
+     * Delete archive of a bundle that doesn't exist anymore.
+     */
+    public void deleteArchive(FsBundle bundle) {
+        Path archivePath = bundle.getArchivePath(archivesDir);
+
         try {
-            String relativePath = archiveName + "/" + topDirectory.relativize(file);
-            // Preserve the unix separator inside the archive to have single tests to work even on Windows.
-            relativePath = relativePath.replace('\\', '/');
+            Files.deleteIfExists(archivePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Deleting of zip archive failed: " + archivePath, e);
+        }
+    }
+
+    /**
+     * @return size of the file
+     */
+    private long addToArchive(ZipWriter zipWriter, String archiveName, BundleContents contents, Path file) {
+        try {
+            String relativePath = entryName(archiveName, file);
+            FileContent content = contents.get(file);
+
             // Git unfortunately doesn't preserve the times, it uses current time on checkout of every file it modifies.
-            // Current time would be used in zip if the times were not defined, see putNextEntry(). `git log` can be
-            // used to get the timestamps if really needed.
+            // All times are set to epoch by the writer. `git log` can be used to get the timestamps if really needed.
             // https://git.wiki.kernel.org/index.php/GitFaq#Why_isn.27t_Git_preserving_modification_time_on_files.3F
-            ZipEntry entry = new ZipEntry(relativePath)
-                    .setCreationTime(EPOCH)
-                    .setLastAccessTime(EPOCH)
-                    .setLastModifiedTime(EPOCH);
-
-            zipStream.putNextEntry(entry);
-            Files.copy(file, zipStream);
-            zipStream.closeEntry();
+            String key = EntryStore.key(content.asByteBuffer());
+            Optional<CompressedEntry> stored = store.get(key);
+            CompressedEntry entry = stored.orElseGet(() -> store.put(key, compress(content)));
+
+            zipWriter.write(relativePath, entry);
+            stats.recordEntry(content.size(), entry.isStored(), stored.isPresent());
+            return content.size();
         } catch (IOException e) {
-            throw new UncheckedIOException("Adding of file to zip archive failed: " + file, e);
+            throw new UncheckedIOException("Adding of file to zip archive failed: "
+                    + contents.getBundle().getPath().resolve(file), e);
+        }
+    }
+
+    /**
+     * Memory-mapped files are compressed directly from the mapping, only the stored entries need their content in the
+     * heap.
+     */
+    private CompressedEntry compress(FileContent content) {
+        ByteBuffer buffer = content.asByteBuffer();
+        int level = profile.chooseLevel(buffer);
+
+        if (level == CompressionProfile.STORED_LEVEL) {
+            return CompressedEntry.stored(content.toByteArray());
         }
+
+        return parallelDeflater
+                .map(deflater -> deflater.deflate(buffer, level, stats::recordPoolCpu))
+                .orElseGet(() -> CompressedEntry.deflated(buffer, level));
+    }
+
+    private static String entryName(String archiveName, Path file) {
+        String relativePath = archiveName + "/" + file;
+        // Preserve the unix separator inside the archive to have single tests to work even on Windows.
+        return relativePath.replace('\\', '/');
     }
 
     public static String md5Hex(byte[] content) {
@@ -115,4 +398,40 @@ public class BundlesArchiver {
             throw new RuntimeException("MD5 computation failed");
         }
     }
+
+    @FunctionalInterface
+    private interface ArchiveWriter {
+        void write(OutputStream output) throws IOException;
+    }
+
+    /**
+     * Pass the data through and compute its digest and size on the fly.
+     */
+    private static class DigestingOutputStream extends FilterOutputStream {
+        private final MessageDigest digest;
+        private long count = 0;
+
+        DigestingOutputStream(OutputStream output, MessageDigest digest) {
+            super(output);
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
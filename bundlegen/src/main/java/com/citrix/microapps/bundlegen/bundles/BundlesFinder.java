@@ -2,24 +2,54 @@ package com.citrix.microapps.bundlegen.bundles;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+import com.citrix.microapps.bundlegen.pojo.Type;
+
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.DIP_DIR;
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.HTTP_DIR;
 
 /**
  * Find all bundles in a directory tree with the standard structure.
+ * <p>
+ * Each tree is traversed only once, the bundles are recognized by depth of their directories.
  */
 public class BundlesFinder {
     private static final Logger logger = LoggerFactory.getLogger(BundlesFinder.class);
 
+    /**
+     * Depth of DIP bundle directories: vendor - bundle ID - version.
+     */
+    private static final int DIP_BUNDLE_DEPTH = 3;
+
+    /**
+     * Depth of HTTP bundle directories: vendor - bundle ID.
+     */
+    private static final int HTTP_BUNDLE_DEPTH = 2;
+
     private final Path dipRoot;
     private final Path httpRoot;
 
@@ -32,71 +62,211 @@ public class BundlesFinder {
         return Stream.concat(findDipBundles(), findHttpBundles());
     }
 
-    /**
-     * DIP bundles use 3 levels of directories: vendor - bundle ID - version.
-     */
     private Stream<FsBundle> findDipBundles() {
         logger.info("Searching for all DIP bundles: {}", dipRoot);
-        return listDirectSubdirectories(dipRoot)          // vendor
-                .flatMap(this::listDirectSubdirectories)  // bundle ID
-                .flatMap(this::listDirectSubdirectories)  // version
-                .map(path -> new FsDipBundle(path, listFiles(path)));
+        return findBundles(dipRoot, DIP_BUNDLE_DEPTH, Type.DIP, FsDipBundle::new).stream();
     }
 
-    /**
-     * HTTP bundles use 2 levels of directories: vendor - bundle ID.
-     */
     private Stream<FsBundle> findHttpBundles() {
         logger.info("Searching for all HTTP bundles: {}", httpRoot);
-        return listDirectSubdirectories(httpRoot)          // vendor
-                .flatMap(this::listDirectSubdirectories)   // bundle ID
-                .map(path -> new FsHttpBundle(path, listFiles(path)));
+        return findBundles(httpRoot, HTTP_BUNDLE_DEPTH, Type.HTTP, FsHttpBundle::new).stream();
     }
 
     /**
-     * List all direct subdirectories of a directory. Fail fast on any non-directory entry.
+     * Map changed paths, e.g. from `git diff --name-only --no-renames`, to the bundles that own them. The paths don't
+     * need to exist anymore, relative ones are resolved against the working directory and paths outside of the bundle
+     * trees are ignored.
+     *
+     * @return the affected bundles or empty if any path is inside a tree but above the bundle directories, only a full
+     * search is reliable then
      */
-    private Stream<Path> listDirectSubdirectories(Path directory) {
-        try (Stream<Path> paths = Files.walk(directory, 1)) {
-            return paths
-                    .filter(path -> !directory.equals(path))
-                    .filter(this::isDirectoryOrException)
-                    // Process the subdirectories always in the same order, less differences for git.
-                    .sorted()
-                    // Streams are lazily evaluated so we need to first collect all the paths, close the opened
-                    // directory to prevent resource leak and then build a new stream from the intermediate list.
-                    // Expecting only tens, max. hundreds subdirectories inside, no real streaming should be needed
-                    // during next years.
-                    .collect(Collectors.toList())
-                    .stream();
-        } catch (IOException e) {
-            throw new UncheckedIOException("Listing of directory failed: " + directory, e);
+    public Optional<ChangedBundles> findChangedBundles(Collection<Path> changedPaths) {
+        Set<Path> dipDirs = new TreeSet<>(BundlesFinder::compareByNames);
+        Set<Path> httpDirs = new TreeSet<>(BundlesFinder::compareByNames);
+
+        for (Path changedPath : changedPaths) {
+            if (!addBundleDir(dipDirs, dipRoot, DIP_BUNDLE_DEPTH, changedPath)
+                    || !addBundleDir(httpDirs, httpRoot, HTTP_BUNDLE_DEPTH, changedPath)) {
+                logger.info("Path is not inside any bundle: {}", changedPath);
+                return Optional.empty();
+            }
+        }
+
+        List<FsBundle> updated = new ArrayList<>();
+        List<FsBundle> deleted = new ArrayList<>();
+        collectChangedBundles(dipDirs, Type.DIP, FsDipBundle::new, updated, deleted);
+        collectChangedBundles(httpDirs, Type.HTTP, FsHttpBundle::new, updated, deleted);
+        return Optional.of(new ChangedBundles(updated, deleted));
+    }
+
+    /**
+     * Find all versions of the same vendor and ID as the DIP bundles, only their parent directories are listed.
+     * HTTP bundles have no versions and are ignored.
+     *
+     * @param bundles e.g. the updated and deleted bundles, they don't need to exist anymore
+     * @return the existing versions in the same order as {@link #findBundles()} produces
+     */
+    public List<FsBundle> findVersions(Collection<FsBundle> bundles) {
+        Set<Path> versionsDirs = new TreeSet<>(BundlesFinder::compareByNames);
+        for (FsBundle bundle : bundles) {
+            if (bundle.getType() == Type.DIP) {
+                versionsDirs.add(bundle.getPath().getParent());
+            }
+        }
+
+        List<FsBundle> versions = new ArrayList<>();
+        for (Path versionsDir : versionsDirs) {
+            if (Files.isDirectory(versionsDir)) {
+                logger.debug("Searching for bundle versions: {}", versionsDir);
+                versions.addAll(findBundles(versionsDir, 1, Type.DIP, FsDipBundle::new));
+            }
         }
+
+        return versions;
     }
 
-    private boolean isDirectoryOrException(Path path) {
-        if (Files.isDirectory(path)) {
+    /**
+     * @return false if the path is inside the tree, but not inside any bundle
+     */
+    private static boolean addBundleDir(Set<Path> bundleDirs, Path root, int bundleDepth, Path changedPath) {
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        Path absolutePath = changedPath.toAbsolutePath().normalize();
+
+        if (!absolutePath.startsWith(absoluteRoot)) {
             return true;
-        } else {
-            throw new RuntimeException("Path is not a directory: " + path);
+        }
+
+        if (absolutePath.getNameCount() - absoluteRoot.getNameCount() < bundleDepth) {
+            return false;
+        }
+
+        bundleDirs.add(root.resolve(absoluteRoot.relativize(absolutePath).subpath(0, bundleDepth)));
+        return true;
+    }
+
+    private static void collectChangedBundles(Set<Path> bundleDirs,
+                                              Type type,
+                                              BiFunction<Path, List<Path>, FsBundle> factory,
+                                              List<FsBundle> updated,
+                                              List<FsBundle> deleted) {
+        for (Path bundleDir : bundleDirs) {
+            if (Files.exists(bundleDir)) {
+                logger.debug("Searching for changed bundle: {}", bundleDir);
+                updated.addAll(findBundles(bundleDir, 0, type, factory));
+            } else {
+                logger.info("Bundle was deleted: {}", bundleDir);
+                deleted.add(factory.apply(bundleDir, Collections.emptyList()));
+            }
         }
     }
 
     /**
-     * List all files in a directory.
+     * Traverse the whole tree and collect all bundles in it. Fail fast on any non-directory entry above the bundles.
      *
-     * @param directory directory to search in
-     * @return sorted relative paths to the files
+     * @param root        root of the tree
+     * @param bundleDepth depth of bundle directories relative to the root
+     * @param type        type of the bundles
+     * @param factory     creator of bundle from its path and its files
+     * @return bundles sorted by their path
      */
-    private List<Path> listFiles(Path directory) {
-        try (Stream<Path> paths = Files.walk(directory)) {
-            return paths
-                    .filter(path -> Files.isRegularFile(path))
-                    .map(directory::relativize)
-                    .sorted()
-                    .collect(Collectors.toList());
+    private static List<FsBundle> findBundles(Path root,
+                                              int bundleDepth,
+                                              Type type,
+                                              BiFunction<Path, List<Path>, FsBundle> factory) {
+        BundlesVisitor visitor = new BundlesVisitor(bundleDepth, factory);
+
+        try (StageMetrics.Measurement ignored = StageMetrics.global().start(Stage.DISCOVERY, root.toString(),
+                type)) {
+            // Symbolic links are followed the same way as Files.isDirectory() and Files.isRegularFile() do.
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
         } catch (IOException e) {
-            throw new UncheckedIOException("Listing of directory failed: " + directory, e);
+            throw new UncheckedIOException("Listing of directory failed: " + root, e);
+        }
+
+        List<FsBundle> bundles = visitor.getBundles();
+        // Process the bundles always in the same order, less differences for git.
+        bundles.sort(Comparator.comparing(FsBundle::getPath, BundlesFinder::compareByNames));
+        return bundles;
+    }
+
+    /**
+     * Compare the paths level by level, the same order as if the directories were listed and sorted.
+     */
+    static int compareByNames(Path path1, Path path2) {
+        Iterator<Path> names1 = path1.iterator();
+        Iterator<Path> names2 = path2.iterator();
+
+        while (names1.hasNext() && names2.hasNext()) {
+            int result = names1.next().compareTo(names2.next());
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return Boolean.compare(names1.hasNext(), names2.hasNext());
+    }
+
+    private static class BundlesVisitor extends SimpleFileVisitor<Path> {
+        private final int bundleDepth;
+        private final BiFunction<Path, List<Path>, FsBundle> factory;
+        private final List<FsBundle> bundles = new ArrayList<>();
+
+        private int depth = -1;
+        private Path bundlePath;
+        // Sorted relative paths to the files, the same order as Path.compareTo() defines.
+        private SortedSet<Path> bundleFiles = new TreeSet<>();
+
+        BundlesVisitor(int bundleDepth, BiFunction<Path, List<Path>, FsBundle> factory) {
+            this.bundleDepth = bundleDepth;
+            this.factory = factory;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            depth++;
+
+            if (depth == bundleDepth) {
+                bundlePath = dir;
+                bundleFiles = new TreeSet<>();
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (depth < bundleDepth) {
+                throw new RuntimeException("Path is not a directory: " + file);
+            }
+
+            if (attrs.isRegularFile()) {
+                bundleFiles.add(bundlePath.relativize(file));
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+            throw exc;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+            if (exc != null) {
+                throw exc;
+            }
+
+            if (depth == bundleDepth) {
+                bundles.add(factory.apply(bundlePath, new ArrayList<>(bundleFiles)));
+            }
+
+            depth--;
+            return FileVisitResult.CONTINUE;
+        }
+
+        List<FsBundle> getBundles() {
+            return bundles;
         }
     }
 }
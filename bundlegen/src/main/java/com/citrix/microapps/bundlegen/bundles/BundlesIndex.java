@@ -0,0 +1,151 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.citrix.microapps.bundlegen.pojo.Metadata;
+import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Secondary indexes of `bundles.json` by vendor, category, tag and language, clients that need only a filtered view
+ * of the catalog fetch the small index first.
+ * <p>
+ * Every facet value maps to the count and the positions of the matching bundles in the `bundles` array, the positions
+ * are ascending. The facet values are sorted, the output depends only on the entries.
+ */
+class BundlesIndex {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter INDEX_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+
+    private final SortedMap<String, List<Integer>> vendors = new TreeMap<>();
+    private final SortedMap<String, List<Integer>> categories = new TreeMap<>();
+    private final SortedMap<String, List<Integer>> languages = new TreeMap<>();
+    private final SortedMap<String, SortedMap<String, List<Integer>>> tags = new TreeMap<>();
+    private int bundlesCount = 0;
+
+    static BundlesIndex of(List<OutMetadata> bundles) {
+        BundlesIndex index = new BundlesIndex();
+        bundles.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * @param entries content of the `bundles` array of `bundles.json`
+     */
+    static BundlesIndex of(JsonNode entries) {
+        BundlesIndex index = new BundlesIndex();
+        entries.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Add the next bundle in order of `bundles.json`.
+     */
+    void add(OutMetadata bundle) {
+        Metadata metadata = bundle.getMetadata();
+        int position = bundlesCount++;
+
+        addPosition(vendors, metadata.getVendor(), position);
+        metadata.getCategories().forEach(category -> addPosition(categories, category.name(), position));
+        metadata.getI18nLanguages().forEach(language -> addPosition(languages, language, position));
+        metadata.getTags().forEach(tag -> addPosition(
+                tags.computeIfAbsent(tag.getTag(), key -> new TreeMap<>()), tag.getValue(), position));
+    }
+
+    /**
+     * Add the next bundle in order of `bundles.json`, the entry is an already serialized {@link OutMetadata}.
+     */
+    void add(JsonNode entry) {
+        int position = bundlesCount++;
+
+        addPosition(vendors, entry.path("vendor").asText(), position);
+        entry.path("categories").forEach(category -> addPosition(categories, category.asText(), position));
+        entry.path("i18nLanguages").forEach(language -> addPosition(languages, language.asText(), position));
+        entry.path("tags").forEach(tag -> addPosition(
+                tags.computeIfAbsent(tag.path("tag").asText(), key -> new TreeMap<>()),
+                tag.path("value").asText(),
+                position));
+    }
+
+    /**
+     * A value listed multiple times in one bundle is counted only once.
+     */
+    private static void addPosition(SortedMap<String, List<Integer>> facet, String value, int position) {
+        List<Integer> positions = facet.computeIfAbsent(value, key -> new ArrayList<>());
+        if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+            positions.add(position);
+        }
+    }
+
+    int getBundlesCount() {
+        return bundlesCount;
+    }
+
+    SortedMap<String, List<Integer>> getVendors() {
+        return vendors;
+    }
+
+    SortedMap<String, List<Integer>> getCategories() {
+        return categories;
+    }
+
+    SortedMap<String, List<Integer>> getLanguages() {
+        return languages;
+    }
+
+    SortedMap<String, SortedMap<String, List<Integer>>> getTags() {
+        return tags;
+    }
+
+    ObjectNode toJson() {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("bundlesCount", bundlesCount);
+
+        ObjectNode facets = root.putObject("facets");
+        putFacet(facets.putObject("vendor"), vendors);
+        putFacet(facets.putObject("category"), categories);
+        putFacet(facets.putObject("language"), languages);
+
+        ObjectNode tagsNode = facets.putObject("tag");
+        tags.forEach((tag, values) -> putFacet(tagsNode.putObject(tag), values));
+        return root;
+    }
+
+    private static void putFacet(ObjectNode node, SortedMap<String, List<Integer>> facet) {
+        facet.forEach((value, positions) -> {
+            ObjectNode valueNode = node.putObject(value);
+            valueNode.put("count", positions.size());
+            ArrayNode bundles = valueNode.putArray("bundles");
+            positions.forEach(bundles::add);
+        });
+    }
+
+    /**
+     * Write the index and its gzip sibling, see {@link BundlesJsonWriter#newOutput(Path)}.
+     */
+    void write(Path indexJson) {
+        try {
+            INDEX_WRITER.writeValue(BundlesJsonWriter.newOutput(indexJson), toJson());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing bundles index failed: " + indexJson, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d bundles, %d vendors, %d categories, %d languages, %d tags", bundlesCount,
+                vendors.size(), categories.size(), languages.size(),
+                tags.values().stream().collect(Collectors.summingInt(SortedMap::size)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+import com.citrix.microapps.bundlegen.pojo.Type;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.DIP_DIR;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.HTTP_DIR;
+
+/**
+ * Merge of changed bundles to content of an existing `bundles.json`.
+ * <p>
+ * The entries are identified by their type, vendor, ID and version and kept in the same order as produced by
+ * {@link BundlesFinder}. The result is then the same as if all bundles were processed again.
+ */
+class BundlesJsonMerger {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String BUNDLES_FIELD = "bundles";
+
+    private BundlesJsonMerger() {
+    }
+
+    /**
+     * @param existing content of the existing file
+     * @param updated  entries of added and modified bundles
+     * @param deleted  bundles to remove
+     * @return merged content or empty if the existing content has unexpected structure
+     */
+    static Optional<ObjectNode> merge(JsonNode existing, List<OutMetadata> updated, List<FsBundle> deleted) {
+        JsonNode existingBundles = existing.path(BUNDLES_FIELD);
+        if (!existingBundles.isArray()) {
+            return Optional.empty();
+        }
+
+        // Paths of the bundles are unique, the sorted map keeps also the expected order.
+        SortedMap<Path, JsonNode> entries = new TreeMap<>(BundlesFinder::compareByNames);
+
+        if (!putAll(entries, existingBundles)) {
+            return Optional.empty();
+        }
+
+        for (FsBundle bundle : deleted) {
+            entries.remove(catalogPath(bundle));
+        }
+
+        if (!putAll(entries, MAPPER.valueToTree(updated))) {
+            return Optional.empty();
+        }
+
+        ObjectNode merged = MAPPER.createObjectNode();
+        merged.putArray(BUNDLES_FIELD).addAll(entries.values());
+        return Optional.of(merged);
+    }
+
+    /**
+     * @return false if any entry can't be identified
+     */
+    private static boolean putAll(SortedMap<Path, JsonNode> entries, JsonNode newEntries) {
+        for (JsonNode entry : newEntries) {
+            Optional<Path> path = catalogPath(entry);
+            if (!path.isPresent()) {
+                return false;
+            }
+
+            entries.put(path.get(), entry);
+        }
+
+        return true;
+    }
+
+    /**
+     * Path of the bundle relative to the bundles directory, the same as {@link #catalogPath(FsBundle)} of the bundle
+     * the entry was created from.
+     */
+    static Optional<Path> catalogPath(JsonNode entry) {
+        Optional<Type> type = Arrays.stream(Type.values())
+                .filter(value -> value.name().equals(entry.path("type").asText()))
+                .findFirst();
+
+        if (!type.isPresent() || !entry.path("vendor").isTextual() || !entry.path("id").isTextual()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(catalogPath(
+                type.get(),
+                entry.path("vendor").asText(),
+                entry.path("id").asText(),
+                Optional.ofNullable(entry.get("version")).map(JsonNode::asText)));
+    }
+
+    static Path catalogPath(FsBundle bundle) {
+        return catalogPath(bundle.getType(), bundle.getVendor(), bundle.getId(), bundle.getVersion());
+    }
+
+    /**
+     * Path of the bundle relative to the bundles directory.
+     */
+    private static Path catalogPath(Type type, String vendor, String id, Optional<String> version) {
+        Path path = Paths.get(type == Type.DIP ? DIP_DIR : HTTP_DIR, vendor, id);
+        return version.map(path::resolve).orElse(path);
+    }
+}
@@ -0,0 +1,320 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import com.citrix.microapps.bundlegen.pojo.OutDelta;
+import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.GZIP_EXTENSION;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Streaming writer of `bundles.json`, the output is the same on byte level as {@link ObjectMapper} with the default
+ * pretty printer would produce for {@link com.citrix.microapps.bundlegen.pojo.Bundles}.
+ * <p>
+ * A gzip sibling `bundles.json.gz` is compressed in the same pass, static hosts can serve it without compression on
+ * the fly. It is deterministic too, see {@link DeterministicGzipOutputStream}.
+ * <p>
+ * Serialized entries are cached between the writes and copied as raw bytes if the bundle didn't change. The cache
+ * key is the archive checksum together with the URLs and the deltas. Archive contains all source files of the bundle
+ * including `metadata.json`, the metadata can't change without a change of the checksum. Only entries of the last
+ * write are kept.
+ * <p>
+ * The entries can be also added one by one as they become available, see {@link #open(Path)}. The file is written
+ * to a temporary sibling and replaces the previous one only when finished, a failed write keeps the previous content.
+ * <p>
+ * The writer is not thread safe.
+ */
+public class BundlesJsonWriter {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+    private static final ObjectWriter ENTRY_WRITER = MAPPER.writerFor(OutMetadata.class);
+
+    private static final String BUNDLES_FIELD = "bundles";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * Nesting of an entry inside the root object, the array of bundles doesn't indent.
+     */
+    private static final int ENTRY_NESTING = 1;
+
+    private Map<String, SerializedString> fragments = new HashMap<>();
+
+    /**
+     * Write all entries to the file, they are serialized in the given order.
+     */
+    public void write(List<OutMetadata> bundles, Path bundlesJson) {
+        try (Entries entries = open(bundlesJson)) {
+            bundles.forEach(entries::add);
+            entries.finish();
+        }
+    }
+
+    /**
+     * Start writing of the file, add the entries in their order and finish it. Only the serialized entries are kept
+     * in memory, for the cache of the next write.
+     */
+    public Entries open(Path bundlesJson) {
+        return new Entries(bundlesJson);
+    }
+
+    /**
+     * Open the file and its gzip sibling for writing, the same data is written to both.
+     */
+    static OutputStream newOutput(Path bundlesJson) throws IOException {
+        Path gzipPath = gzipPath(bundlesJson);
+        OutputStream output = Files.newOutputStream(bundlesJson);
+
+        try {
+            return new TeeOutputStream(output, new DeterministicGzipOutputStream(Files.newOutputStream(gzipPath)));
+        } catch (IOException | RuntimeException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    static Path gzipPath(Path path) {
+        return path.resolveSibling(path.getFileName() + GZIP_EXTENSION);
+    }
+
+    /**
+     * Number of cached entries.
+     */
+    int getCachedCount() {
+        return fragments.size();
+    }
+
+    private static String cacheKey(OutMetadata bundle) {
+        return bundle.getMd5Checksum() + " " + bundle.getDownloadUrl() + bundle.getDeltas()
+                .stream()
+                .map(BundlesJsonWriter::cacheKey)
+                .collect(Collectors.joining());
+    }
+
+    private static String cacheKey(OutDelta delta) {
+        return " " + delta.getFromVersion() + " " + delta.getDownloadUrl() + " " + delta.getSize() + " " +
+                delta.getMd5Checksum();
+    }
+
+    /**
+     * The same key as for {@link OutMetadata}, computed from its JSON form.
+     */
+    private static String cacheKey(JsonNode bundle) {
+        return bundle.path("md5Checksum").asText() + " " + bundle.path("downloadUrl").asText() +
+                StreamSupport.stream(bundle.path("deltas").spliterator(), false)
+                        .map(delta -> " " + delta.path("fromVersion").asText() + " " +
+                                delta.path("downloadUrl").asText() + " " + delta.path("size").asText() + " " +
+                                delta.path("md5Checksum").asText())
+                        .collect(Collectors.joining());
+    }
+
+    /**
+     * Serialize one entry indented as an item of the array of bundles.
+     */
+    private static SerializedString serialize(OutMetadata bundle) {
+        return serialize(bundle.getDownloadUrl(), generator -> ENTRY_WRITER.writeValue(generator, bundle));
+    }
+
+    private static SerializedString serialize(JsonNode bundle) {
+        return serialize(bundle.path("downloadUrl").asText(), generator -> MAPPER.writeTree(generator, bundle));
+    }
+
+    private static SerializedString serialize(Object downloadUrl, EntrySerializer serializer) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (JsonGenerator generator = FACTORY.createGenerator(output)) {
+            generator.setPrettyPrinter(new NestedPrettyPrinter(ENTRY_NESTING));
+            serializer.serialize(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Serialization of bundle entry failed: " + downloadUrl, e);
+        }
+
+        SerializedString fragment = new SerializedString(new String(output.toByteArray(), StandardCharsets.UTF_8));
+        // Encode to UTF-8 only once, the result is cached inside
+        fragment.asUnquotedUTF8();
+        return fragment;
+    }
+
+    /**
+     * One write of the file in progress. Closing of an unfinished write deletes the temporary files.
+     */
+    public class Entries implements Closeable {
+        private final Path bundlesJson;
+        private final Path tempFile;
+        private final JsonGenerator generator;
+        private final Map<String, SerializedString> usedFragments = new HashMap<>();
+        private int count = 0;
+        private boolean closed = false;
+
+        private Entries(Path bundlesJson) {
+            this.bundlesJson = bundlesJson;
+            this.tempFile = bundlesJson.resolveSibling(bundlesJson.getFileName() + TEMP_EXTENSION);
+
+            try {
+                this.generator = FACTORY.createGenerator(newOutput(tempFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Writing bundles JSON failed: " + bundlesJson, e);
+            }
+
+            try {
+                generator.setPrettyPrinter(new DefaultPrettyPrinter());
+                generator.writeStartObject();
+                generator.writeFieldName(BUNDLES_FIELD);
+                generator.writeStartArray();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Writing bundles JSON failed: " + bundlesJson, e);
+            }
+        }
+
+        /**
+         * Write the next entry.
+         */
+        public void add(OutMetadata bundle) {
+            add(cacheKey(bundle), () -> serialize(bundle));
+        }
+
+        /**
+         * Write the next entry, already in its JSON form, e.g. merged with the previous content of the file. It
+         * shares the cache with the {@link OutMetadata} entries.
+         */
+        public void add(JsonNode bundle) {
+            add(cacheKey(bundle), () -> serialize(bundle));
+        }
+
+        private void add(String key, Supplier<SerializedString> serializer) {
+            SerializedString fragment = Optional.ofNullable(fragments.get(key))
+                    .orElseGet(serializer);
+
+            usedFragments.put(key, fragment);
+            count++;
+
+            try {
+                generator.writeRawValue(fragment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Writing bundles JSON failed: " + bundlesJson, e);
+            }
+        }
+
+        /**
+         * Number of the added entries.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Complete the file and replace the previous one, the added entries are cached for the next write.
+         */
+        public void finish() {
+            try {
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.close();
+
+                Files.move(gzipPath(tempFile), gzipPath(bundlesJson), ATOMIC_MOVE, REPLACE_EXISTING);
+                Files.move(tempFile, bundlesJson, ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Writing bundles JSON failed: " + bundlesJson, e);
+            }
+
+            closed = true;
+            fragments = usedFragments;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            try {
+                try {
+                    generator.close();
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                    Files.deleteIfExists(gzipPath(tempFile));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Deleting of unfinished bundles JSON failed: " + tempFile, e);
+            }
+        }
+    }
+
+    /**
+     * Write the same data to two streams.
+     */
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (OutputStream closeFirst = first; OutputStream closeSecond = second) {
+                flush();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntrySerializer {
+        void serialize(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Default pretty printer that starts at a deeper level.
+     */
+    private static class NestedPrettyPrinter extends DefaultPrettyPrinter {
+        private static final long serialVersionUID = 1L;
+
+        NestedPrettyPrinter(int nesting) {
+            _nesting = nesting;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.citrix.microapps.bundlegen.bundles;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -15,27 +15,35 @@ import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
 import com.citrix.microapps.bundlegen.pojo.DipMetadata;
 import com.citrix.microapps.bundlegen.pojo.HttpMetadata;
 import com.citrix.microapps.bundlegen.pojo.Metadata;
-import com.citrix.microapps.bundlegen.pojo.ModelTranslation;
 import com.citrix.microapps.bundlegen.pojo.TemplateFile;
 import com.citrix.microapps.bundlegen.pojo.Type;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLE_ALLOWED_TRANSLATIONS;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.METADATA_FILE;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.TEMPLATE_FILE;
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.TRANSLATION_EXTENSION;
 import static java.util.stream.Collectors.toList;
 
 /**
  * Loader and validator of bundles.
+ * <p>
+ * The files are read through {@link BundleContents} of the loaded {@link Bundle}, archiving reuses the large ones.
  */
 public class BundlesLoader {
     private static final Logger logger = LoggerFactory.getLogger(BundlesLoader.class);
 
-    private static final ObjectReader BUNDLE_DATA_READER = new ObjectMapper()
-            .reader();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Typed readers resolve the root deserializer once, `reader().forType()` looked it up for every bundle
+    private static final ObjectReader DIP_METADATA_READER = MAPPER.readerFor(DipMetadata.class);
+    private static final ObjectReader HTTP_METADATA_READER = MAPPER.readerFor(HttpMetadata.class);
 
     // e.g. `id: "com.sapho.services.salesforce.SalesforceService"`
     private static final Pattern ID_PATTERN = Pattern.compile("[a-zA-Z0-9]+(?:\\.[a-zA-Z0-9]+)*");
@@ -46,36 +54,69 @@ public class BundlesLoader {
 
     // e.g. `version: "2.5.0"`
     // e.g. `masVersion: "0.8.0"`
-    private static final Pattern VERSION_PATTERN = Pattern.compile("[0-9]+(?:\\.[0-9]+)*(-SNAPSHOT)?");
+    static final Pattern VERSION_PATTERN = Pattern.compile("[0-9]+(?:\\.[0-9]+)*(-SNAPSHOT)?");
+
+    private static final Path METADATA_PATH = Paths.get(METADATA_FILE);
+    private static final Path TEMPLATE_PATH = Paths.get(TEMPLATE_FILE);
+
+    private final boolean mapLarge;
+
+    public BundlesLoader() {
+        this(true);
+    }
+
+    /**
+     * @param mapLarge memory-map the large files, turn it off if the files can change while they are processed, e.g.
+     *                 in watch mode
+     */
+    public BundlesLoader(boolean mapLarge) {
+        this.mapLarge = mapLarge;
+    }
 
     public Bundle loadBundle(FsBundle bundle) {
-        logger.info("Loading bundle: {}", bundle);
+        logger.debug("Loading bundle: {}", bundle);
+        BundleContents contents = new BundleContents(bundle, mapLarge);
         List<ValidationException> issues = new ArrayList<>();
 
         issues.addAll(checkMandatoryFiles(bundle.getFiles()));
         issues.addAll(checkUnexpectedFiles(bundle.getFiles()));
-        issues.addAll(checkLocalizations(bundle));
+        issues.addAll(checkLocalizations(contents));
 
-        Optional<Metadata> metadata = loadAndValidateMetadata(issues, bundle);
-        return new Bundle(bundle, metadata, issues);
+        Optional<Metadata> metadata = loadAndValidateMetadata(issues, contents);
+        return new Bundle(contents, metadata, issues);
     }
 
-    private Optional<Metadata> loadAndValidateMetadata(List<ValidationException> issues, FsBundle bundle) {
+    private Optional<Metadata> loadAndValidateMetadata(List<ValidationException> issues, BundleContents contents) {
+        FsBundle bundle = contents.getBundle();
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.METADATA_PARSE,
+                bundle.toString(), bundle.getType())) {
+            int knownIssues = issues.size();
+            Optional<Metadata> metadata = readAndValidateMetadata(issues, contents, measurement);
+            measurement.addIssues(issues.size() - knownIssues);
+            return metadata;
+        }
+    }
+
+    private Optional<Metadata> readAndValidateMetadata(List<ValidationException> issues,
+                                                       BundleContents contents,
+                                                       StageMetrics.Measurement measurement) {
+        FsBundle bundle = contents.getBundle();
         Path metadataPath = bundle.getMetadataPath();
 
         try {
             switch (bundle.getType()) {
                 case DIP:
-                    DipMetadata dipMetadata = BUNDLE_DATA_READER
-                            .forType(DipMetadata.class)
-                            .readValue(metadataPath.toFile());
+                    FileContent dipContent = contents.get(METADATA_PATH);
+                    DipMetadata dipMetadata = dipContent.readValue(DIP_METADATA_READER);
+                    measurement.addBytesRead(dipContent.size());
                     issues.addAll(validateDipMetadata(bundle, dipMetadata));
                     return Optional.of(dipMetadata);
 
                 case HTTP:
-                    HttpMetadata httpMetadata = BUNDLE_DATA_READER
-                            .forType(HttpMetadata.class)
-                            .readValue(metadataPath.toFile());
+                    FileContent httpContent = contents.get(METADATA_PATH);
+                    HttpMetadata httpMetadata = httpContent.readValue(HTTP_METADATA_READER);
+                    measurement.addBytesRead(httpContent.size());
                     issues.addAll(validateHttpMetadata(bundle, httpMetadata));
                     return Optional.of(httpMetadata);
 
@@ -89,15 +130,28 @@ public class BundlesLoader {
     }
 
     private static Optional<TemplateFile> loadAndValidateTemplateFile(List<ValidationException> issues,
-                                                                      FsBundle bundle) {
-        Path templateFilePath = bundle.getTemplatePath();
+                                                                      BundleContents contents) {
+        FsBundle bundle = contents.getBundle();
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.TEMPLATE_PARSE,
+                bundle.toString(), bundle.getType())) {
+            int knownIssues = issues.size();
+            Optional<TemplateFile> templateFile = readAndValidateTemplateFile(issues, contents, measurement);
+            measurement.addIssues(issues.size() - knownIssues);
+            return templateFile;
+        }
+    }
+
+    private static Optional<TemplateFile> readAndValidateTemplateFile(List<ValidationException> issues,
+                                                                      BundleContents contents,
+                                                                      StageMetrics.Measurement measurement) {
+        Path templateFilePath = contents.getBundle().getTemplatePath();
 
         try {
-            File file = templateFilePath.toFile();
-            TemplateFile templateFile = BUNDLE_DATA_READER
-                    .forType(TemplateFile.class)
-                    .readValue(file);
-            isChecksumEmpty(file.getName(), templateFile).ifPresent(issues::add);
+            FileContent templateContent = contents.get(TEMPLATE_PATH);
+            TemplateFile templateFile = TemplateFileReader.read(templateContent);
+            measurement.addBytesRead(templateContent.size());
+            isChecksumEmpty(templateFilePath.getFileName().toString(), templateFile).ifPresent(issues::add);
             return Optional.of(templateFile);
         } catch (IOException e) {
             issues.add(new ValidationException("Loading of template file failed: " + templateFilePath, e));
@@ -105,13 +159,17 @@ public class BundlesLoader {
         }
     }
 
-    private static Optional<ModelTranslation> loadTranslationFile(List<ValidationException> issues,
-                                                                  Path translationPath) {
+    private static Optional<String> loadTranslationChecksum(List<ValidationException> issues,
+                                                            BundleContents contents,
+                                                            Path path,
+                                                            StageMetrics.Measurement measurement) {
+        Path translationPath = contents.getBundle().getPath().resolve(path);
+
         try {
-            ModelTranslation modelTranslation = BUNDLE_DATA_READER
-                    .forType(ModelTranslation.class)
-                    .readValue(translationPath.toFile());
-            return Optional.of(modelTranslation);
+            FileContent content = contents.get(path);
+            Optional<String> checksum = TranslationValidator.checksum(content);
+            measurement.addBytesRead(content.size());
+            return checksum;
         } catch (IOException e) {
             issues.add(new ValidationException("Loading of translation file failed: " + translationPath, e));
             return Optional.empty();
@@ -136,11 +194,15 @@ public class BundlesLoader {
     }
 
     static List<ValidationException> checkLocalizations(FsBundle bundle) {
+        return checkLocalizations(new BundleContents(bundle));
+    }
+
+    private static List<ValidationException> checkLocalizations(BundleContents contents) {
         List<ValidationException> issues = new ArrayList<>();
-        List<ValidationException> checksumIssues = loadAndValidateTemplateFile(issues, bundle).map(template ->
-                bundle.getFiles().stream()
+        List<ValidationException> checksumIssues = loadAndValidateTemplateFile(issues, contents).map(template ->
+                contents.getBundle().getFiles().stream()
                         .filter(path -> BUNDLE_ALLOWED_TRANSLATIONS.contains(path))
-                        .map(path -> toValidationException(bundle, template, issues, path))
+                        .map(path -> toValidationException(contents, template, issues, path))
                         .filter(Optional::isPresent)
                         .map(Optional::get)
                         .collect(toList())
@@ -150,20 +212,22 @@ public class BundlesLoader {
         return issues;
     }
 
-    private static Optional<ValidationException> toValidationException(FsBundle bundle,
+    private static Optional<ValidationException> toValidationException(BundleContents contents,
                                                                        TemplateFile template,
                                                                        List<ValidationException> issues,
                                                                        Path path) {
-        return loadTranslationFile(issues, bundle.getPath().resolve(path))
-                .filter(modelTranslation -> isTranslationValid(template, modelTranslation))
-                .map(modelTranslation ->
-                        new ValidationException(String.format("Translation checksum mismatch %s", path.getFileName())));
-    }
-
-    private static boolean isTranslationValid(TemplateFile template, ModelTranslation modelTranslation) {
-        return new TranslationValidator(modelTranslation).checksum()
-                .map(checksum -> !Objects.equals(checksum, template.getTranslationChecksum()))
-                .orElse(false);
+        FsBundle bundle = contents.getBundle();
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.TRANSLATION_CHECKSUM,
+                bundle.toString(), bundle.getType())) {
+            int knownIssues = issues.size();
+            Optional<ValidationException> mismatch = loadTranslationChecksum(issues, contents, path, measurement)
+                    .filter(checksum -> !Objects.equals(checksum, template.getTranslationChecksum()))
+                    .map(checksum -> new ValidationException(
+                            String.format("Translation checksum mismatch %s", path.getFileName())));
+            measurement.addIssues(issues.size() - knownIssues + (mismatch.isPresent() ? 1 : 0));
+            return mismatch;
+        }
     }
 
     private static List<ValidationException> validateCommonMetadata(FsBundle bundle, Metadata metadata) {
@@ -248,8 +312,6 @@ public class BundlesLoader {
     }
 
     static Optional<ValidationException> validateLanguages(FsBundle bundle, List<String> languages) {
-        Path transDir = bundle.getPath().resolve(FsConstants.TRANSLATIONS_DIR);
-
         List<String> languagesMetadata = languages
                 .stream()
                 .sorted()
@@ -258,7 +320,6 @@ public class BundlesLoader {
         List<String> languagesFs = bundle.getFiles()
                 .stream()
                 .filter(path -> path.startsWith(FsConstants.TRANSLATIONS_DIR))
-                .map(transDir::relativize)
                 .map(path -> path.getFileName().toString())
                 .filter(fileName -> fileName.endsWith(TRANSLATION_EXTENSION))
                 .map(fileName -> fileName.replace(TRANSLATION_EXTENSION, ""))
@@ -3,105 +3,437 @@ package com.citrix.microapps.bundlegen.bundles;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.citrix.microapps.bundlegen.pojo.Bundles;
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+import com.citrix.microapps.bundlegen.pojo.OutDelta;
 import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+import com.citrix.microapps.bundlegen.pojo.Type;
+import com.citrix.microapps.bundlegen.search.SearchDocument;
+import com.citrix.microapps.bundlegen.search.SearchIndex;
+import com.citrix.microapps.bundlegen.search.SearchIndexBuilder;
+import com.citrix.microapps.bundlegen.search.SearchTerms;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLES_INDEX_JSON;
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLES_JSON;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.SEARCH_INDEX_JSON;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 
 /**
  * Reader of input bundles and writer of the output ones.
+ * <p>
+ * Bundles are loaded and archived concurrently by a pool of worker threads, but all results are always collected in
+ * the order produced by {@link BundlesFinder}. The output and the reported issues are then the same as if the bundles
+ * were processed sequentially.
+ * <p>
+ * Every DIP bundle with an older version of the same vendor and ID gets also a binary delta from the archive of the
+ * directly previous version, see {@link BundleVersions}.
+ * <p>
+ * Facet indexes and the full-text index of the written entries are stored next to `bundles.json`, see {@link
+ * BundlesIndex} and {@link SearchIndexBuilder}.
+ * <p>
+ * Duration and I/O of the stages are recorded to {@link StageMetrics#global()}.
  */
 public class BundlesProcessor {
     private static final Logger logger = LoggerFactory.getLogger(BundlesProcessor.class);
 
-    private static final ObjectWriter METADATA_WRITER = new ObjectMapper()
-            .writerWithDefaultPrettyPrinter();
+    private static final ObjectReader METADATA_READER = new ObjectMapper()
+            .readerFor(JsonNode.class);
 
     private final BundlesFinder finder;
-    private final BundlesLoader loader;
+    private final BundlesValidator validator;
     private final BundlesArchiver archiver;
+    private final ArchiveCache cache;
+    private final BundlesJsonWriter bundlesJsonWriter = new BundlesJsonWriter();
 
     private final Path distDir;
     private final URI bundlesRepository;
+    private final int threads;
 
     public BundlesProcessor(BundlesFinder finder,
                             BundlesLoader loader,
                             BundlesArchiver archiver,
+                            ArchiveCache cache,
                             Path distDir,
-                            URI bundlesRepository) {
+                            URI bundlesRepository,
+                            int threads) {
         this.finder = finder;
-        this.loader = loader;
+        this.validator = new BundlesValidator(finder, loader);
         this.archiver = archiver;
+        this.cache = cache;
         this.distDir = distDir;
         this.bundlesRepository = bundlesRepository;
+        this.threads = threads;
     }
 
     public boolean processAllBundles() {
-        List<Bundle> allBundles = finder
-                .findBundles()
-                .map(loader::loadBundle)
-                .collect(Collectors.toList());
+        archiver.resetStats();
+        ExecutorService executor = Workers.newExecutor(threads);
 
-        List<BundleIssue> issues = allBundles.stream()
-                .flatMap(bundle -> bundle.getIssues().stream())
-                .collect(Collectors.toList());
+        try {
+            return processAllBundles(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        if (!issues.isEmpty()) {
-            logger.error("Bundles validation failed: {} issues detected", issues.size());
-            issues.forEach(this::reportIssue);
+    private boolean processAllBundles(ExecutorService executor) {
+        Optional<List<Bundle>> allBundles = validator.loadValidBundles(executor, threads);
+        if (!allBundles.isPresent()) {
             return false;
         }
 
-        logger.info("Bundles validation successful, no issue detected");
+        List<OutMetadata> archivedBundles = Workers.mapInOrder(executor, allBundles.get(), this::archiveOneBundle);
+        Map<Path, FsBundle> previousVersions = BundleVersions.findPreviousVersions(fsBundles(allBundles.get()));
+        BundlesIndex index = writeBundlesJson(executor, allBundles.get(), archivedBundles, previousVersions);
+
+        writeIndex(index);
+        writeSearchIndex(Workers.mapInOrder(executor, allBundles.get(), bundle -> SearchDocument.of(bundle).toTerms()));
+        cache.prune();
+        logArchiverStats();
+        return true;
+    }
+
+    /**
+     * Process only the changed bundles and merge them to the existing `bundles.json`, the search index is updated
+     * with terms of the changed bundles. All bundles are processed if any of the files doesn't exist or its content
+     * can't be merged.
+     */
+    public boolean processChangedBundles(ChangedBundles changed) {
+        archiver.resetStats();
+        ExecutorService executor = Workers.newExecutor(threads);
+
+        try {
+            return processChangedBundles(executor, changed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean processChangedBundles(ExecutorService executor, ChangedBundles changed) {
+        Path bundlesJson = distDir.resolve(BUNDLES_JSON);
+        Optional<JsonNode> existing = readBundlesJson(bundlesJson)
+                .filter(content -> BundlesJsonMerger.merge(content, emptyList(), emptyList()).isPresent());
+
+        if (!existing.isPresent()) {
+            logger.info("No valid output metadata to merge to, processing all bundles: {}", bundlesJson);
+            return processAllBundles(executor);
+        }
+
+        Optional<List<SearchTerms>> existingTerms = readSearchTerms(existing.get().path("bundles"));
+        if (!existingTerms.isPresent()) {
+            logger.info("No valid search index to update, processing all bundles: {}",
+                    distDir.resolve(SEARCH_INDEX_JSON));
+            return processAllBundles(executor);
+        }
 
-        List<OutMetadata> archivedBundles = allBundles.stream()
-                .map(this::archiveOneBundle)
+        List<FsBundle> versions = finder.findVersions(Stream.concat(changed.getUpdated().stream(),
+                changed.getDeleted().stream()).collect(Collectors.toList()));
+        Map<Path, FsBundle> previousVersions = BundleVersions.findPreviousVersions(versions);
+        List<FsBundle> candidates = Stream.concat(versions.stream(),
+                changed.getUpdated().stream().filter(bundle -> bundle.getType() == Type.HTTP))
                 .collect(Collectors.toList());
+        List<FsBundle> affected = findAffectedBundles(changed, candidates, previousVersions);
+
+        logger.info("Processing changed bundles: {} updated, {} deleted, {} with changed delta",
+                changed.getUpdated().size(), changed.getDeleted().size(),
+                affected.size() - changed.getUpdated().size());
+        Optional<List<Bundle>> updatedBundles = validator.loadValidBundles(executor, affected, threads);
+        if (!updatedBundles.isPresent()) {
+            return false;
+        }
+
+        List<OutMetadata> archivedBundles = Workers.mapInOrder(executor, updatedBundles.get(),
+                this::archiveOneBundle);
+        archivedBundles = addDeltas(executor, updatedBundles.get(), archivedBundles, previousVersions);
+        logArchivedBundles(archivedBundles.size(), archivedBundles.stream()
+                .flatMap(bundle -> bundle.getDeltas().stream())
+                .collect(Collectors.toList()));
+
+        for (FsBundle bundle : changed.getDeleted()) {
+            logger.info("Deleting bundle archive: {}", bundle);
+            archiver.deleteArchive(bundle);
+            archiver.deleteDelta(bundle);
+        }
 
-        writeBundlesJson(archivedBundles, distDir.resolve(BUNDLES_JSON));
+        ObjectNode merged = BundlesJsonMerger.merge(existing.get(), archivedBundles, changed.getDeleted())
+                .orElseThrow(() -> new IllegalStateException("Merging of output metadata failed: " + bundlesJson));
+
+        logger.info("Storing output metadata: {} bundles, {}", merged.path("bundles").size(), bundlesJson);
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.BUNDLES_JSON_WRITE);
+             BundlesJsonWriter.Entries entries = bundlesJsonWriter.open(bundlesJson)) {
+            merged.path("bundles").forEach(entries::add);
+            entries.finish();
+            measurement.addBytesWritten(writtenSize(bundlesJson));
+        }
+
+        writeIndex(BundlesIndex.of(merged.path("bundles")));
+        writeSearchIndex(searchTerms(executor, existing.get().path("bundles"), existingTerms.get(),
+                merged.path("bundles"), changed, updatedBundles.get()));
+        // The cache is not pruned, only few of its entries were used.
+        logArchiverStats();
         return true;
     }
 
     /**
-     * The validations are collected in {@link BundlesLoader}, this is only reporting.
+     * The updated bundles and the bundles whose previous version was updated, added or deleted, in the order
+     * produced by {@link BundlesFinder}. Their deltas have to be computed again.
+     *
+     * @param candidates the updated HTTP bundles and all versions of the updated and deleted DIP bundles, no other
+     *                   bundle can be affected
+     */
+    private static List<FsBundle> findAffectedBundles(ChangedBundles changed,
+                                                      List<FsBundle> candidates,
+                                                      Map<Path, FsBundle> previousVersions) {
+        Set<Path> updated = changed.getUpdated().stream().map(FsBundle::getPath).collect(Collectors.toSet());
+        Set<Path> deleted = changed.getDeleted().stream().map(FsBundle::getPath).collect(Collectors.toSet());
+        Map<Path, FsBundle> formerPreviousVersions = BundleVersions.findPreviousVersions(
+                Stream.concat(candidates.stream(), changed.getDeleted().stream()).collect(Collectors.toList()));
+
+        return candidates.stream()
+                .filter(bundle -> updated.contains(bundle.getPath())
+                        || isIn(previousVersions.get(bundle.getPath()), updated)
+                        || isIn(formerPreviousVersions.get(bundle.getPath()), deleted))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isIn(FsBundle bundle, Set<Path> paths) {
+        return Optional.ofNullable(bundle).map(FsBundle::getPath).filter(paths::contains).isPresent();
+    }
+
+    private static List<FsBundle> fsBundles(List<Bundle> bundles) {
+        return bundles.stream().map(Bundle::getFs).collect(Collectors.toList());
+    }
+
+    /**
+     * Write deltas of the already archived bundles and add them to their output metadata. Stale deltas of bundles
+     * without previous version are deleted.
      */
-    private void reportIssue(BundleIssue issue) {
-        logger.error("\tBundle {}: {}", issue.getBundle(), issue.getDetails().getMessage());
+    private List<OutMetadata> addDeltas(ExecutorService executor,
+                                        List<Bundle> bundles,
+                                        List<OutMetadata> archivedBundles,
+                                        Map<Path, FsBundle> previousVersions) {
+        List<List<OutDelta>> deltas = Workers.mapInOrder(executor, fsBundles(bundles),
+                bundle -> writeDelta(bundle, Optional.ofNullable(previousVersions.get(bundle.getPath()))));
 
-        Throwable cause = issue.getDetails().getCause();
-        while (cause != null) {
-            logger.error("\t\tCause: {}", cause.toString()); // No stack trace for now
-            cause = cause.getCause();
+        List<OutMetadata> result = new ArrayList<>(archivedBundles.size());
+        for (int i = 0; i < archivedBundles.size(); i++) {
+            result.add(archivedBundles.get(i).withDeltas(deltas.get(i)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Write deltas of the already archived bundles and add the complete entries to `bundles.json` in order as soon as
+     * their deltas are ready, no list of them is collected.
+     *
+     * @return facet indexes of the written entries
+     */
+    private BundlesIndex writeBundlesJson(ExecutorService executor,
+                                          List<Bundle> bundles,
+                                          List<OutMetadata> archivedBundles,
+                                          Map<Path, FsBundle> previousVersions) {
+        Path bundlesJson = distDir.resolve(BUNDLES_JSON);
+        logger.info("Storing output metadata: {} bundles, {}", archivedBundles.size(), bundlesJson);
+        BundlesIndex index = new BundlesIndex();
+        List<OutDelta> allDeltas = new ArrayList<>();
+        Iterator<OutMetadata> archived = archivedBundles.iterator();
+
+        // Wall time of the stage includes waiting for the deltas
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.BUNDLES_JSON_WRITE);
+             BundlesJsonWriter.Entries entries = bundlesJsonWriter.open(bundlesJson)) {
+            Workers.forEachInOrder(executor, fsBundles(bundles),
+                    bundle -> writeDelta(bundle, Optional.ofNullable(previousVersions.get(bundle.getPath()))),
+                    deltas -> {
+                        OutMetadata entry = archived.next().withDeltas(deltas);
+                        entries.add(entry);
+                        index.add(entry);
+                        allDeltas.addAll(deltas);
+                    });
+
+            entries.finish();
+            measurement.addBytesWritten(writtenSize(bundlesJson));
+        }
+
+        logArchivedBundles(archivedBundles.size(), allDeltas);
+        return index;
+    }
+
+    private List<OutDelta> writeDelta(FsBundle bundle, Optional<FsBundle> previous) {
+        if (!previous.isPresent()) {
+            archiver.deleteDelta(bundle);
+            return emptyList();
+        }
+
+        Optional<BundleDelta> delta = archiver.writeDelta(bundle, previous.get());
+        if (!delta.isPresent()) {
+            logger.debug("Bundle delta skipped, previous archive missing or delta not smaller: {}", bundle);
+            return emptyList();
+        }
+
+        logger.debug("Bundle delta created: {}, from version {}, {} B, md5 {}", delta.get().getPath(),
+                delta.get().getFromVersion(), delta.get().getSize(), delta.get().getMd5Hex());
+        return singletonList(new OutDelta(delta.get().getFromVersion(), bundle.getDeltaUrl(bundlesRepository),
+                delta.get().getSize(), delta.get().getMd5Hex()));
+    }
+
+    /**
+     * One line for all bundles, the per-bundle messages are only DEBUG.
+     */
+    private static void logArchivedBundles(int archives, List<OutDelta> deltas) {
+        long deltasSize = deltas.stream().mapToLong(OutDelta::getSize).sum();
+
+        logger.info("Bundle archives stored: {} archives, {} deltas, {} B of deltas", archives, deltas.size(),
+                deltasSize);
+    }
+
+    private void logArchiverStats() {
+        logger.info("Archives built with compression profile {}: {}", archiver.getProfile().getName(),
+                archiver.getStats());
+    }
+
+    private static Optional<JsonNode> readBundlesJson(Path bundlesJson) {
+        if (!Files.isRegularFile(bundlesJson)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(METADATA_READER.readValue(bundlesJson.toFile()));
+        } catch (IOException e) {
+            logger.warn("Reading of output metadata failed: {}", bundlesJson, e);
+            return Optional.empty();
         }
     }
 
     public OutMetadata archiveOneBundle(Bundle bundle) {
-        logger.info("Building bundle archive: {}", bundle);
-        byte[] content = archiver.buildArchive(bundle.getFs());
-        Path archivePath = archiver.storeArchive(bundle.getFs(), content);
-        String md5Hex = BundlesArchiver.md5Hex(content);
+        logger.debug("Building bundle archive: {}", bundle);
+        BundleArchive archive = cache.getOrBuild(bundle, archiver);
         URI downloadUrl = bundle.getFs().getDownloadUrl(bundlesRepository);
-        logger.info("Bundle archive created: {}, {} B, md5 {}", archivePath, content.length, md5Hex);
+        logger.debug("Bundle archive created: {}, {} B, md5 {}", archive.getPath(), archive.getSize(),
+                archive.getMd5Hex());
 
-        return new OutMetadata(bundle.getMetadata(), downloadUrl, md5Hex);
+        return new OutMetadata(bundle.getMetadata(), downloadUrl, archive.getMd5Hex());
     }
 
     public void writeBundlesJson(List<OutMetadata> allBundles, Path bundlesJson) {
+        logger.info("Storing output metadata: {} bundles, {}", allBundles.size(), bundlesJson);
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.BUNDLES_JSON_WRITE)) {
+            bundlesJsonWriter.write(allBundles, bundlesJson);
+            measurement.addBytesWritten(writtenSize(bundlesJson));
+        }
+    }
+
+    private void writeIndex(BundlesIndex index) {
+        Path indexJson = distDir.resolve(BUNDLES_INDEX_JSON);
+        logger.info("Storing bundles index: {}, {}", index, indexJson);
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.INDEX_WRITE)) {
+            index.write(indexJson);
+            measurement.addBytesWritten(writtenSize(indexJson));
+        }
+    }
+
+    /**
+     * Terms of the bundles of the existing search index, empty if it doesn't match the existing `bundles.json`.
+     */
+    private Optional<List<SearchTerms>> readSearchTerms(JsonNode existingEntries) {
+        Path indexJson = distDir.resolve(SEARCH_INDEX_JSON);
+        if (!Files.isRegularFile(indexJson)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(SearchIndex.read(indexJson))
+                    .filter(index -> index.getBundlesCount() == existingEntries.size())
+                    .map(SearchIndex::getBundleTerms);
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            logger.warn("Reading of search index failed: {}", indexJson, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Terms of the merged entries, translations are read only for the updated bundles, the other ones keep their
+     * terms from the existing index.
+     */
+    private static List<SearchTerms> searchTerms(ExecutorService executor,
+                                                 JsonNode existingEntries,
+                                                 List<SearchTerms> existingTerms,
+                                                 JsonNode mergedEntries,
+                                                 ChangedBundles changed,
+                                                 List<Bundle> updatedBundles) {
+        Map<Path, SearchTerms> terms = new HashMap<>();
+        for (int i = 0; i < existingEntries.size(); i++) {
+            Path path = BundlesJsonMerger.catalogPath(existingEntries.get(i))
+                    .orElseThrow(() -> new IllegalStateException("Merged entry without catalog path"));
+            terms.put(path, existingTerms.get(i));
+        }
+
+        Set<Path> updated = changed.getUpdated().stream().map(FsBundle::getPath).collect(Collectors.toSet());
+        List<Bundle> reread = updatedBundles.stream()
+                .filter(bundle -> updated.contains(bundle.getFs().getPath()))
+                .collect(Collectors.toList());
+        List<SearchTerms> rereadTerms = Workers.mapInOrder(executor, reread,
+                bundle -> SearchDocument.of(bundle).toTerms());
+        for (int i = 0; i < reread.size(); i++) {
+            terms.put(BundlesJsonMerger.catalogPath(reread.get(i).getFs()), rereadTerms.get(i));
+        }
+
+        List<SearchTerms> result = new ArrayList<>(mergedEntries.size());
+        for (JsonNode entry : mergedEntries) {
+            result.add(BundlesJsonMerger.catalogPath(entry)
+                    .map(terms::get)
+                    .orElseThrow(() -> new IllegalStateException("No search terms of merged entry: " + entry)));
+        }
+
+        return result;
+    }
+
+    private void writeSearchIndex(List<SearchTerms> bundleTerms) {
+        Path indexJson = distDir.resolve(SEARCH_INDEX_JSON);
+
+        try (StageMetrics.Measurement measurement = StageMetrics.global().start(Stage.INDEX_WRITE)) {
+            SearchIndexBuilder builder = new SearchIndexBuilder();
+            bundleTerms.forEach(builder::add);
+            logger.info("Storing search index: {}, {}", builder, indexJson);
+
+            builder.write(BundlesJsonWriter.newOutput(indexJson));
+            measurement.addBytesWritten(writtenSize(indexJson));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing search index failed: " + indexJson, e);
+        }
+    }
+
+    /**
+     * Size of the written file and of its gzip sibling.
+     */
+    private static long writtenSize(Path path) {
         try {
-            logger.info("Storing output metadata: {} bundles, {}", allBundles.size(), bundlesJson);
-            Bundles bundles = new Bundles(allBundles);
-            METADATA_WRITER.writeValue(bundlesJson.toFile(), bundles);
+            return Files.size(path) + Files.size(BundlesJsonWriter.gzipPath(path));
         } catch (IOException e) {
-            throw new UncheckedIOException("Writing bundles JSON failed", e);
+            throw new UncheckedIOException("Reading of file size failed: " + path, e);
         }
     }
 }
@@ -0,0 +1,85 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finder and loader of all input bundles, reporter of their issues.
+ * <p>
+ * Nothing is written, it is enough to validate a pull request.
+ */
+public class BundlesValidator {
+    private static final Logger logger = LoggerFactory.getLogger(BundlesValidator.class);
+
+    private final BundlesFinder finder;
+    private final BundlesLoader loader;
+
+    public BundlesValidator(BundlesFinder finder, BundlesLoader loader) {
+        this.finder = finder;
+        this.loader = loader;
+    }
+
+    public boolean validateAllBundles(int threads) {
+        ExecutorService executor = Workers.newExecutor(threads);
+
+        try {
+            return loadValidBundles(executor, threads).isPresent();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Load all bundles and report all their issues.
+     *
+     * @return all bundles in the order produced by {@link BundlesFinder} or empty if any issue was detected
+     */
+    Optional<List<Bundle>> loadValidBundles(ExecutorService executor, int threads) {
+        List<FsBundle> fsBundles = finder
+                .findBundles()
+                .collect(Collectors.toList());
+
+        return loadValidBundles(executor, fsBundles, threads);
+    }
+
+    /**
+     * Load the bundles and report all their issues.
+     *
+     * @return the bundles in the same order or empty if any issue was detected
+     */
+    Optional<List<Bundle>> loadValidBundles(ExecutorService executor, List<FsBundle> fsBundles, int threads) {
+        logger.info("Processing {} bundles using {} threads", fsBundles.size(), threads);
+        List<Bundle> allBundles = Workers.mapInOrder(executor, fsBundles, loader::loadBundle);
+
+        List<BundleIssue> issues = allBundles.stream()
+                .flatMap(bundle -> bundle.getIssues().stream())
+                .collect(Collectors.toList());
+
+        if (!issues.isEmpty()) {
+            logger.error("Bundles validation failed: {} issues detected", issues.size());
+            issues.forEach(this::reportIssue);
+            return Optional.empty();
+        }
+
+        logger.info("Bundles validation successful, no issue detected");
+        return Optional.of(allBundles);
+    }
+
+    /**
+     * The validations are collected in {@link BundlesLoader}, this is only reporting.
+     */
+    private void reportIssue(BundleIssue issue) {
+        logger.error("\tBundle {}: {}", issue.getBundle(), issue.getDetails().getMessage());
+
+        Throwable cause = issue.getDetails().getCause();
+        while (cause != null) {
+            logger.error("\t\tCause: {}", cause.toString()); // No stack trace for now
+            cause = cause.getCause();
+        }
+    }
+}
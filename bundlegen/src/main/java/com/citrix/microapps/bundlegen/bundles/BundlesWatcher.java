@@ -0,0 +1,190 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watcher of the bundles directory that rebuilds only the bundles touched by filesystem changes.
+ * <p>
+ * Editors usually produce several events per save, the events are collected until there is no new one for the
+ * debounce period and all of them are processed in a single rebuild.
+ * <p>
+ * Every rebuild is a new run of {@link StageMetrics#global()}, it is reset before the rebuild.
+ */
+public class BundlesWatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(BundlesWatcher.class);
+
+    private final BundlesFinder finder;
+    private final BundlesProcessor processor;
+    private final long debounceMillis;
+    private final Runnable rebuildFinished;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+    /**
+     * All existing subdirectories are registered immediately, no change after the construction is lost.
+     *
+     * @param rebuildFinished called after every rebuild, successful or not, e.g. to write the metrics of the run
+     */
+    public BundlesWatcher(Path bundlesDir,
+                          BundlesFinder finder,
+                          BundlesProcessor processor,
+                          long debounceMillis,
+                          Runnable rebuildFinished) {
+        this.finder = finder;
+        this.processor = processor;
+        this.debounceMillis = debounceMillis;
+        this.rebuildFinished = rebuildFinished;
+
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            registerTree(bundlesDir, new LinkedHashSet<>());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Watching of directory failed: " + bundlesDir, e);
+        }
+    }
+
+    /**
+     * Wait for changes and rebuild the affected bundles, block until the thread is interrupted or the watcher closed.
+     */
+    public void watch() {
+        logger.info("Watching for changes: {} directories", watchedDirs.size());
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changedPaths = new LinkedHashSet<>();
+                boolean overflow = processEvents(watchService.take(), changedPaths);
+
+                // Debounce, collect all events until a quiet period
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= processEvents(key, changedPaths);
+                }
+
+                rebuild(changedPaths, overflow);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed from another thread
+        }
+
+        logger.info("Watching for changes stopped");
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * @return true if some events were lost
+     */
+    private boolean processEvents(WatchKey key, Set<Path> changedPaths) {
+        Path dir = watchedDirs.get(key);
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                overflow = true;
+                continue;
+            }
+
+            Path path = dir.resolve((Path) event.context());
+            changedPaths.add(path);
+
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    // Files created before the registration would be missed otherwise
+                    registerTree(path, changedPaths);
+                } catch (IOException e) {
+                    logger.warn("Watching of new directory failed: {}", path, e);
+                    overflow = true;
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+
+        return overflow;
+    }
+
+    private void rebuild(Set<Path> changedPaths, boolean overflow) {
+        long start = System.nanoTime();
+        logger.info("Rebuilding after change: {} paths", changedPaths.size());
+
+        try {
+            Optional<ChangedBundles> changed = overflow
+                    ? Optional.empty()
+                    : finder.findChangedBundles(changedPaths);
+
+            if (changed.isPresent() && changed.get().isEmpty()) {
+                logger.info("No bundle affected by the change");
+                return;
+            }
+
+            StageMetrics.global().reset();
+            boolean success = changed
+                    .map(processor::processChangedBundles)
+                    .orElseGet(processor::processAllBundles);
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (success) {
+                logger.info("Rebuild successful in {} ms", millis);
+            } else {
+                logger.error("Rebuild failed in {} ms, fix the issues and save again", millis);
+            }
+
+            rebuildFinished.run();
+        } catch (RuntimeException e) {
+            logger.error("Rebuild failed, fix the issue and save again", e);
+        }
+    }
+
+    private void registerTree(Path root, Set<Path> existingFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirs.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                existingFiles.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bundles affected by a set of changed paths.
+ */
+public class ChangedBundles {
+    private final List<FsBundle> updated;
+    private final List<FsBundle> deleted;
+
+    public ChangedBundles(List<FsBundle> updated, List<FsBundle> deleted) {
+        this.updated = Collections.unmodifiableList(updated);
+        this.deleted = Collections.unmodifiableList(deleted);
+    }
+
+    /**
+     * Added or modified bundles, in the same order as produced by {@link BundlesFinder#findBundles()}.
+     */
+    public List<FsBundle> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Bundles whose directories don't exist anymore, they have no files.
+     */
+    public List<FsBundle> getDeleted() {
+        return deleted;
+    }
+
+    public boolean isEmpty() {
+        return updated.isEmpty() && deleted.isEmpty();
+    }
+}
@@ -0,0 +1,146 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Content of a zip entry compressed in advance with size and CRC-32 of the original data, see {@link ZipWriter}.
+ */
+class CompressedEntry {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Size of the chunks copied from a buffer with no array, the deflater of Java 8 accepts only arrays.
+     */
+    private static final int INPUT_CHUNK_SIZE = 64 * 1024;
+
+    private final int method;
+    private final byte[] data;
+    private final long size;
+    private final long crc;
+
+    /**
+     * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     * @param data   raw deflate stream with no zlib header or the original content
+     * @param size   size of the original content
+     * @param crc    CRC-32 of the original content
+     */
+    CompressedEntry(int method, byte[] data, long size, long crc) {
+        this.method = method;
+        this.data = data;
+        this.size = size;
+        this.crc = crc;
+    }
+
+    static CompressedEntry stored(byte[] content) {
+        return new CompressedEntry(ZipEntry.STORED, content, content.length, crc(content, 0, content.length));
+    }
+
+    /**
+     * Single-threaded deflate, the same data as from {@link java.util.zip.ZipOutputStream} at the same level.
+     */
+    static CompressedEntry deflated(byte[] content, int level) {
+        return deflated(ByteBuffer.wrap(content), level);
+    }
+
+    /**
+     * @param content remaining bytes are compressed, a memory-mapped file is never copied to the heap as a whole
+     */
+    static CompressedEntry deflated(ByteBuffer content, int level) {
+        Deflater deflater = new Deflater(level, true);
+
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(content.remaining() / 2 + 64);
+            deflate(deflater, content, true, output);
+            return new CompressedEntry(ZipEntry.DEFLATED, output.toByteArray(), content.remaining(), crc(content));
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Pass all remaining bytes of the content to the deflater and write its output.
+     * <p>
+     * An array is passed at once, other buffers in chunks. The output is the same, with no flush deflate waits for
+     * enough input before it makes any decision.
+     *
+     * @param finish finish the stream, otherwise end the output by a sync flush on a byte boundary
+     */
+    static void deflate(Deflater deflater, ByteBuffer content, boolean finish, ByteArrayOutputStream output) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        if (content.hasArray()) {
+            deflater.setInput(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        } else {
+            ByteBuffer input = content.duplicate();
+            byte[] chunk = new byte[Math.min(INPUT_CHUNK_SIZE, input.remaining())];
+
+            // The last chunk is flushed or finished below
+            while (input.remaining() > chunk.length) {
+                input.get(chunk);
+                deflater.setInput(chunk);
+                while (!deflater.needsInput()) {
+                    int count = deflater.deflate(buffer);
+                    output.write(buffer, 0, count);
+                }
+            }
+
+            int length = input.remaining();
+            input.get(chunk, 0, length);
+            deflater.setInput(chunk, 0, length);
+        }
+
+        if (finish) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+        } else {
+            // Full buffer means that more output is pending
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                output.write(buffer, 0, count);
+            } while (count == buffer.length);
+        }
+    }
+
+    static long crc(byte[] content, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(content, offset, length);
+        return crc.getValue();
+    }
+
+    /**
+     * CRC-32 of the remaining bytes, the position of the content is not changed.
+     */
+    static long crc(ByteBuffer content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        return crc.getValue();
+    }
+
+    int getMethod() {
+        return method;
+    }
+
+    boolean isStored() {
+        return method == ZipEntry.STORED;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getCrc() {
+        return crc;
+    }
+}
@@ -0,0 +1,133 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Trade-off between build time and size of the archives, see {@link BundlesArchiver}.
+ * <p>
+ * Every profile is deterministic, the decisions depend only on content of the entries and the same input produces
+ * always the same archive.
+ */
+public enum CompressionProfile {
+    /**
+     * Fastest deflate for all entries.
+     */
+    FAST(Deflater.BEST_SPEED),
+
+    /**
+     * Default level of zlib, most of the size of {@link #MAX} for a fraction of its time.
+     */
+    BALANCED(6),
+
+    /**
+     * Smallest archives, the slowest profile.
+     */
+    MAX(Deflater.BEST_COMPRESSION),
+
+    /**
+     * Choose per entry by its size and by compressibility measured on a sample of its beginning.
+     */
+    ADAPTIVE(Deflater.BEST_COMPRESSION);
+
+    /**
+     * Level used for entries that are stored without compression.
+     */
+    static final int STORED_LEVEL = Deflater.NO_COMPRESSION;
+
+    /**
+     * Increment on every change of the adaptive decisions to invalidate the cached archives.
+     */
+    private static final int ADAPTIVE_VERSION = 1;
+
+    private static final int SAMPLE_SIZE = 16 * 1024;
+    private static final double INCOMPRESSIBLE_RATIO = 0.9;
+    private static final int SMALL_ENTRY_SIZE = 4 * 1024;
+    private static final int LARGE_ENTRY_SIZE = 64 * 1024;
+
+    private final int level;
+
+    CompressionProfile(int level) {
+        this.level = level;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<CompressionProfile> fromName(String name) {
+        return Stream.of(values())
+                .filter(profile -> profile.getName().equals(name))
+                .findFirst();
+    }
+
+    /**
+     * Description of the profile for {@link BundlesArchiver#getConfiguration()}. The fixed profiles keep the former
+     * format, the existing cached archives stay valid.
+     */
+    String getConfiguration() {
+        return isAdaptive() ? "adaptive-" + ADAPTIVE_VERSION : "deflate-level-" + level;
+    }
+
+    private boolean isAdaptive() {
+        return this == ADAPTIVE;
+    }
+
+    /**
+     * Deflate level for an entry, {@link #STORED_LEVEL} means the entry should be stored.
+     */
+    int chooseLevel(byte[] content) {
+        return chooseLevel(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * @param content remaining bytes of the entry, only the sample is copied
+     */
+    int chooseLevel(ByteBuffer content) {
+        if (!isAdaptive()) {
+            return level;
+        }
+
+        int length = content.remaining();
+        byte[] sample = new byte[Math.min(length, SAMPLE_SIZE)];
+        content.duplicate().get(sample);
+        if (deflatedSize(sample) >= sample.length * INCOMPRESSIBLE_RATIO) {
+            // Tiny files and already compressed data, deflate would only add its overhead
+            return STORED_LEVEL;
+        }
+
+        if (length < SMALL_ENTRY_SIZE) {
+            // All levels produce nearly the same output for such short input
+            return Deflater.BEST_SPEED;
+        }
+
+        if (length >= LARGE_ENTRY_SIZE) {
+            // Large JSON templates, the highest levels are much slower and save less than a percent
+            return 6;
+        }
+
+        return Deflater.BEST_COMPRESSION;
+    }
+
+    private static int deflatedSize(byte[] sample) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+
+            byte[] buffer = new byte[SAMPLE_SIZE];
+            int size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(buffer);
+            }
+
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+}
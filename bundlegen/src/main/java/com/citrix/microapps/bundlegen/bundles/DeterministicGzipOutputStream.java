@@ -0,0 +1,67 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Gzip stream whose header is always the same, the output depends only on the data. {@link
+ * java.util.zip.GZIPOutputStream} writes a different OS field since Java 16 and it has no way to set the level.
+ * <p>
+ * Modification time is zero, no file name, the OS is unknown.
+ */
+class DeterministicGzipOutputStream extends DeflaterOutputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b,  // Magic
+            Deflater.DEFLATED,  // Compression method
+            0,                  // Flags
+            0, 0, 0, 0,         // Modification time
+            2,                  // Extra flags, maximum compression
+            (byte) 0xff,        // OS, unknown
+    };
+
+    private final CRC32 crc = new CRC32();
+    private boolean trailerWritten = false;
+
+    DeterministicGzipOutputStream(OutputStream output) throws IOException {
+        super(output, new Deflater(Deflater.BEST_COMPRESSION, true), BUFFER_SIZE);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        super.finish();
+
+        if (!trailerWritten) {
+            writeIntLe(crc.getValue());
+            writeIntLe(def.getBytesRead());
+            trailerWritten = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            def.end();
+        }
+    }
+
+    private void writeIntLe(long value) throws IOException {
+        out.write((int) value);
+        out.write((int) (value >>> 8));
+        out.write((int) (value >>> 16));
+        out.write((int) (value >>> 24));
+    }
+}
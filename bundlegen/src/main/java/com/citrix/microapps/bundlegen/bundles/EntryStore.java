@@ -0,0 +1,91 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Content-addressable store of compressed zip entries keyed by SHA-256 of the original content.
+ * <p>
+ * Successive versions of a bundle often contain identical files, they are compressed only once per run and copied to
+ * all the archives. The store belongs to a single {@link BundlesArchiver}, the same content is always compressed the
+ * same way by it. It lives only in memory, {@link ArchiveCache} handles the unchanged bundles between runs.
+ * <p>
+ * Size of the compressed data is limited, the least recently used entries are evicted. Versions of a bundle are
+ * archived next to each other, a small store is enough for them and neither a full run nor a long watch session
+ * keeps every compressed file in heap.
+ */
+class EntryStore {
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final long maxBytes;
+
+    // Access order, the eldest entry is the least recently used one
+    private final Map<String, CompressedEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * @param maxBytes limit of size of the compressed data of all entries
+     */
+    EntryStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Hash the content with no copy to the heap, a memory-mapped file is read directly.
+     */
+    static String key(ByteBuffer content) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update(content.duplicate());
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    synchronized Optional<CompressedEntry> get(String key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    /**
+     * Two threads may compress the same content concurrently, the results are equal and the first one is kept. An
+     * entry larger than the limit is not stored at all.
+     *
+     * @return the stored entry
+     */
+    synchronized CompressedEntry put(String key, CompressedEntry entry) {
+        CompressedEntry previous = entries.get(key);
+        if (previous != null) {
+            return previous;
+        }
+
+        long entryBytes = entry.getData().length;
+        if (entryBytes > maxBytes) {
+            return entry;
+        }
+
+        Iterator<CompressedEntry> eldest = entries.values().iterator();
+        while (bytes + entryBytes > maxBytes) {
+            bytes -= eldest.next().getData().length;
+            eldest.remove();
+        }
+
+        entries.put(key, entry);
+        bytes += entryBytes;
+        return entry;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Size of the compressed data of all entries.
+     */
+    synchronized long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,117 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Immutable content of a file read by a single I/O operation, see {@link BundleContents}.
+ * <p>
+ * Small files are read by one call directly to an array of the exact size, JSON parsers get the array with no
+ * intermediate buffer. Large files are memory-mapped, they stay in the page cache instead of the heap.
+ */
+class FileContent {
+    /**
+     * Templates of the larger bundles are above, metadata and translations are far below.
+     */
+    static final int MAP_THRESHOLD = 128 * 1024;
+
+    private final ByteBuffer buffer;
+
+    private FileContent(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @throws IOException if the file can't be read
+     */
+    static FileContent read(Path path) throws IOException {
+        return read(path, true);
+    }
+
+    /**
+     * @param mapLarge memory-map the large files, otherwise all files are read to the heap
+     * @throws IOException if the file can't be read
+     */
+    static FileContent read(Path path, boolean mapLarge) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large: " + path + ", " + size + " B");
+            }
+
+            if (mapLarge && size >= MAP_THRESHOLD) {
+                // The mapping stays valid after the channel is closed
+                return new FileContent(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            // Usually a single read, a file truncated in the meantime ends early
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+
+            buffer.flip();
+            return new FileContent(buffer);
+        }
+    }
+
+    int size() {
+        return buffer.remaining();
+    }
+
+    boolean isMapped() {
+        return !buffer.hasArray();
+    }
+
+    JsonParser createParser(JsonFactory factory) throws IOException {
+        if (buffer.hasArray()) {
+            return factory.createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), size());
+        }
+
+        return factory.createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    <T> T readValue(ObjectReader reader) throws IOException {
+        if (buffer.hasArray()) {
+            return reader.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), size());
+        }
+
+        return reader.readValue(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    void updateDigest(MessageDigest digest) {
+        digest.update(buffer.duplicate());
+    }
+
+    /**
+     * View of the content with no copy, never modify it. Large files are memory-mapped, the buffer has no array.
+     */
+    ByteBuffer asByteBuffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * The array of a small file is returned directly, never modify it. Large files are copied to the heap.
+     */
+    byte[] toByteArray() {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+
+        byte[] content = new byte[size()];
+        buffer.duplicate().get(content);
+        return content;
+    }
+}
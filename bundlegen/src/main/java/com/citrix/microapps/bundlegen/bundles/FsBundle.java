@@ -8,6 +8,7 @@ import java.util.Optional;
 import com.citrix.microapps.bundlegen.pojo.Type;
 
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVE_EXTENSION;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.DELTA_EXTENSION;
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.METADATA_FILE;
 import static com.citrix.microapps.bundlegen.bundles.FsConstants.TEMPLATE_FILE;
 
@@ -46,6 +47,18 @@ public interface FsBundle {
         return URI.create(repoSlash + getVendor() + "/" + getArchiveName() + ARCHIVE_EXTENSION);
     }
 
+    /**
+     * Binary delta from the archive of the previous version, see {@link BinaryDelta}.
+     */
+    default Path getDeltaPath(Path archivesDir) {
+        Path archivePath = getArchivePath(archivesDir);
+        return archivePath.resolveSibling(archivePath.getFileName() + DELTA_EXTENSION);
+    }
+
+    default URI getDeltaUrl(URI bundlesRepository) {
+        return URI.create(getDownloadUrl(bundlesRepository) + DELTA_EXTENSION);
+    }
+
     default Path getMetadataPath() {
         return getPath().resolve(METADATA_FILE);
     }
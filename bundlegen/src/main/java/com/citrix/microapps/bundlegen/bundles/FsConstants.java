@@ -24,7 +24,11 @@ public class FsConstants {
 
     public static final String ARCHIVES_DIR = "archives";
     public static final String ARCHIVE_EXTENSION = ".zip";
+    public static final String DELTA_EXTENSION = ".delta";
     public static final String BUNDLES_JSON = "bundles.json";
+    public static final String BUNDLES_INDEX_JSON = "bundles-index.json";
+    public static final String SEARCH_INDEX_JSON = "search-index.json";
+    public static final String GZIP_EXTENSION = ".gz";
 
     /**
      * Only these files and directories are allowed in the bundle.
@@ -0,0 +1,218 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Block-parallel deflate of large entries in the style of pigz.
+ * <p>
+ * The content is split to blocks of a fixed size that are compressed concurrently. Each block is primed by the last
+ * 32 kB of the previous one as a dictionary and all blocks except the last one end with a sync flush on a byte
+ * boundary. Concatenation of the blocks is then a single valid deflate stream, CRC-32 of the whole content is
+ * combined from CRCs of the blocks.
+ * <p>
+ * The output depends only on the content, the level and the block size, never on number of threads or their timing.
+ * It differs from a single-threaded deflate of the same content, archives built with and without this deflater are
+ * different.
+ */
+public class ParallelDeflater {
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * Maximal distance of back references in deflate.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final int blockSize;
+    private final ExecutorService executor;
+
+    /**
+     * @param blockSize size of the independently compressed blocks, the entries that fit in a single block are
+     *                  compressed in the calling thread
+     * @param threads   number of threads that compress the blocks, they are daemons and never block exit of the
+     *                  application
+     */
+    public ParallelDeflater(int blockSize, int threads) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size should be at least " + DICTIONARY_SIZE + ": " + blockSize);
+        }
+
+        this.blockSize = blockSize;
+        this.executor = Workers.newExecutor(threads, "deflate");
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Compress the content to a raw deflate stream with no zlib header.
+     */
+    CompressedEntry deflate(byte[] content, int level) {
+        return deflate(content, level, cpuNanos -> {
+        });
+    }
+
+    /**
+     * @param poolCpuNanos receives CPU time spent by the pool threads, the calling thread measures its own
+     */
+    CompressedEntry deflate(byte[] content, int level, LongConsumer poolCpuNanos) {
+        return deflate(ByteBuffer.wrap(content), level, poolCpuNanos);
+    }
+
+    /**
+     * @param content      remaining bytes are compressed, the blocks of a memory-mapped file are read directly
+     * @param poolCpuNanos receives CPU time spent by the pool threads, the calling thread measures its own
+     */
+    CompressedEntry deflate(ByteBuffer content, int level, LongConsumer poolCpuNanos) {
+        int length = content.remaining();
+        int blocks = (length + blockSize - 1) / blockSize;
+        if (blocks <= 1) {
+            return CompressedEntry.deflated(content, level);
+        }
+
+        List<Future<Block>> futures = new ArrayList<>(blocks);
+        for (int i = 1; i < blocks; i++) {
+            int offset = i * blockSize;
+            boolean last = i == blocks - 1;
+            futures.add(executor.submit(() -> deflateBlock(content, offset, blockSize, level, last)));
+        }
+
+        // The calling thread is busy too, no deadlock even if all the threads are taken by other entries
+        Block first = deflateBlock(content, 0, blockSize, level, false);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2);
+        output.write(first.data, 0, first.data.length);
+        long crc = first.crc;
+
+        for (Future<Block> future : futures) {
+            Block block = Workers.getResult(future);
+            output.write(block.data, 0, block.data.length);
+            crc = combineCrc(crc, block.crc, block.length);
+            poolCpuNanos.accept(block.cpuNanos);
+        }
+
+        return new CompressedEntry(ZipEntry.DEFLATED, output.toByteArray(), length, crc);
+    }
+
+    private static Block deflateBlock(ByteBuffer content, int offset, int blockSize, int level, boolean last) {
+        long start = ArchiverStats.currentCpuNanos();
+        int length = Math.min(blockSize, content.remaining() - offset);
+        Deflater deflater = new Deflater(level, true);
+
+        try {
+            if (offset > 0) {
+                int dictionaryOffset = Math.max(0, offset - DICTIONARY_SIZE);
+                byte[] dictionary = new byte[offset - dictionaryOffset];
+                slice(content, dictionaryOffset, dictionary.length).get(dictionary);
+                deflater.setDictionary(dictionary);
+            }
+
+            ByteBuffer block = slice(content, offset, length);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 64);
+            CompressedEntry.deflate(deflater, block, last, output);
+
+            long crc = CompressedEntry.crc(block);
+            return new Block(output.toByteArray(), length, crc, ArchiverStats.currentCpuNanos() - start);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Part of the remaining bytes of the content, it shares the data.
+     */
+    private static ByteBuffer slice(ByteBuffer content, int offset, int length) {
+        ByteBuffer slice = content.duplicate();
+        slice.position(content.position() + offset);
+        slice.limit(content.position() + offset + length);
+        return slice;
+    }
+
+    /**
+     * CRC-32 of concatenation of two sequences from their CRCs, port of `crc32_combine()` from zlib.
+     *
+     * @param crc1    CRC-32 of the first sequence
+     * @param crc2    CRC-32 of the second sequence
+     * @param length2 length of the second sequence
+     */
+    static long combineCrc(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[32]; // Operator for even powers of two zeros
+        long[] odd = new long[32]; // Operator for odd powers of two zeros
+
+        // Operator for one zero bit
+        odd[0] = 0xEDB88320L; // CRC-32 polynomial
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        gf2MatrixSquare(even, odd); // Two zero bits
+        gf2MatrixSquare(odd, even); // Four zero bits
+
+        // Apply length2 zeros to crc1, the first square puts the operator for one zero byte to even
+        long crc = crc1;
+        long length = length2;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((length & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            length >>= 1;
+        } while (length != 0);
+
+        return (crc ^ crc2) & 0xFFFFFFFFL;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        long rest = vector;
+        for (int i = 0; rest != 0; i++, rest >>>= 1) {
+            if ((rest & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    private static class Block {
+        private final byte[] data;
+        private final int length;
+        private final long crc;
+        private final long cpuNanos;
+
+        Block(byte[] data, int length, long crc, long cpuNanos) {
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+            this.cpuNanos = cpuNanos;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import com.citrix.microapps.bundlegen.pojo.TemplateFile;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+/**
+ * Streaming reader of `file.sapp` templates.
+ * <p>
+ * The templates are large documents with nested definitions of the apps, but only one top level field is needed.
+ * Nested objects and arrays are skipped without building any tree or objects. The whole document is still scanned,
+ * a template broken after the field is rejected the same way as by the data binding.
+ */
+class TemplateFileReader {
+    private static final String TRANSLATION_CHECKSUM = "translationChecksum";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private TemplateFileReader() {
+    }
+
+    /**
+     * @throws IOException if the file can't be read, it is not a valid JSON object or the field is missing
+     */
+    static TemplateFile read(Path path) throws IOException {
+        return read(JSON_FACTORY.createParser(path.toFile()));
+    }
+
+    /**
+     * @throws IOException if the content is not a valid JSON object or the field is missing
+     */
+    static TemplateFile read(FileContent content) throws IOException {
+        return read(content.createParser(JSON_FACTORY));
+    }
+
+    private static TemplateFile read(JsonParser input) throws IOException {
+        try (JsonParser parser = input) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(parser, TemplateFile.class,
+                        "Unexpected token " + parser.currentToken() + ", expecting START_OBJECT");
+            }
+
+            Optional<String> checksum = Optional.empty();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if (TRANSLATION_CHECKSUM.equals(fieldName)) {
+                    checksum = Optional.of(readString(parser, value));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return new TemplateFile(checksum.orElseThrow(() -> MismatchedInputException.from(parser,
+                    TemplateFile.class, "Missing required property '" + TRANSLATION_CHECKSUM + "'")));
+        }
+    }
+
+    /**
+     * Scalar values are converted to string, the same way as the data binding does.
+     */
+    private static String readString(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return ""; // Reported as missing checksum
+        }
+
+        if (value.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+
+        throw MismatchedInputException.from(parser, String.class,
+                "Cannot read property '" + TRANSLATION_CHECKSUM + "' as string from token " + value);
+    }
+}
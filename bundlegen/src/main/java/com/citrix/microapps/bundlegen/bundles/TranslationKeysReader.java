@@ -0,0 +1,82 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.citrix.microapps.bundlegen.pojo.ModelTranslation;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+/**
+ * Streaming reader of keys in `i18n/*.json` translation files.
+ * <p>
+ * Only the keys are needed to compute the translation checksum, the translated texts are validated to be scalars
+ * like in {@link ModelTranslation} but never materialized.
+ */
+class TranslationKeysReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private TranslationKeysReader() {
+    }
+
+    /**
+     * @return app keys mapped to sorted translation keys of the app, the last one wins for duplicate app keys
+     * @throws IOException if the file can't be read or it doesn't have the expected structure
+     */
+    static Map<String, SortedSet<String>> read(Path path) throws IOException {
+        return read(JSON_FACTORY.createParser(path.toFile()));
+    }
+
+    /**
+     * @see #read(Path)
+     */
+    static Map<String, SortedSet<String>> read(FileContent content) throws IOException {
+        return read(content.createParser(JSON_FACTORY));
+    }
+
+    private static Map<String, SortedSet<String>> read(JsonParser input) throws IOException {
+        try (JsonParser parser = input) {
+            expectObject(parser, parser.nextToken());
+            Map<String, SortedSet<String>> appKeys = new HashMap<>();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String appKey = parser.getCurrentName();
+                expectObject(parser, parser.nextToken());
+                appKeys.put(appKey, readKeys(parser));
+            }
+
+            return appKeys;
+        }
+    }
+
+    private static SortedSet<String> readKeys(JsonParser parser) throws IOException {
+        SortedSet<String> keys = new TreeSet<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if (!value.isScalarValue()) {
+                throw MismatchedInputException.from(parser, String.class,
+                        "Cannot read translation '" + key + "' as string from token " + value);
+            }
+
+            keys.add(key);
+        }
+
+        return keys;
+    }
+
+    private static void expectObject(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(parser, ModelTranslation.class,
+                    "Unexpected token " + token + ", expecting START_OBJECT");
+        }
+    }
+}
@@ -1,49 +1,130 @@
 package com.citrix.microapps.bundlegen.bundles;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import com.citrix.microapps.bundlegen.pojo.ModelTranslation;
 
-import static java.lang.String.format;
+import static java.util.stream.Collectors.toMap;
 
+/**
+ * Checksum of keys in a translation file.
+ * <p>
+ * For each app, MD5 of `appKey-key1,key2,...` with sorted keys is computed. The hexadecimal representations of these
+ * hashes are sorted, concatenated, padded and hashed by MD5 again. The translated texts are not part of the checksum.
+ */
 public class TranslationValidator {
 
-    private static final String TRANSLATION_CHECKSUM_PAD = "Citrix";
+    private static final byte[] TRANSLATION_CHECKSUM_PAD = "Citrix".getBytes(StandardCharsets.US_ASCII);
 
-    private ModelTranslation modelTranslation;
-
-    public TranslationValidator(ModelTranslation modelTranslation) {
-        this.modelTranslation = modelTranslation;
-    }
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
 
     // Sonar: Hashing data is security-sensitive.
     // MD5 is used only to create a checksum of keys in translation files
     @SuppressWarnings("squid:S4790")
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(DigestUtils::getMd5Digest);
+
+    private final Map<String, SortedSet<String>> appKeys;
+
+    public TranslationValidator(ModelTranslation modelTranslation) {
+        this(modelTranslation.getAppTranslations()
+                .entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getKey, entry -> new TreeSet<>(entry.getValue().keySet()))));
+    }
+
+    /**
+     * @param appKeys app keys mapped to translation keys of the app, the sets must use natural ordering
+     */
+    public TranslationValidator(Map<String, SortedSet<String>> appKeys) {
+        this.appKeys = appKeys;
+    }
+
+    /**
+     * Stream the translation file and compute its checksum, the translated texts are never loaded to memory.
+     *
+     * @throws IOException if the file can't be read or it doesn't have the expected structure
+     */
+    public static Optional<String> checksum(Path translationFile) throws IOException {
+        return new TranslationValidator(TranslationKeysReader.read(translationFile)).checksum();
+    }
+
+    /**
+     * @see #checksum(Path)
+     */
+    static Optional<String> checksum(FileContent translationFile) throws IOException {
+        return new TranslationValidator(TranslationKeysReader.read(translationFile)).checksum();
+    }
+
     public Optional<String> checksum() {
-        StringBuilder builder = new StringBuilder();
-        if (modelTranslation.getAppTranslations().isEmpty()) {
+        if (appKeys.isEmpty()) {
             return Optional.empty();
         }
 
-        modelTranslation.getAppTranslations()
-                .entrySet()
-                .stream()
-                .map(entry ->
-                        DigestUtils.md5Hex(format("%s-%s", entry.getKey(),
-                                entry.getValue()
-                                        .keySet()
-                                        .stream()
-                                        .sorted()
-                                        .collect(Collectors.joining(",")))))
-                .sorted()
-                .forEach(builder::append);
-
-        builder.append(TRANSLATION_CHECKSUM_PAD);
-        return Optional.of(DigestUtils
-                .md5Hex(builder.toString())
-                .toUpperCase());
+        MessageDigest digest = MD5.get();
+        List<byte[]> appDigests = new ArrayList<>(appKeys.size());
+
+        for (Map.Entry<String, SortedSet<String>> entry : appKeys.entrySet()) {
+            update(digest, entry.getKey());
+            digest.update((byte) '-');
+
+            boolean first = true;
+            for (String key : entry.getValue()) {
+                if (!first) {
+                    digest.update((byte) ',');
+                }
+
+                update(digest, key);
+                first = false;
+            }
+
+            appDigests.add(digest.digest());
+        }
+
+        // Lowercase hexadecimal strings have the same order as unsigned bytes of the digests.
+        appDigests.sort(TranslationValidator::compareUnsigned);
+
+        byte[] hex = new byte[2 * digest.getDigestLength()];
+        for (byte[] appDigest : appDigests) {
+            digest.update(toHex(appDigest, hex));
+        }
+
+        digest.update(TRANSLATION_CHECKSUM_PAD);
+        return Optional.of(Hex.encodeHexString(digest.digest(), false));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] toHex(byte[] bytes, byte[] hex) {
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+
+        return hex;
+    }
+
+    private static int compareUnsigned(byte[] bytes1, byte[] bytes2) {
+        for (int i = 0; i < Math.min(bytes1.length, bytes2.length); i++) {
+            int result = Integer.compare(bytes1[i] & 0xFF, bytes2[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return Integer.compare(bytes1.length, bytes2.length);
     }
 }
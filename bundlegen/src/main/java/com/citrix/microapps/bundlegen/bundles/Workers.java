@@ -0,0 +1,99 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pool of worker threads that processes the bundles concurrently, the results are always collected in the original
+ * order.
+ */
+class Workers {
+    private Workers() {
+    }
+
+    /**
+     * The threads are daemons, they never block exit of the application. Shut the executor down after use.
+     */
+    static ExecutorService newExecutor(int threads) {
+        return newExecutor(threads, "worker");
+    }
+
+    /**
+     * @param namePrefix prefix of names of the threads, followed by their number
+     */
+    static ExecutorService newExecutor(int threads, String namePrefix) {
+        return Executors.newFixedThreadPool(threads, new WorkerThreadFactory(namePrefix));
+    }
+
+    /**
+     * Apply the function to all items concurrently, the results are in the same order as the items.
+     */
+    static <T, R> List<R> mapInOrder(ExecutorService executor, List<T> items, Function<T, R> function) {
+        List<R> results = new ArrayList<>(items.size());
+        forEachInOrder(executor, items, function, results::add);
+        return results;
+    }
+
+    /**
+     * Apply the function to all items concurrently and pass the results to the consumer in the same order as the
+     * items, each of them as soon as all the previous ones were consumed. The consumer runs in the calling thread.
+     */
+    static <T, R> void forEachInOrder(ExecutorService executor,
+                                      List<T> items,
+                                      Function<T, R> function,
+                                      Consumer<R> consumer) {
+        List<Future<R>> futures = items.stream()
+                .map(item -> executor.submit(() -> function.apply(item)))
+                .collect(Collectors.toList());
+
+        for (Future<R> future : futures) {
+            consumer.accept(getResult(future));
+        }
+    }
+
+    /**
+     * Wait for the result of a task and propagate its exception unchanged to fail the same way as in a single thread.
+     */
+    static <R> R getResult(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Processing of bundles interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException("Processing of bundle failed", cause);
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        WorkerThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal writer of zip archives with entries compressed in advance, see {@link CompressedEntry}.
+ * <p>
+ * {@link java.util.zip.ZipOutputStream} can't write an already deflated data. This writer produces the same layout on
+ * byte level for the entries created by {@link BundlesArchiver}: UTF-8 names, all times set to epoch, data
+ * descriptors after deflated entries, no comments and no zip64 extensions.
+ */
+class ZipWriter {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+
+    /**
+     * DOS date and time can't express anything before 1980, this is the value of {@link ZipEntry} for epoch.
+     */
+    private static final int DOS_TIME_BEFORE_1980 = (1 << 21) | (1 << 16);
+
+    /**
+     * Info-ZIP extended timestamp with modification, access and creation times, all zero.
+     */
+    private static final int EXTENDED_TIMESTAMP_ID = 0x5455;
+    private static final int EXTENDED_TIMESTAMP_FLAGS = 0x07;
+    private static final int LOCAL_EXTRA_LENGTH = 4 + 1 + 3 * 4;
+    private static final int CENTRAL_EXTRA_LENGTH = 4 + 1 + 4;
+
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private final OutputStream output;
+    private final List<Entry> entries = new ArrayList<>();
+    private long written = 0;
+
+    ZipWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    void write(String name, CompressedEntry entry) throws IOException {
+        if (entry.isStored()) {
+            writeStored(name, entry.getData(), entry.getCrc());
+        } else {
+            writeDeflated(name, entry.getData(), entry.getSize(), entry.getCrc());
+        }
+    }
+
+    private void writeDeflated(String name, byte[] deflated, long size, long crc) throws IOException {
+        Entry entry = new Entry(name, ZipEntry.DEFLATED, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, size, deflated.length,
+                crc, written);
+        entries.add(entry);
+
+        writeLocalHeader(entry);
+        writeBytes(deflated);
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt(crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+    }
+
+    private void writeStored(String name, byte[] content, long crc) throws IOException {
+        Entry entry = new Entry(name, ZipEntry.STORED, FLAG_UTF8, content.length, content.length, crc, written);
+        entries.add(entry);
+
+        writeLocalHeader(entry);
+        writeBytes(content);
+    }
+
+    /**
+     * Write the central directory, the output stream is not closed.
+     */
+    void finish() throws IOException {
+        long centralOffset = written;
+
+        for (Entry entry : entries) {
+            int version = version(entry);
+            writeInt(CENTRAL_HEADER_SIGNATURE);
+            writeShort(version); // Version made by
+            writeShort(version); // Version needed to extract
+            writeShort(entry.flags);
+            writeShort(entry.method);
+            writeInt(DOS_TIME_BEFORE_1980);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            writeShort(entry.name.length);
+            writeShort(CENTRAL_EXTRA_LENGTH);
+            writeShort(0); // Comment length
+            writeShort(0); // Disk number
+            writeShort(0); // Internal attributes
+            writeInt(0); // External attributes
+            writeInt(entry.offset);
+            writeBytes(entry.name);
+            // Only modification time is in the central header, but flags of all the times
+            writeShort(EXTENDED_TIMESTAMP_ID);
+            writeShort(CENTRAL_EXTRA_LENGTH - 4);
+            output.write(EXTENDED_TIMESTAMP_FLAGS);
+            written++;
+            writeInt(0);
+        }
+
+        long centralLength = written - centralOffset;
+        checkSize(centralOffset);
+        if (entries.size() > 0xFFFF) {
+            throw new ZipException("Too many zip entries, zip64 is not supported: " + entries.size());
+        }
+
+        writeInt(END_SIGNATURE);
+        writeShort(0); // Disk number
+        writeShort(0); // Disk with central directory
+        writeShort(entries.size());
+        writeShort(entries.size());
+        writeInt(centralLength);
+        writeInt(centralOffset);
+        writeShort(0); // Comment length
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        boolean dataDescriptor = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(version(entry));
+        writeShort(entry.flags);
+        writeShort(entry.method);
+        writeInt(DOS_TIME_BEFORE_1980);
+        writeInt(dataDescriptor ? 0 : entry.crc);
+        writeInt(dataDescriptor ? 0 : entry.compressedSize);
+        writeInt(dataDescriptor ? 0 : entry.size);
+        writeShort(entry.name.length);
+        writeShort(LOCAL_EXTRA_LENGTH);
+        writeBytes(entry.name);
+        writeShort(EXTENDED_TIMESTAMP_ID);
+        writeShort(LOCAL_EXTRA_LENGTH - 4);
+        output.write(EXTENDED_TIMESTAMP_FLAGS);
+        written++;
+        writeInt(0); // Modification time
+        writeInt(0); // Access time
+        writeInt(0); // Creation time
+    }
+
+    private static int version(Entry entry) {
+        return entry.method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED;
+    }
+
+    private void writeShort(int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+        written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        output.write((int) (value & 0xFF));
+        output.write((int) ((value >>> 8) & 0xFF));
+        output.write((int) ((value >>> 16) & 0xFF));
+        output.write((int) ((value >>> 24) & 0xFF));
+        written += 4;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        output.write(bytes);
+        written += bytes.length;
+    }
+
+    private static void checkSize(long size) throws ZipException {
+        if (size >= MAX_SIZE) {
+            throw new ZipException("Zip archive too large, zip64 is not supported: " + size);
+        }
+    }
+
+    private static class Entry {
+        private final byte[] name;
+        private final int method;
+        private final int flags;
+        private final long size;
+        private final long compressedSize;
+        private final long crc;
+        private final long offset;
+
+        Entry(String name, int method, int flags, long size, long compressedSize, long crc, long offset)
+                throws ZipException {
+            checkSize(size);
+            checkSize(compressedSize);
+            checkSize(offset);
+
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.flags = flags;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.crc = crc;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.citrix.microapps.bundlegen.logging;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.LayoutBase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Logback layout writing every event as one JSON object per line, e.g. for a log collector of the CI. Caller data
+ * is never used, it would need a stack walk per event.
+ * <p>
+ * Fields: `timestamp` (ISO-8601, UTC), `level`, `logger`, `thread`, `message` and optional `exception` with the full
+ * stack trace.
+ */
+public class JsonLayout extends LayoutBase<ILoggingEvent> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        StringWriter writer = new StringWriter(256);
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("timestamp", Instant.ofEpochMilli(event.getTimeStamp()).toString());
+            generator.writeStringField("level", event.getLevel().toString());
+            generator.writeStringField("logger", event.getLoggerName());
+            generator.writeStringField("thread", event.getThreadName());
+            generator.writeStringField("message", event.getFormattedMessage());
+
+            // Logback API, null if there is no exception
+            IThrowableProxy throwable = event.getThrowableProxy();
+            if (throwable != null) {
+                generator.writeStringField("exception", ThrowableProxyUtil.asString(throwable));
+            }
+
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Formatting of log event failed: " + event, e);
+        }
+
+        return writer.append('\n').toString();
+    }
+}
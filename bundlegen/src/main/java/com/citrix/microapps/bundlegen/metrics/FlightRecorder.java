@@ -0,0 +1,70 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Java Flight Recorder events of the stages recorded to {@link StageMetrics#global()}, e.g. for profiling of a slow
+ * CI run.
+ * <p>
+ * The implementation is in `src/main/java11`, it is compiled only by Maven profile `java11` that is activated on
+ * JDK 11 and newer. The classes are loaded by reflection, everything is a no-op if they are missing or if the JVM
+ * can't load them.
+ */
+public class FlightRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorder.class);
+
+    private static final String LISTENER_CLASS = "com.citrix.microapps.bundlegen.metrics.JfrStageListener";
+    private static final String RECORDING_CLASS = "com.citrix.microapps.bundlegen.metrics.JfrRecording";
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * Emit an event at the end of every stage. The events are only committed while a recording is running, e.g. one
+     * started by {@link #startRecording(Path)} or by `-XX:StartFlightRecording`.
+     *
+     * @return false if the events are not supported
+     */
+    public static boolean installEvents() {
+        Optional<StageListener> listener = newInstance(LISTENER_CLASS, StageListener.class, new Class<?>[0]);
+        listener.ifPresent(StageMetrics.global()::setListener);
+        return listener.isPresent();
+    }
+
+    /**
+     * Start a recording with the stage events and the `profile` settings of the JVM. The file is written when the
+     * recording is closed or on exit of the JVM at the latest.
+     *
+     * @return the running recording or empty if it is not supported
+     */
+    public static Optional<Closeable> startRecording(Path file) {
+        if (!installEvents()) {
+            return Optional.empty();
+        }
+
+        return newInstance(RECORDING_CLASS, Closeable.class, new Class<?>[]{Path.class}, file);
+    }
+
+    private static <T> Optional<T> newInstance(String className,
+                                               Class<T> type,
+                                               Class<?>[] parameterTypes,
+                                               Object... args) {
+        try {
+            return Optional.of(type.cast(Class.forName(className)
+                    .getDeclaredConstructor(parameterTypes)
+                    .newInstance(args)));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Initialization of Java Flight Recorder failed: " + className,
+                    e.getCause());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.debug("Java Flight Recorder is not supported: {}", className, e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.util.Locale;
+
+/**
+ * Measured stages of a run, see {@link StageMetrics}.
+ */
+public enum Stage {
+    /**
+     * Traversal of a tree with bundles, not counted to any bundle.
+     */
+    DISCOVERY(false),
+    METADATA_PARSE(true),
+    TEMPLATE_PARSE(true),
+    TRANSLATION_CHECKSUM(true),
+    /**
+     * Compression and streaming of a new archive to its location, both are done in a single pass.
+     */
+    ZIP_BUILD(true),
+    /**
+     * Copy of an already built archive from or to the cache.
+     */
+    ARCHIVE_STORE(true),
+    DELTA_BUILD(true),
+    BUNDLES_JSON_WRITE(false),
+    INDEX_WRITE(false);
+
+    private final boolean perBundle;
+
+    Stage(boolean perBundle) {
+        this.perBundle = perBundle;
+    }
+
+    /**
+     * The stage is executed for a single bundle, its wall time is added to the bundle.
+     */
+    public boolean isPerBundle() {
+        return perBundle;
+    }
+
+    /**
+     * Name used in the reports, e.g. `zip_build`.
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,15 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.util.function.Consumer;
+
+/**
+ * Observer of the measured stages, see {@link StageMetrics#setListener(StageListener)}.
+ */
+public interface StageListener {
+    /**
+     * Called on the thread of the stage when it starts.
+     *
+     * @return callback invoked with the finished measurement on the same thread
+     */
+    Consumer<StageMetrics.Measurement> stageStarted(Stage stage);
+}
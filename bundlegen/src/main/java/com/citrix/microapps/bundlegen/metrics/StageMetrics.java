@@ -0,0 +1,430 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import com.citrix.microapps.bundlegen.pojo.Type;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Wall time, CPU time, allocated bytes and I/O of the stages of a run, collected from all worker threads.
+ * <p>
+ * A stage is measured on the thread that executes it. CPU time and allocations come from {@link ThreadMXBean}, they
+ * are zero if the JVM doesn't support their measurement. Bytes read and written are counted by the stages themselves
+ * where they know them. Wall time of the stages executed for a bundle is also summed per bundle, the slowest bundles
+ * are listed in the reports.
+ * <p>
+ * The instrumented code records to the {@link #global()} instance, the overhead is few calls of the MXBean per stage.
+ * A long-running process, e.g. in watch mode, calls {@link #reset()} before every run, the reports then describe only
+ * that run.
+ */
+public class StageMetrics {
+    /**
+     * Number of bundles listed in the reports.
+     */
+    public static final int SLOWEST_BUNDLES = 10;
+
+    private static final StageMetrics GLOBAL = new StageMetrics();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter REPORT_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final Optional<com.sun.management.ThreadMXBean> ALLOCATIONS = Optional.of(THREADS)
+            .filter(com.sun.management.ThreadMXBean.class::isInstance)
+            .map(com.sun.management.ThreadMXBean.class::cast)
+            .filter(threads -> threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+    private static final String PROMETHEUS_PREFIX = "bundlegen_";
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Map<Stage, Counters> stages = new EnumMap<>(Stage.class);
+    private final ConcurrentMap<String, LongAdder> bundleWallNanos = new ConcurrentHashMap<>();
+    private volatile long startNanos = System.nanoTime();
+    private volatile Optional<StageListener> listener = Optional.empty();
+
+    public StageMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new Counters());
+        }
+    }
+
+    /**
+     * Metrics of the whole process.
+     */
+    public static StageMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Start measurement of a stage on the current thread, close it on the same thread at the end of the stage.
+     */
+    public Measurement start(Stage stage) {
+        return new Measurement(stage, Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * Start measurement of a stage executed for a path, wall time of a {@link Stage#isPerBundle()} stage is added
+     * also to the bundle.
+     *
+     * @param path bundle directory or root of a tree with bundles
+     * @param type type of the bundles
+     */
+    public Measurement start(Stage stage, String path, Type type) {
+        return new Measurement(stage, Optional.of(path), Optional.of(type));
+    }
+
+    /**
+     * Observe all stages that start from now on, e.g. to emit Java Flight Recorder events, see {@link
+     * FlightRecorder}.
+     */
+    public void setListener(StageListener listener) {
+        this.listener = Optional.of(listener);
+    }
+
+    /**
+     * Forget everything recorded so far and start a new run. Stages still running are recorded to the new run.
+     */
+    public void reset() {
+        stages.values().forEach(Counters::reset);
+        bundleWallNanos.clear();
+        startNanos = System.nanoTime();
+    }
+
+    public Counters get(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Wall time since construction or the last {@link #reset()}.
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Bundles with the longest wall time summed over their stages, the slowest first.
+     */
+    public Map<String, Long> getSlowestBundles(int limit) {
+        return bundleWallNanos.entrySet()
+                .stream()
+                .map(entry -> new BundleTime(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(BundleTime::getWallNanos).reversed()
+                        .thenComparing(BundleTime::getBundle))
+                .limit(limit)
+                .collect(Collectors.toMap(BundleTime::getBundle, BundleTime::getWallNanos,
+                        (first, second) -> first, LinkedHashMap::new));
+    }
+
+    public ObjectNode toJson() {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("elapsedNanos", getElapsedNanos());
+
+        ObjectNode stagesNode = root.putObject("stages");
+        stages.forEach((stage, counters) -> {
+            ObjectNode stageNode = stagesNode.putObject(stage.getName());
+            stageNode.put("count", counters.getCount());
+            stageNode.put("wallNanos", counters.getWallNanos());
+            stageNode.put("cpuNanos", counters.getCpuNanos());
+            stageNode.put("allocatedBytes", counters.getAllocatedBytes());
+            stageNode.put("bytesRead", counters.getBytesRead());
+            stageNode.put("bytesWritten", counters.getBytesWritten());
+        });
+
+        ArrayNode slowest = root.putArray("slowestBundles");
+        getSlowestBundles(SLOWEST_BUNDLES).forEach((bundle, wallNanos) -> slowest.addObject()
+                .put("bundle", bundle)
+                .put("wallNanos", wallNanos));
+        return root;
+    }
+
+    /**
+     * Gauges of the last run in the text exposition format, e.g. for the textfile collector of node_exporter.
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        appendGauge(text, "run_elapsed_seconds", "Wall time of the run.");
+        appendSample(text, "run_elapsed_seconds", "", seconds(getElapsedNanos()));
+
+        appendStageGauge(text, "stage_calls", "Number of executions of the stage.", Counters::getCount, false);
+        appendStageGauge(text, "stage_wall_seconds", "Wall time of the stage summed over all threads.",
+                Counters::getWallNanos, true);
+        appendStageGauge(text, "stage_cpu_seconds", "CPU time of the stage summed over all threads.",
+                Counters::getCpuNanos, true);
+        appendStageGauge(text, "stage_allocated_bytes", "Bytes allocated by the stage.",
+                Counters::getAllocatedBytes, false);
+        appendStageGauge(text, "stage_read_bytes", "Bytes read by the stage.", Counters::getBytesRead, false);
+        appendStageGauge(text, "stage_written_bytes", "Bytes written by the stage.", Counters::getBytesWritten,
+                false);
+
+        appendGauge(text, "bundle_wall_seconds", "Wall time of the slowest bundles summed over their stages.");
+        getSlowestBundles(SLOWEST_BUNDLES).forEach((bundle, wallNanos) ->
+                appendSample(text, "bundle_wall_seconds", label("bundle", bundle), seconds(wallNanos)));
+        return text.toString();
+    }
+
+    public void writeReport(Path reportJson) {
+        writeAtomically(reportJson, () -> {
+            try {
+                return REPORT_WRITER.writeValueAsBytes(toJson());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Serialization of metrics report failed", e);
+            }
+        });
+    }
+
+    /**
+     * Write the gauges, the collector never sees a partially written file.
+     */
+    public void writePrometheus(Path textFile) {
+        writeAtomically(textFile, () -> toPrometheus().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeAtomically(Path path, Supplier<byte[]> content) {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+
+            try {
+                Files.write(tempFile, content.get());
+                Files.move(tempFile, path, ATOMIC_MOVE, REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing of metrics failed: " + path, e);
+        }
+    }
+
+    private void appendStageGauge(StringBuilder text,
+                                  String name,
+                                  String help,
+                                  ToLongFunction<Counters> getter,
+                                  boolean nanos) {
+        appendGauge(text, name, help);
+        stages.forEach((stage, counters) -> {
+            long value = getter.applyAsLong(counters);
+            appendSample(text, name, label("stage", stage.getName()),
+                    nanos ? seconds(value) : String.valueOf(value));
+        });
+    }
+
+    private static void appendGauge(StringBuilder text, String name, String help) {
+        text.append("# HELP ").append(PROMETHEUS_PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(PROMETHEUS_PREFIX).append(name).append(" gauge\n");
+    }
+
+    private static void appendSample(StringBuilder text, String name, String labels, String value) {
+        text.append(PROMETHEUS_PREFIX).append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static String label(String name, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{" + name + "=\"" + escaped + "\"}";
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / NANOS_PER_SECOND);
+    }
+
+    private static long currentCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long currentAllocatedBytes() {
+        return ALLOCATIONS
+                .map(threads -> threads.getThreadAllocatedBytes(Thread.currentThread().getId()))
+                .orElse(0L);
+    }
+
+    @Override
+    public String toString() {
+        return stages.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue().getCount() > 0)
+                .map(entry -> entry.getKey().getName() + " " + entry.getValue())
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Measurement of one execution of a stage, it is recorded only once.
+     */
+    public class Measurement implements AutoCloseable {
+        private final Stage stage;
+        private final Optional<String> path;
+        private final Optional<Type> type;
+        private final Optional<Consumer<Measurement>> finishCallback;
+        private final long startWallNanos = System.nanoTime();
+        private final long startCpuNanos = currentCpuNanos();
+        private final long startAllocatedBytes = currentAllocatedBytes();
+        private long bytesRead = 0;
+        private long bytesWritten = 0;
+        private int issues = 0;
+        private boolean closed = false;
+
+        private Measurement(Stage stage, Optional<String> path, Optional<Type> type) {
+            this.stage = stage;
+            this.path = path;
+            this.type = type;
+            this.finishCallback = listener.map(stageListener -> stageListener.stageStarted(stage));
+        }
+
+        public void addBytesRead(long bytes) {
+            bytesRead += bytes;
+        }
+
+        public void addBytesWritten(long bytes) {
+            bytesWritten += bytes;
+        }
+
+        /**
+         * Validation issues found by the stage.
+         */
+        public void addIssues(int count) {
+            issues += count;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public Optional<String> getPath() {
+            return path;
+        }
+
+        public Optional<Type> getType() {
+            return type;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public int getIssues() {
+            return issues;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            long wallNanos = System.nanoTime() - startWallNanos;
+            stages.get(stage).record(wallNanos, currentCpuNanos() - startCpuNanos,
+                    currentAllocatedBytes() - startAllocatedBytes, bytesRead, bytesWritten);
+            path.filter(bundle -> stage.isPerBundle())
+                    .ifPresent(bundle -> bundleWallNanos.computeIfAbsent(bundle, key -> new LongAdder())
+                            .add(wallNanos));
+            finishCallback.ifPresent(callback -> callback.accept(this));
+        }
+    }
+
+    /**
+     * Totals of one stage.
+     */
+    public static class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder wallNanos = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+
+        void record(long wallNanos, long cpuNanos, long allocatedBytes, long bytesRead, long bytesWritten) {
+            this.count.increment();
+            this.wallNanos.add(wallNanos);
+            this.cpuNanos.add(cpuNanos);
+            this.allocatedBytes.add(allocatedBytes);
+            this.bytesRead.add(bytesRead);
+            this.bytesWritten.add(bytesWritten);
+        }
+
+        void reset() {
+            count.reset();
+            wallNanos.reset();
+            cpuNanos.reset();
+            allocatedBytes.reset();
+            bytesRead.reset();
+            bytesWritten.reset();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getWallNanos() {
+            return wallNanos.sum();
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos.sum();
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes.sum();
+        }
+
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d x, wall %d ms, CPU %d ms, %d kB allocated, %d B read, %d B written",
+                    getCount(), getWallNanos() / 1_000_000, getCpuNanos() / 1_000_000, getAllocatedBytes() / 1024,
+                    getBytesRead(), getBytesWritten());
+        }
+    }
+
+    private static class BundleTime {
+        private final String bundle;
+        private final long wallNanos;
+
+        BundleTime(String bundle, long wallNanos) {
+            this.bundle = bundle;
+            this.wallNanos = wallNanos;
+        }
+
+        String getBundle() {
+            return bundle;
+        }
+
+        long getWallNanos() {
+            return wallNanos;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.citrix.microapps.bundlegen.pojo;
+
+import java.net.URI;
+
+/**
+ * Binary patch of the archive of a bundle written to `bundles.json`, it transforms archive of the older version to
+ * the one of the bundle.
+ */
+public class OutDelta {
+    private final String fromVersion;
+    private final URI downloadUrl;
+    private final long size;
+    private final String md5Checksum;
+
+    public OutDelta(String fromVersion,
+                    URI downloadUrl,
+                    long size,
+                    String md5Checksum) {
+        this.fromVersion = fromVersion;
+        this.downloadUrl = downloadUrl;
+        this.size = size;
+        this.md5Checksum = md5Checksum;
+    }
+
+    public String getFromVersion() {
+        return fromVersion;
+    }
+
+    public URI getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getMd5Checksum() {
+        return md5Checksum;
+    }
+}
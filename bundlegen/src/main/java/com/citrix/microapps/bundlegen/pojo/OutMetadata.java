@@ -1,7 +1,10 @@
 package com.citrix.microapps.bundlegen.pojo;
 
 import java.net.URI;
+import java.util.Collections;
+import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
 
 /**
@@ -11,13 +14,26 @@ public class OutMetadata {
     private final Metadata metadata;
     private final URI downloadUrl;
     private final String md5Checksum;
+    private final List<OutDelta> deltas;
 
     public OutMetadata(Metadata metadata,
                        URI downloadUrl,
                        String md5Checksum) {
+        this(metadata, downloadUrl, md5Checksum, Collections.emptyList());
+    }
+
+    public OutMetadata(Metadata metadata,
+                       URI downloadUrl,
+                       String md5Checksum,
+                       List<OutDelta> deltas) {
         this.metadata = metadata;
         this.downloadUrl = downloadUrl;
         this.md5Checksum = md5Checksum;
+        this.deltas = deltas;
+    }
+
+    public OutMetadata withDeltas(List<OutDelta> deltas) {
+        return new OutMetadata(metadata, downloadUrl, md5Checksum, deltas);
     }
 
     @JsonUnwrapped
@@ -32,4 +48,12 @@ public class OutMetadata {
     public String getMd5Checksum() {
         return md5Checksum;
     }
+
+    /**
+     * Patches from the older versions, the field is omitted if there is none.
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<OutDelta> getDeltas() {
+        return deltas;
+    }
 }
@@ -0,0 +1,178 @@
+package com.citrix.microapps.bundlegen.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.FsBundle;
+import com.citrix.microapps.bundlegen.bundles.FsConstants;
+import com.citrix.microapps.bundlegen.pojo.App;
+import com.citrix.microapps.bundlegen.pojo.Metadata;
+import com.citrix.microapps.bundlegen.pojo.VaResolver;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static java.util.Collections.singletonMap;
+
+/**
+ * Searchable texts of one bundle grouped by language.
+ * <p>
+ * Title, description, titles of the apps and names of the VA resolvers are in {@link #DEFAULT_LANGUAGE}, translated
+ * strings are read from `i18n/*.json` files of the bundle.
+ */
+public class SearchDocument {
+    public static final String DEFAULT_LANGUAGE = "en";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final SortedMap<String, List<String>> texts;
+
+    SearchDocument(SortedMap<String, List<String>> texts) {
+        this.texts = Collections.unmodifiableSortedMap(texts);
+    }
+
+    /**
+     * @param metadata loaded metadata of the bundle
+     * @param bundle   the bundle with the translations
+     */
+    public static SearchDocument of(Metadata metadata, FsBundle bundle) {
+        return of(defaultTexts(metadata), bundle, fileParsers(bundle));
+    }
+
+    /**
+     * @param bundle loaded bundle, its translations are read through the contents shared by all stages
+     */
+    public static SearchDocument of(Bundle bundle) {
+        return of(defaultTexts(bundle.getMetadata()), bundle.getFs(), file -> bundle.createParser(file, JSON_FACTORY));
+    }
+
+    /**
+     * @param entry  entry of an already written `bundles.json`
+     * @param bundle the bundle with the translations, if still present
+     */
+    public static SearchDocument of(JsonNode entry, Optional<FsBundle> bundle) {
+        List<JsonNode> nodes = new ArrayList<>();
+        nodes.add(entry.path("title"));
+        nodes.add(entry.path("description"));
+        entry.path("apps").forEach(app -> nodes.add(app.path("title")));
+        entry.path("vaResolvers").forEach(resolver -> nodes.add(resolver.path("name")));
+
+        List<String> defaultTexts = nodes.stream()
+                .filter(JsonNode::isTextual)
+                .map(JsonNode::asText)
+                .collect(Collectors.toList());
+
+        return bundle
+                .map(fsBundle -> of(defaultTexts, fsBundle, fileParsers(fsBundle)))
+                .orElseGet(() -> new SearchDocument(new TreeMap<>(singletonMap(DEFAULT_LANGUAGE, defaultTexts))));
+    }
+
+    private static List<String> defaultTexts(Metadata metadata) {
+        return Stream.of(
+                Stream.of(metadata.getTitle(), metadata.getDescription()),
+                metadata.getApps().stream().map(App::getTitle),
+                metadata.getVaResolvers().stream().map(VaResolver::getName))
+                .flatMap(Function.identity())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static ParserFactory fileParsers(FsBundle bundle) {
+        return file -> JSON_FACTORY.createParser(bundle.getPath().resolve(file).toFile());
+    }
+
+    private static SearchDocument of(List<String> defaultTexts, FsBundle bundle, ParserFactory parsers) {
+        SortedMap<String, List<String>> texts = new TreeMap<>();
+        texts.put(DEFAULT_LANGUAGE, defaultTexts);
+
+        for (Path file : bundle.getFiles()) {
+            Optional<String> language = language(file);
+            if (language.isPresent()) {
+                texts.computeIfAbsent(language.get(), key -> new ArrayList<>())
+                        .addAll(readTranslations(parsers, bundle.getPath().resolve(file), file));
+            }
+        }
+
+        return new SearchDocument(texts);
+    }
+
+    private static Optional<String> language(Path file) {
+        String fileName = file.getFileName().toString();
+
+        return file.getNameCount() == 2
+                && file.getName(0).toString().equals(FsConstants.TRANSLATIONS_DIR)
+                && fileName.endsWith(FsConstants.TRANSLATION_EXTENSION)
+                ? Optional.of(fileName.substring(0, fileName.length() - FsConstants.TRANSLATION_EXTENSION.length()))
+                : Optional.empty();
+    }
+
+    /**
+     * All string values of the file, keys and the structure are ignored.
+     *
+     * @param path full path of the file for the error message
+     * @param file path of the file relative to the bundle
+     */
+    private static List<String> readTranslations(ParserFactory parsers, Path path, Path file) {
+        try (JsonParser parser = parsers.create(file)) {
+            List<String> strings = new ArrayList<>();
+            JsonToken token;
+
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING) {
+                    strings.add(parser.getText());
+                }
+            }
+
+            return strings;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading of translations failed: " + path, e);
+        }
+    }
+
+    /**
+     * Texts mapped by language, sorted.
+     */
+    public Map<String, List<String>> getTexts() {
+        return texts;
+    }
+
+    /**
+     * Unique terms of the texts, languages with no term are left out.
+     */
+    public SearchTerms toTerms() {
+        SortedMap<String, SortedSet<String>> terms = new TreeMap<>();
+
+        texts.forEach((language, languageTexts) -> {
+            Tokenizer tokenizer = new Tokenizer(language);
+            SortedSet<String> languageTerms = new TreeSet<>();
+            languageTexts.forEach(text -> languageTerms.addAll(tokenizer.tokenize(text)));
+
+            if (!languageTerms.isEmpty()) {
+                terms.put(language, languageTerms);
+            }
+        });
+
+        return new SearchTerms(terms);
+    }
+
+    @FunctionalInterface
+    private interface ParserFactory {
+        JsonParser create(Path file) throws IOException;
+    }
+}
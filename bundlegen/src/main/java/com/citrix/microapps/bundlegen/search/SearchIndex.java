@@ -0,0 +1,194 @@
+package com.citrix.microapps.bundlegen.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reader of the full-text index written by {@link SearchIndexBuilder}, an example of a client too.
+ * <p>
+ * Every word of the query must match a prefix of a term in the requested language or in {@link
+ * SearchDocument#DEFAULT_LANGUAGE}, each word independently. The untranslated titles and descriptions are found in
+ * all languages, also together with translated words in one query.
+ */
+public class SearchIndex {
+    private static final ObjectReader INDEX_READER = new ObjectMapper().readerFor(JsonNode.class);
+
+    private final int bundlesCount;
+    private final Map<String, Postings> languages;
+
+    private SearchIndex(int bundlesCount, Map<String, Postings> languages) {
+        this.bundlesCount = bundlesCount;
+        this.languages = Collections.unmodifiableMap(languages);
+    }
+
+    public static SearchIndex read(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            return read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading of search index failed: " + path, e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the index has unsupported version or unexpected structure
+     */
+    public static SearchIndex read(InputStream input) throws IOException {
+        JsonNode root = INDEX_READER.readValue(input);
+        int version = root.path("version").asInt();
+        if (version != SearchIndexBuilder.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported search index version: " + version);
+        }
+
+        int bundlesCount = root.path("bundlesCount").asInt();
+        Map<String, Postings> languages = new HashMap<>();
+        root.path("languages").fields().forEachRemaining(language ->
+                languages.put(language.getKey(), Postings.of(language.getValue(), bundlesCount)));
+
+        return new SearchIndex(bundlesCount, languages);
+    }
+
+    public int getBundlesCount() {
+        return bundlesCount;
+    }
+
+    public Set<String> getLanguages() {
+        return new TreeSet<>(languages.keySet());
+    }
+
+    /**
+     * Terms of every bundle in order of `bundles.json`, an index updated by {@link SearchIndexBuilder} needs to read
+     * texts only of the changed bundles.
+     */
+    public List<SearchTerms> getBundleTerms() {
+        List<SortedMap<String, SortedSet<String>>> bundles = new ArrayList<>(bundlesCount);
+        for (int i = 0; i < bundlesCount; i++) {
+            bundles.add(new TreeMap<>());
+        }
+
+        languages.forEach((language, postings) -> postings.collectTerms(language, bundles));
+
+        return bundles.stream()
+                .map(SearchTerms::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param query    words or their prefixes
+     * @param language language of the query and of the preferred texts, e.g. `de`
+     * @return ascending positions of the matching bundles in `bundles.json`, empty for a query with no word
+     */
+    public List<Integer> search(String query, String language) {
+        Set<String> words = new Tokenizer(language).tokenizeQuery(query);
+        List<Postings> searched = Stream.of(language, SearchDocument.DEFAULT_LANGUAGE)
+                .distinct()
+                .map(languages::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (words.isEmpty() || searched.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        BitSet matches = new BitSet(bundlesCount);
+        matches.set(0, bundlesCount);
+        for (String word : words) {
+            BitSet wordMatches = new BitSet(bundlesCount);
+            searched.forEach(postings -> wordMatches.or(postings.findPrefix(word)));
+            matches.and(wordMatches);
+        }
+
+        List<Integer> positions = new ArrayList<>(matches.cardinality());
+        matches.stream().forEach(positions::add);
+        return positions;
+    }
+
+    /**
+     * Sorted terms of one language with their postings.
+     */
+    private static class Postings {
+        private final String[] terms;
+        private final int[][] positions;
+
+        private Postings(String[] terms, int[][] positions) {
+            this.terms = terms;
+            this.positions = positions;
+        }
+
+        static Postings of(JsonNode language, int bundlesCount) {
+            JsonNode termsNode = language.path("terms");
+            JsonNode postingsNode = language.path("postings");
+            if (termsNode.size() != postingsNode.size()) {
+                throw new IllegalArgumentException("Search index has different count of terms and postings");
+            }
+
+            String[] terms = new String[termsNode.size()];
+            int[][] positions = new int[termsNode.size()][];
+
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = termsNode.get(i).asText();
+                if (i > 0 && terms[i - 1].compareTo(terms[i]) >= 0) {
+                    throw new IllegalArgumentException("Search index terms are not sorted: " + terms[i]);
+                }
+
+                JsonNode termPostings = postingsNode.get(i);
+                positions[i] = new int[termPostings.size()];
+                for (int j = 0; j < positions[i].length; j++) {
+                    positions[i][j] = termPostings.get(j).asInt();
+                    if (positions[i][j] < 0 || positions[i][j] >= bundlesCount) {
+                        throw new IllegalArgumentException("Search index position out of range: " + positions[i][j]);
+                    }
+                }
+            }
+
+            return new Postings(terms, positions);
+        }
+
+        /**
+         * Add every term to the terms of its bundles.
+         */
+        void collectTerms(String language, List<SortedMap<String, SortedSet<String>>> bundles) {
+            for (int i = 0; i < terms.length; i++) {
+                for (int position : positions[i]) {
+                    bundles.get(position).computeIfAbsent(language, key -> new TreeSet<>()).add(terms[i]);
+                }
+            }
+        }
+
+        /**
+         * Union of postings of all terms starting with the prefix, they are adjacent in the sorted array.
+         */
+        BitSet findPrefix(String prefix) {
+            BitSet matches = new BitSet();
+            int index = Arrays.binarySearch(terms, prefix);
+
+            for (int i = index >= 0 ? index : -index - 1; i < terms.length && terms[i].startsWith(prefix); i++) {
+                for (int position : positions[i]) {
+                    matches.set(position);
+                }
+            }
+
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.citrix.microapps.bundlegen.search;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Builder of the inverted full-text index of the catalog, see {@link SearchIndex} for its reader.
+ * <p>
+ * Documents are added in order of `bundles.json`, the postings are positions in its `bundles` array. Format of the
+ * compact JSON, terms are sorted and each of them has ascending postings:
+ * <pre>
+ * {"version":1,"bundlesCount":2,"languages":{"de":{"terms":["aufgabe",...],"postings":[[0],...]},...}}
+ * </pre>
+ */
+public class SearchIndexBuilder {
+    static final int FORMAT_VERSION = 1;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final SortedMap<String, SortedMap<String, List<Integer>>> languages = new TreeMap<>();
+    private int bundlesCount = 0;
+
+    /**
+     * Add the next bundle in order of `bundles.json`.
+     */
+    public void add(SearchDocument document) {
+        add(document.toTerms());
+    }
+
+    /**
+     * Add the next bundle in order of `bundles.json`, e.g. an unchanged one with its terms from the previous index.
+     */
+    public void add(SearchTerms terms) {
+        int position = bundlesCount++;
+
+        terms.getTerms().forEach((language, languageTerms) -> {
+            SortedMap<String, List<Integer>> postings = languages.computeIfAbsent(language, key -> new TreeMap<>());
+            for (String term : languageTerms) {
+                postings.computeIfAbsent(term, key -> new ArrayList<>()).add(position);
+            }
+        });
+    }
+
+    public int getBundlesCount() {
+        return bundlesCount;
+    }
+
+    /**
+     * Number of distinct terms summed over all languages.
+     */
+    public int getTermsCount() {
+        return languages.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Write the index to the stream and close it.
+     */
+    public void write(OutputStream output) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeNumberField("version", FORMAT_VERSION);
+            generator.writeNumberField("bundlesCount", bundlesCount);
+            generator.writeObjectFieldStart("languages");
+
+            for (Map.Entry<String, SortedMap<String, List<Integer>>> language : languages.entrySet()) {
+                generator.writeObjectFieldStart(language.getKey());
+
+                generator.writeArrayFieldStart("terms");
+                for (String term : language.getValue().keySet()) {
+                    generator.writeString(term);
+                }
+                generator.writeEndArray();
+
+                generator.writeArrayFieldStart("postings");
+                for (List<Integer> positions : language.getValue().values()) {
+                    generator.writeStartArray();
+                    for (int position : positions) {
+                        generator.writeNumber(position);
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndArray();
+
+                generator.writeEndObject();
+            }
+
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d bundles, %d languages, %d terms", bundlesCount, languages.size(), getTermsCount());
+    }
+}
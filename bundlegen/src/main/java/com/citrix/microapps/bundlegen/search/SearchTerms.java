@@ -0,0 +1,49 @@
+package com.citrix.microapps.bundlegen.search;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Unique terms of one bundle grouped by language, what {@link SearchIndexBuilder} indexes.
+ * <p>
+ * Terms of a {@link SearchDocument} are produced by {@link Tokenizer}, terms of a bundle already in an index are
+ * recovered by {@link SearchIndex#getBundleTerms()} without reading its texts again.
+ */
+public class SearchTerms {
+    private final SortedMap<String, SortedSet<String>> terms;
+
+    /**
+     * @param terms non-empty sets of terms mapped by language
+     */
+    SearchTerms(SortedMap<String, SortedSet<String>> terms) {
+        this.terms = Collections.unmodifiableSortedMap(terms);
+    }
+
+    /**
+     * Terms mapped by language, sorted.
+     */
+    public SortedMap<String, SortedSet<String>> getTerms() {
+        return terms;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SearchTerms that = (SearchTerms) o;
+
+        return terms.equals(that.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return terms.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return terms.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.citrix.microapps.bundlegen.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Split of texts to the indexed terms, the same rules apply to both the indexed texts and the queries.
+ * <p>
+ * Texts are normalized to NFKC and lower-cased by rules of their language. Words are runs of letters and digits, at
+ * least two characters long in the indexed texts. Han, kana and hangul have no spaces between words, their runs are
+ * split to overlapping bigrams and the last character alone, a query of any length then matches by prefix.
+ */
+class Tokenizer {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{[^}]*}}");
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private final Locale locale;
+
+    Tokenizer(String language) {
+        this.locale = Locale.forLanguageTag(language);
+    }
+
+    /**
+     * @return unique terms of the indexed text, sorted
+     */
+    Set<String> tokenize(String text) {
+        return tokenize(text, MIN_WORD_LENGTH);
+    }
+
+    /**
+     * @return unique prefixes of the terms to search for, single letters are allowed
+     */
+    Set<String> tokenizeQuery(String query) {
+        return tokenize(query, 1);
+    }
+
+    private Set<String> tokenize(String text, int minWordLength) {
+        // Template placeholders like `{{issue_key}}` are not visible to the users
+        String normalized = Normalizer.normalize(PLACEHOLDER.matcher(text).replaceAll(" "), Normalizer.Form.NFKC)
+                .toLowerCase(locale);
+        Set<String> terms = new TreeSet<>();
+        StringBuilder word = new StringBuilder();
+        StringBuilder ideographs = new StringBuilder();
+
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isIdeographic(codePoint)) {
+                addWord(terms, word, minWordLength);
+                ideographs.appendCodePoint(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                addIdeographs(terms, ideographs);
+                word.appendCodePoint(codePoint);
+            } else {
+                addWord(terms, word, minWordLength);
+                addIdeographs(terms, ideographs);
+            }
+        }
+
+        addWord(terms, word, minWordLength);
+        addIdeographs(terms, ideographs);
+        return terms;
+    }
+
+    private static boolean isIdeographic(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void addWord(Set<String> terms, StringBuilder word, int minWordLength) {
+        if (word.codePointCount(0, word.length()) >= minWordLength) {
+            terms.add(word.toString());
+        }
+        word.setLength(0);
+    }
+
+    private static void addIdeographs(Set<String> terms, StringBuilder ideographs) {
+        int[] codePoints = ideographs.codePoints().toArray();
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            terms.add(new String(codePoints, i, 2));
+        }
+        if (codePoints.length > 0) {
+            terms.add(new String(codePoints, codePoints.length - 1, 1));
+        }
+        ideographs.setLength(0);
+    }
+}
@@ -0,0 +1,100 @@
+package com.citrix.microapps.bundlegen.server;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single byte range from `Range` request header, RFC 7233.
+ */
+class ByteRange {
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=([0-9]{1,18})?-([0-9]{1,18})?");
+
+    /**
+     * Marker of suffix range `bytes=-N`, {@link #last} is then the length of the suffix.
+     */
+    private static final long SUFFIX = -1;
+
+    private final long first;
+    private final long last;
+
+    ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * @param header value of `Range` header
+     * @return empty if the header is malformed or has multiple ranges, the whole representation should be sent then
+     */
+    static Optional<ByteRange> parse(String header) {
+        Matcher matcher = RANGE_PATTERN.matcher(header.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        Optional<Long> first = Optional.ofNullable(matcher.group(1)).map(Long::parseLong);
+        Optional<Long> last = Optional.ofNullable(matcher.group(2)).map(Long::parseLong);
+
+        if (!first.isPresent()) {
+            return last.map(suffix -> new ByteRange(SUFFIX, suffix));
+        }
+
+        if (last.isPresent() && last.get() < first.get()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ByteRange(first.get(), last.orElse(Long.MAX_VALUE)));
+    }
+
+    /**
+     * @param size size of the whole representation
+     * @return absolute range inside the representation or empty if the range is not satisfiable
+     */
+    Optional<ByteRange> resolve(long size) {
+        if (first == SUFFIX) {
+            return last == 0 || size == 0
+                    ? Optional.empty()
+                    : Optional.of(new ByteRange(Math.max(0, size - last), size - 1));
+        }
+
+        return first >= size
+                ? Optional.empty()
+                : Optional.of(new ByteRange(first, Math.min(last, size - 1)));
+    }
+
+    long getFirst() {
+        return first;
+    }
+
+    long getLast() {
+        return last;
+    }
+
+    long getLength() {
+        return last - first + 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ByteRange that = (ByteRange) o;
+
+        if (first != that.first) return false;
+        return last == that.last;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (first ^ (first >>> 32));
+        result = 31 * result + (int) (last ^ (last >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return first + "-" + last;
+    }
+}
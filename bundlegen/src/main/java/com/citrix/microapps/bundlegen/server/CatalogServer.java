@@ -0,0 +1,407 @@
+package com.citrix.microapps.bundlegen.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVES_DIR;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLES_JSON;
+
+/**
+ * Local stand-in for the CDN, static server of the dist directory.
+ * <p>
+ * Archives use their `md5Checksum` from `bundles.json` as strong ETag, other files MD5 of their content. Conditional
+ * requests with `If-None-Match`, single byte `Range` requests and precompressed `*.gz` variants are supported, all
+ * responses are counted in {@link ServerStats}.
+ */
+public class CatalogServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogServer.class);
+
+    /**
+     * Counters of the server as JSON, the path can't collide with any generated file.
+     */
+    public static final String STATS_PATH = "/_stats";
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private static final ObjectReader JSON_READER = new ObjectMapper().readerFor(JsonNode.class);
+    private static final ObjectWriter JSON_WRITER = new ObjectMapper().writerWithDefaultPrettyPrinter();
+
+    private final Path distDir;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ServerStats stats = new ServerStats();
+
+    private final Map<Path, CachedEtag> contentEtags = new ConcurrentHashMap<>();
+    private volatile CachedArchiveEtags archiveEtags = new CachedArchiveEtags(FileTime.fromMillis(0),
+            Collections.emptyMap());
+
+    /**
+     * @param port port to listen on, 0 to choose any free one
+     */
+    public CatalogServer(Path distDir, int port) {
+        this.distDir = distDir.toAbsolutePath().normalize();
+
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Starting of HTTP server failed, port " + port, e);
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Serving {} on http://localhost:{}/", distDir, getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        logger.info("HTTP server stopped: {}", stats);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            stats.recordRequest();
+            String method = exchange.getRequestMethod();
+
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendEmpty(exchange, 405);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (STATS_PATH.equals(path)) {
+                sendStats(exchange);
+                return;
+            }
+
+            Optional<Path> file = resolveFile(path);
+            if (!file.isPresent()) {
+                sendEmpty(exchange, 404);
+                return;
+            }
+
+            sendFile(exchange, file.get());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Serving of request failed: {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the file or empty if it doesn't exist or it is outside of the dist directory
+     */
+    private Optional<Path> resolveFile(String requestPath) {
+        Path file = distDir.resolve(requestPath.replaceFirst("^/+", "")).normalize();
+
+        return file.startsWith(distDir) && Files.isRegularFile(file)
+                ? Optional.of(file)
+                : Optional.empty();
+    }
+
+    private void sendFile(HttpExchange exchange, Path file) throws IOException {
+        Headers requestHeaders = exchange.getRequestHeaders();
+        Headers responseHeaders = exchange.getResponseHeaders();
+
+        Path gzipFile = file.resolveSibling(file.getFileName() + GZIP_EXTENSION);
+        boolean hasGzipVariant = Files.isRegularFile(gzipFile);
+        boolean gzip = hasGzipVariant && acceptsGzip(requestHeaders.getFirst("Accept-Encoding"));
+        Path representation = gzip ? gzipFile : file;
+
+        String etag = gzip ? contentEtag(representation) : etag(representation);
+        long size = Files.size(representation);
+
+        responseHeaders.set("Content-Type", contentType(file));
+        responseHeaders.set("Accept-Ranges", "bytes");
+        responseHeaders.set("ETag", etag);
+        if (hasGzipVariant) {
+            responseHeaders.set("Vary", "Accept-Encoding");
+        }
+        if (gzip) {
+            responseHeaders.set("Content-Encoding", "gzip");
+        }
+
+        if (matchesAny(etag, requestHeaders.getFirst("If-None-Match"))) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+
+        Optional<ByteRange> range = Optional.ofNullable(requestHeaders.getFirst("Range"))
+                .filter(header -> isRangeApplicable(etag, requestHeaders.getFirst("If-Range")))
+                .flatMap(ByteRange::parse);
+
+        if (!range.isPresent()) {
+            send(exchange, 200, representation, new ByteRange(0, size - 1), gzip);
+            return;
+        }
+
+        Optional<ByteRange> resolved = range.get().resolve(size);
+        if (!resolved.isPresent()) {
+            responseHeaders.set("Content-Range", "bytes */" + size);
+            sendEmpty(exchange, 416);
+            return;
+        }
+
+        ByteRange part = resolved.get();
+        responseHeaders.set("Content-Range", "bytes " + part.getFirst() + "-" + part.getLast() + "/" + size);
+        send(exchange, 206, representation, part, gzip);
+    }
+
+    private void send(HttpExchange exchange, int status, Path file, ByteRange range, boolean gzip)
+            throws IOException {
+        long length = range.getLength();
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+        // Zero length means chunked encoding for HttpServer, -1 means no body
+        exchange.sendResponseHeaders(status, head || length == 0 ? -1 : length);
+        stats.recordResponse(status, head ? 0 : length, gzip);
+
+        if (head || length == 0) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             OutputStream output = exchange.getResponseBody()) {
+            WritableByteChannel target = Channels.newChannel(output);
+            long position = range.getFirst();
+            long remaining = length;
+
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new IOException("File truncated while serving: " + file);
+                }
+
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        stats.recordResponse(status, 0, false);
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        byte[] body = JSON_WRITER.writeValueAsBytes(stats.toMap());
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private String etag(Path file) throws IOException {
+        Path relative = distDir.relativize(file);
+
+        if (relative.getNameCount() == 3 && relative.getName(0).toString().equals(ARCHIVES_DIR)) {
+            Optional<String> md5 = loadArchiveEtags().get(relative.toString().replace('\\', '/'));
+            if (md5.isPresent()) {
+                return md5.get();
+            }
+        }
+
+        return contentEtag(file);
+    }
+
+    /**
+     * MD5 of the file content, cached until the file changes.
+     */
+    private String contentEtag(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Optional<String> cached = Optional.ofNullable(contentEtags.get(file))
+                .filter(entry -> entry.matches(attributes))
+                .map(entry -> entry.etag);
+
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        try (InputStream input = Files.newInputStream(file)) {
+            String etag = quote(DigestUtils.md5Hex(input));
+            contentEtags.put(file, new CachedEtag(attributes, etag));
+            return etag;
+        }
+    }
+
+    /**
+     * Archive checksums from `bundles.json`, reloaded whenever the file changes.
+     */
+    private ArchiveEtags loadArchiveEtags() throws IOException {
+        Path bundlesJson = distDir.resolve(BUNDLES_JSON);
+        if (!Files.isRegularFile(bundlesJson)) {
+            return relativePath -> Optional.empty();
+        }
+
+        FileTime modified = Files.getLastModifiedTime(bundlesJson);
+        CachedArchiveEtags cached = archiveEtags;
+        if (cached.modified.equals(modified)) {
+            return cached;
+        }
+
+        Map<String, String> etags = new HashMap<>();
+        for (JsonNode bundle : JSON_READER.<JsonNode>readValue(bundlesJson.toFile()).path("bundles")) {
+            String[] segments = URI.create(bundle.path("downloadUrl").asText()).getPath().split("/");
+
+            if (segments.length >= 3 && bundle.path("md5Checksum").isTextual()) {
+                String relativePath = String.join("/",
+                        Arrays.copyOfRange(segments, segments.length - 3, segments.length));
+                etags.put(relativePath, quote(bundle.path("md5Checksum").asText()));
+            }
+        }
+
+        cached = new CachedArchiveEtags(modified, etags);
+        archiveEtags = cached;
+        return cached;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * Weak comparison as required for `If-None-Match`.
+     */
+    static boolean matchesAny(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    /**
+     * `If-Range` with an entity tag requires strong comparison, dates are not supported and the whole
+     * representation is sent.
+     */
+    private static boolean isRangeApplicable(String etag, String ifRange) {
+        return ifRange == null || ifRange.trim().equals(etag);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.trim().split(";"))
+                .filter(parts -> parts[0].trim().equalsIgnoreCase("gzip") || parts[0].trim().equals("*"))
+                .anyMatch(parts -> Arrays.stream(parts)
+                        .skip(1)
+                        .map(String::trim)
+                        .noneMatch(parameter -> parameter.matches("[qQ]=0(\\.0{0,3})?")));
+    }
+
+    private static String contentType(Path file) {
+        String fileName = file.getFileName().toString();
+
+        if (fileName.endsWith(".json")) {
+            return "application/json";
+        } else if (fileName.endsWith(".zip")) {
+            return "application/zip";
+        } else {
+            return "application/octet-stream";
+        }
+    }
+
+    @FunctionalInterface
+    private interface ArchiveEtags {
+        /**
+         * @param relativePath path like `archives/vendor/archive.zip`
+         */
+        Optional<String> get(String relativePath);
+    }
+
+    private static class CachedArchiveEtags implements ArchiveEtags {
+        private final FileTime modified;
+        private final Map<String, String> etags;
+
+        CachedArchiveEtags(FileTime modified, Map<String, String> etags) {
+            this.modified = modified;
+            this.etags = etags;
+        }
+
+        @Override
+        public Optional<String> get(String relativePath) {
+            return Optional.ofNullable(etags.get(relativePath));
+        }
+    }
+
+    private static class CachedEtag {
+        private final long size;
+        private final FileTime modified;
+        private final String etag;
+
+        CachedEtag(BasicFileAttributes attributes, String etag) {
+            this.size = attributes.size();
+            this.modified = attributes.lastModifiedTime();
+            this.etag = etag;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && modified.equals(attributes.lastModifiedTime());
+        }
+    }
+}
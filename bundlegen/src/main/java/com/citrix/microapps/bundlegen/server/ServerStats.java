@@ -0,0 +1,84 @@
+package com.citrix.microapps.bundlegen.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of served requests, enough to estimate client bandwidth and cache hit ratio.
+ */
+public class ServerStats {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong partialContent = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong rangeNotSatisfiable = new AtomicLong();
+    private final AtomicLong gzipResponses = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    void recordRequest() {
+        requests.incrementAndGet();
+    }
+
+    void recordResponse(int status, long bodyBytes, boolean gzip) {
+        switch (status) {
+            case 200:
+                ok.incrementAndGet();
+                break;
+            case 206:
+                partialContent.incrementAndGet();
+                break;
+            case 304:
+                notModified.incrementAndGet();
+                break;
+            case 404:
+                notFound.incrementAndGet();
+                break;
+            case 416:
+                rangeNotSatisfiable.incrementAndGet();
+                break;
+            default:
+                break;
+        }
+
+        if (gzip) {
+            gzipResponses.incrementAndGet();
+        }
+
+        bytesSent.addAndGet(bodyBytes);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Snapshot of all counters, the order is stable.
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("requests", requests.get());
+        map.put("ok", ok.get());
+        map.put("partialContent", partialContent.get());
+        map.put("notModified", notModified.get());
+        map.put("notFound", notFound.get());
+        map.put("rangeNotSatisfiable", rangeNotSatisfiable.get());
+        map.put("gzipResponses", gzipResponses.get());
+        map.put("bytesSent", bytesSent.get());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Running flight recording to a file, loaded by {@link FlightRecorder}.
+ */
+class JfrRecording implements Closeable {
+    private static final String SETTINGS = "profile";
+
+    private final Recording recording;
+
+    JfrRecording(Path file) throws IOException, ParseException {
+        recording = new Recording(Configuration.getConfiguration(SETTINGS));
+        recording.setName("bundlegen");
+        recording.setDestination(file);
+        // The process often ends by System.exit(), the file is written by shutdown hook of the JVM then
+        recording.setDumpOnExit(true);
+        recording.start();
+    }
+
+    /**
+     * Stop the recording and write the file.
+     */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+    }
+}
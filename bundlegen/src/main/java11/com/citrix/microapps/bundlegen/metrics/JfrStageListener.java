@@ -0,0 +1,125 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitter of a Java Flight Recorder event for every stage, loaded by {@link FlightRecorder}. The event is only
+ * allocated and timed, its fields are filled only if it will be committed.
+ */
+class JfrStageListener implements StageListener {
+    private static final Consumer<StageMetrics.Measurement> IGNORE = measurement -> {
+    };
+
+    private static final Map<Stage, Supplier<StageEvent>> EVENTS = new EnumMap<>(Stage.class);
+
+    static {
+        EVENTS.put(Stage.DISCOVERY, DiscoveryEvent::new);
+        EVENTS.put(Stage.METADATA_PARSE, MetadataParseEvent::new);
+        EVENTS.put(Stage.TEMPLATE_PARSE, TemplateParseEvent::new);
+        EVENTS.put(Stage.TRANSLATION_CHECKSUM, TranslationChecksumEvent::new);
+        EVENTS.put(Stage.ZIP_BUILD, ZipBuildEvent::new);
+        EVENTS.put(Stage.ARCHIVE_STORE, ArchiveStoreEvent::new);
+        EVENTS.put(Stage.DELTA_BUILD, DeltaBuildEvent::new);
+        EVENTS.put(Stage.BUNDLES_JSON_WRITE, BundlesJsonWriteEvent::new);
+        EVENTS.put(Stage.INDEX_WRITE, IndexWriteEvent::new);
+    }
+
+    @Override
+    public Consumer<StageMetrics.Measurement> stageStarted(Stage stage) {
+        StageEvent event = EVENTS.get(stage).get();
+        if (!event.isEnabled()) {
+            return IGNORE;
+        }
+
+        event.begin();
+        return measurement -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = measurement.getPath().orElse("");
+                event.type = measurement.getType().map(Enum::name).orElse("");
+                event.bytesIn = measurement.getBytesRead();
+                event.bytesOut = measurement.getBytesWritten();
+                event.issues = measurement.getIssues();
+                event.commit();
+            }
+        };
+    }
+
+    @Category("Bundlegen")
+    abstract static class StageEvent extends Event {
+        @Label("Path")
+        @Description("Bundle directory or root of a tree with bundles")
+        String path;
+
+        @Label("Type")
+        @Description("DIP or HTTP")
+        String type;
+
+        @Label("Bytes In")
+        @DataAmount
+        long bytesIn;
+
+        @Label("Bytes Out")
+        @DataAmount
+        long bytesOut;
+
+        @Label("Issues")
+        @Description("Validation issues found by the stage")
+        int issues;
+    }
+
+    @Name("bundlegen.Discovery")
+    @Label("Bundle Discovery")
+    static class DiscoveryEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.MetadataParse")
+    @Label("Metadata Load")
+    static class MetadataParseEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.TemplateParse")
+    @Label("Template Load")
+    static class TemplateParseEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.TranslationChecksum")
+    @Label("Translation Validation")
+    static class TranslationChecksumEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.ZipBuild")
+    @Label("Archive Build")
+    static class ZipBuildEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.ArchiveStore")
+    @Label("Archive Store")
+    static class ArchiveStoreEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.DeltaBuild")
+    @Label("Delta Build")
+    static class DeltaBuildEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.BundlesJsonWrite")
+    @Label("Bundles JSON Write")
+    static class BundlesJsonWriteEvent extends StageEvent {
+    }
+
+    @Name("bundlegen.IndexWrite")
+    @Label("Index Write")
+    static class IndexWriteEvent extends StageEvent {
+    }
+}
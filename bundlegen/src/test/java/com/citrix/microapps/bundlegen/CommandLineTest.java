@@ -0,0 +1,57 @@
+package com.citrix.microapps.bundlegen;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandLineTest {
+    @Test
+    void positionalAndOptions() {
+        CommandLine commandLine = CommandLine.parse(new String[]{"--threads", "8", "in", "out", "link"});
+
+        assertAll(
+                () -> assertEquals(Arrays.asList("in", "out", "link"), commandLine.getPositional()),
+                () -> assertEquals(Optional.of("8"), commandLine.getOption("threads")),
+                () -> assertEquals(Optional.empty(), commandLine.getOption("unknown")),
+                () -> assertEquals(8, commandLine.getPositiveIntOption("threads", 1)),
+                () -> assertEquals(1, commandLine.getPositiveIntOption("unknown", 1))
+        );
+    }
+
+    @Test
+    void missingOptionValue() {
+        assertThatThrownBy(() -> CommandLine.parse(new String[]{"in", "out", "link", "--threads"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing value of option: --threads");
+    }
+
+    @Test
+    void invalidIntOption() {
+        CommandLine commandLine = CommandLine.parse(new String[]{"--threads", "0"});
+
+        assertThatThrownBy(() -> commandLine.getPositiveIntOption("threads", 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid value of option `--threads`: `0`, expecting positive integer");
+    }
+
+    @Test
+    void flags() {
+        CommandLine commandLine = CommandLine.parse(new String[]{"--validate-only", "in", "--threads", "2"},
+                Collections.singleton("validate-only"));
+
+        assertAll(
+                () -> assertEquals(Collections.singletonList("in"), commandLine.getPositional()),
+                () -> assertTrue(commandLine.hasFlag("validate-only")),
+                () -> assertFalse(commandLine.hasFlag("threads")),
+                () -> assertEquals(2, commandLine.getPositiveIntOption("threads", 1))
+        );
+    }
+}
@@ -1,8 +1,11 @@
 package com.citrix.microapps.bundlegen;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TestUtils {
     // Work directory for unit tests is repository root in IntelliJ Idea, but submodule root in Maven.
@@ -11,4 +14,17 @@ public class TestUtils {
     public static Path path(String path) {
         return Paths.get(PREFIX, path);
     }
+
+    public static void copyTree(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                Path copy = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(path, copy);
+                }
+            }
+        }
+    }
 }
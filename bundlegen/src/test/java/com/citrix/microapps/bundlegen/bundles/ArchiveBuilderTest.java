@@ -1,24 +1,39 @@
 package com.citrix.microapps.bundlegen.bundles;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import static com.citrix.microapps.bundlegen.TestUtils.copyTree;
 import static com.citrix.microapps.bundlegen.TestUtils.path;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -53,6 +68,28 @@ class ArchiveBuilderTest {
         return result;
     }
 
+    private List<byte[]> readEntriesInZip(byte[] content) throws IOException {
+        List<byte[]> result = new ArrayList<>();
+
+        try (ZipInputStream zipStream = new ZipInputStream(new ByteArrayInputStream(content))) {
+            while (zipStream.getNextEntry() != null) {
+                result.add(readAll(zipStream));
+            }
+        }
+
+        return result;
+    }
+
+    private static byte[] readAll(ZipInputStream zipStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = zipStream.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, count);
+        }
+        return bytes.toByteArray();
+    }
+
     /**
      * @see #TEST_BUNDLE
      */
@@ -87,6 +124,189 @@ class ArchiveBuilderTest {
         assertContent(content);
     }
 
+    @Test
+    void defaultProfileIsMax(@TempDir Path tempDir) {
+        byte[] content = new BundlesArchiver(tempDir, CompressionProfile.MAX).buildArchive(TEST_BUNDLE);
+        assertContent(content);
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionProfile.class)
+    void profilesDeterministic(CompressionProfile profile, @TempDir Path tempDir) throws Exception {
+        BundlesArchiver archiver = new BundlesArchiver(tempDir, profile);
+        byte[] first = archiver.buildArchive(TEST_BUNDLE);
+        byte[] second = archiver.buildArchive(TEST_BUNDLE);
+        byte[] reference = new BundlesArchiver(tempDir).buildArchive(TEST_BUNDLE);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(listEntriesInZip(first)).isEqualTo(listEntriesInZip(reference));
+        assertThat(readEntriesInZip(first)).containsExactlyElementsOf(readEntriesInZip(reference));
+    }
+
+    @Test
+    void adaptiveStoresTinyEntries(@TempDir Path tempDir) throws Exception {
+        Path bundleDir = tempDir.resolve("bundles/vendor/id/0.0.1");
+        Files.createDirectories(bundleDir);
+        Files.write(bundleDir.resolve("tiny.json"), "{}".getBytes(StandardCharsets.UTF_8));
+        Files.copy(TEST_BUNDLE.getPath().resolve("file.sapp"), bundleDir.resolve("file.sapp"));
+        FsBundle bundle = new FsDipBundle(bundleDir, Arrays.asList(Paths.get("tiny.json"), Paths.get("file.sapp")));
+
+        BundlesArchiver archiver = new BundlesArchiver(tempDir.resolve("archives"), CompressionProfile.ADAPTIVE);
+        BundleArchive archive = archiver.writeArchive(bundle);
+
+        try (ZipFile zip = new ZipFile(archive.getPath().toFile())) {
+            assertThat(zip.getEntry("vendor_id_0.0.1/tiny.json").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zip.getEntry("vendor_id_0.0.1/file.sapp").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        }
+        assertThat(archiver.getStats().getStoredEntries()).isEqualTo(1);
+    }
+
+    /**
+     * Reference archive built by the JDK, the entries are compressed by the levels chosen by the profile.
+     */
+    private static byte[] buildByZipOutputStream(FsBundle bundle, CompressionProfile profile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FileTime epoch = FileTime.fromMillis(0);
+
+        try (ZipOutputStream zipStream = new ZipOutputStream(bytes)) {
+            for (Path file : bundle.getFiles()) {
+                byte[] content = Files.readAllBytes(bundle.getPath().resolve(file));
+                int level = profile.chooseLevel(content);
+                ZipEntry entry = new ZipEntry(bundle.getArchiveName() + "/" + file.toString().replace('\\', '/'))
+                        .setCreationTime(epoch)
+                        .setLastAccessTime(epoch)
+                        .setLastModifiedTime(epoch);
+
+                if (level == CompressionProfile.STORED_LEVEL) {
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    entry.setCrc(crc.getValue());
+                } else {
+                    zipStream.setLevel(level);
+                }
+
+                zipStream.putNextEntry(entry);
+                zipStream.write(content);
+                zipStream.closeEntry();
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionProfile.class)
+    void sameAsZipOutputStream(CompressionProfile profile, @TempDir Path tempDir) throws Exception {
+        byte[] expected = buildByZipOutputStream(TEST_BUNDLE, profile);
+        BundlesArchiver parallel = new BundlesArchiver(tempDir, profile,
+                Optional.of(new ParallelDeflater(ParallelDeflater.DEFAULT_BLOCK_SIZE, 2)));
+
+        assertThat(new BundlesArchiver(tempDir, profile).buildArchive(TEST_BUNDLE)).isEqualTo(expected);
+        // All entries fit in a single block
+        assertThat(parallel.buildArchive(TEST_BUNDLE)).isEqualTo(expected);
+    }
+
+    @Test
+    void identicalFilesCompressedOnce(@TempDir Path tempDir) throws Exception {
+        Path versionsDir = tempDir.resolve("bundles/vendor1/bundle1");
+        copyTree(TEST_BUNDLE.getPath(), versionsDir.resolve("0.0.1"));
+        copyTree(TEST_BUNDLE.getPath(), versionsDir.resolve("0.0.2"));
+        Files.write(versionsDir.resolve("0.0.2/metadata.json"), "{\"changed\": true}".getBytes(StandardCharsets.UTF_8));
+
+        BundlesArchiver archiver = new BundlesArchiver(tempDir.resolve("archives"));
+        FsBundle first = new FsDipBundle(versionsDir.resolve("0.0.1"), TEST_BUNDLE_FILES);
+        FsBundle second = new FsDipBundle(versionsDir.resolve("0.0.2"), TEST_BUNDLE_FILES);
+
+        assertContent(archiver.buildArchive(first));
+        assertThat(archiver.getStats().getReusedEntries()).isZero();
+
+        byte[] content = archiver.buildArchive(second);
+        assertThat(content).isEqualTo(buildByZipOutputStream(second, CompressionProfile.MAX));
+        ArchiverStats stats = archiver.getStats();
+        long uniqueBytes = 7 * 112 + 315 + 1641 + 17;
+        assertThat(stats.getReusedEntries()).isEqualTo(TEST_BUNDLE_FILES.size() - 1);
+        assertThat(stats.getReusedBytes()).isEqualTo(7 * 112 + 1641);
+        assertThat(stats.getInputBytes()).isEqualTo(uniqueBytes + 7 * 112 + 1641);
+        assertThat(stats.getDedupeRatio()).isCloseTo((double) uniqueBytes / stats.getInputBytes(), within(1e-9));
+    }
+
+    @Test
+    void parallelDeflateOfLargeEntries(@TempDir Path tempDir) throws Exception {
+        FsBundle bundle = new BundlesFinder(path("../bundles"))
+                .findBundles()
+                .max(Comparator.comparing(ArchiveBuilderTest::largestFileSize))
+                .orElseThrow(IllegalStateException::new);
+        assertThat(largestFileSize(bundle)).isGreaterThan(2 * 32 * 1024);
+
+        byte[] serial = new BundlesArchiver(tempDir).buildArchive(bundle);
+        byte[] parallel = new BundlesArchiver(tempDir, CompressionProfile.MAX,
+                Optional.of(new ParallelDeflater(32 * 1024, 1))).buildArchive(bundle);
+        BundlesArchiver archiver = new BundlesArchiver(tempDir, CompressionProfile.MAX,
+                Optional.of(new ParallelDeflater(32 * 1024, 4)));
+
+        assertThat(parallel).isNotEqualTo(serial);
+        assertThat(archiver.buildArchive(bundle)).isEqualTo(parallel);
+        assertThat(archiver.getConfiguration()).isEqualTo("deflate-level-9-parallel-32768");
+        assertThat(listEntriesInZip(parallel)).isEqualTo(listEntriesInZip(serial));
+        assertThat(readEntriesInZip(parallel)).containsExactlyElementsOf(readEntriesInZip(serial));
+
+        // Central directory and CRCs are validated while reading
+        Path archivePath = archiver.storeArchive(bundle, parallel);
+        try (ZipFile zip = new ZipFile(archivePath.toFile())) {
+            assertThat(zip.size()).isEqualTo(bundle.getFiles().size());
+            zip.stream().forEach(entry -> {
+                try (InputStream input = zip.getInputStream(entry)) {
+                    while (input.read() >= 0) {
+                        // Read to the end to check CRC
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static long largestFileSize(FsBundle bundle) {
+        return bundle.getFiles()
+                .stream()
+                .mapToLong(file -> bundle.getPath().resolve(file).toFile().length())
+                .max()
+                .orElse(0);
+    }
+
+    @Test
+    void stats(@TempDir Path tempDir) {
+        BundlesArchiver archiver = new BundlesArchiver(tempDir);
+        byte[] content = archiver.buildArchive(TEST_BUNDLE);
+        BundleArchive archive = archiver.writeArchive(TEST_BUNDLE);
+        archiver.copyArchive(TEST_BUNDLE, archive.getPath());
+        ArchiverStats stats = archiver.getStats();
+
+        assertThat(stats.getArchives()).isEqualTo(2);
+        assertThat(stats.getEntries()).isEqualTo(2 * TEST_BUNDLE_FILES.size());
+        assertThat(stats.getStoredEntries()).isZero();
+        assertThat(stats.getInputBytes()).isEqualTo(2 * (7 * 112 + 315 + 1641));
+        assertThat(stats.getOutputBytes()).isEqualTo(content.length + archive.getSize());
+        // Headers of the tiny entries are bigger than what compression saves
+        assertThat(stats.getRatio()).isPositive();
+        assertThat(stats.getCpuNanos()).isPositive();
+    }
+
+    @Test
+    void resetStats(@TempDir Path tempDir) {
+        BundlesArchiver archiver = new BundlesArchiver(tempDir);
+        archiver.buildArchive(TEST_BUNDLE);
+        ArchiverStats first = archiver.getStats();
+
+        assertThat(archiver.resetStats()).isSameAs(first);
+        archiver.buildArchive(TEST_BUNDLE);
+
+        assertThat(first.getArchives()).isEqualTo(1);
+        assertThat(archiver.getStats().getArchives()).isEqualTo(1);
+    }
+
     @Test
     void directoryDoesNotExist(@TempDir Path tempDir) {
         FsBundle bundle = new FsDipBundle(path("this/path/does/not/exist"),
@@ -110,6 +330,37 @@ class ArchiveBuilderTest {
         assertContent(loadedContent);
     }
 
+    @Test
+    void writeArchive(@TempDir Path tempDir) throws Exception {
+        BundleArchive archive = new BundlesArchiver(tempDir).writeArchive(TEST_BUNDLE);
+        byte[] loadedContent = Files.readAllBytes(archive.getPath());
+
+        assertEquals(tempDir.resolve("vendor1").resolve("vendor1_bundle1_0.0.1.zip"), archive.getPath());
+        assertEquals(loadedContent.length, archive.getSize());
+        assertEquals(BundlesArchiver.md5Hex(loadedContent), archive.getMd5Hex());
+        assertContent(loadedContent);
+        assertEquals(Collections.singletonList(archive.getPath()), listFiles(tempDir.resolve("vendor1")),
+                "No temporary file should remain");
+    }
+
+    @Test
+    void writeArchiveFailure(@TempDir Path tempDir) throws Exception {
+        FsBundle bundle = new FsDipBundle(path("this/path/does/not/exist/vendor/id/0.0.1"),
+                Collections.singletonList(Paths.get("metadata.json")));
+
+        assertThatThrownBy(() -> new BundlesArchiver(tempDir).writeArchive(bundle))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("Adding of file to zip archive failed: ");
+        assertEquals(Collections.emptyList(), listFiles(tempDir.resolve("vendor")),
+                "No temporary file should remain");
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+
     @Test
     void overwriteExisting(@TempDir Path tempDir) throws Exception {
         // No exception should occur if the file is already there.
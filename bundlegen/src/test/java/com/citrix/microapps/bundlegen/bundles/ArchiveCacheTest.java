@@ -0,0 +1,152 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ArchiveCacheTest {
+    private static final FsBundle TEST_BUNDLE = new FsDipBundle(
+            path("src/test/resources/bundles/dip/vendor1/bundle1/0.0.1"),
+            Arrays.asList(
+                    Paths.get("file.sapp"),
+                    Paths.get("i18n", "en.json"),
+                    Paths.get("metadata.json")));
+
+    /**
+     * Archiver that counts the real builds.
+     */
+    private static class CountingArchiver extends BundlesArchiver {
+        private final AtomicInteger builds = new AtomicInteger();
+
+        CountingArchiver(Path archivesDir) {
+            super(archivesDir);
+        }
+
+        @Override
+        BundleArchive writeArchive(BundleContents contents) {
+            builds.incrementAndGet();
+            return super.writeArchive(contents);
+        }
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void reuseArchive(@TempDir Path tempDir) throws IOException {
+        CountingArchiver archiver = new CountingArchiver(tempDir.resolve("archives"));
+        ArchiveCache cache = new ArchiveCache(tempDir.resolve("cache"));
+
+        BundleArchive built = cache.getOrBuild(TEST_BUNDLE, archiver);
+        byte[] builtContent = Files.readAllBytes(built.getPath());
+        Files.delete(built.getPath());
+        BundleArchive cached = new ArchiveCache(tempDir.resolve("cache")).getOrBuild(TEST_BUNDLE, archiver);
+
+        assertEquals(1, archiver.builds.get());
+        assertEquals(built.getPath(), cached.getPath());
+        assertArrayEquals(builtContent, Files.readAllBytes(cached.getPath()));
+        assertEquals(built.getSize(), cached.getSize());
+        assertEquals(built.getMd5Hex(), cached.getMd5Hex());
+    }
+
+    @Test
+    void brokenEntry(@TempDir Path tempDir) throws IOException {
+        CountingArchiver archiver = new CountingArchiver(tempDir.resolve("archives"));
+        Path cacheDir = tempDir.resolve("cache");
+
+        BundleArchive built = new ArchiveCache(cacheDir).getOrBuild(TEST_BUNDLE, archiver);
+        byte[] builtContent = Files.readAllBytes(built.getPath());
+        for (Path file : listFiles(cacheDir)) {
+            Files.write(file, "broken".getBytes());
+        }
+
+        BundleArchive rebuilt = new ArchiveCache(cacheDir).getOrBuild(TEST_BUNDLE, archiver);
+        assertArrayEquals(builtContent, Files.readAllBytes(rebuilt.getPath()));
+
+        BundleArchive repaired = new ArchiveCache(cacheDir).getOrBuild(TEST_BUNDLE, archiver);
+        assertArrayEquals(builtContent, Files.readAllBytes(repaired.getPath()));
+
+        assertEquals(2, archiver.builds.get());
+        assertEquals(built.getMd5Hex(), repaired.getMd5Hex());
+    }
+
+    @Test
+    void disabled(@TempDir Path tempDir) {
+        CountingArchiver archiver = new CountingArchiver(tempDir);
+        ArchiveCache cache = ArchiveCache.disabled();
+
+        cache.getOrBuild(TEST_BUNDLE, archiver);
+        cache.getOrBuild(TEST_BUNDLE, archiver);
+
+        assertEquals(2, archiver.builds.get());
+    }
+
+    @Test
+    void fingerprintDependsOnFiles(@TempDir Path tempDir) {
+        BundlesArchiver archiver = new BundlesArchiver(tempDir);
+        FsBundle lessFiles = new FsDipBundle(TEST_BUNDLE.getPath(), TEST_BUNDLE.getFiles().subList(0, 2));
+
+        assertEquals(ArchiveCache.fingerprint(TEST_BUNDLE, archiver), ArchiveCache.fingerprint(TEST_BUNDLE, archiver));
+        assertNotEquals(ArchiveCache.fingerprint(TEST_BUNDLE, archiver), ArchiveCache.fingerprint(lessFiles, archiver));
+    }
+
+    @Test
+    void pruneUnused(@TempDir Path tempDir) throws IOException {
+        BundlesArchiver archiver = new BundlesArchiver(tempDir.resolve("archives"));
+        Path cacheDir = tempDir.resolve("cache");
+        FsBundle lessFiles = new FsDipBundle(TEST_BUNDLE.getPath(), TEST_BUNDLE.getFiles().subList(0, 2));
+
+        new ArchiveCache(cacheDir).getOrBuild(lessFiles, archiver);
+        ArchiveCache cache = new ArchiveCache(cacheDir);
+        cache.getOrBuild(TEST_BUNDLE, archiver);
+        assertEquals(4, listFiles(cacheDir).size());
+
+        cache.prune();
+
+        String fingerprint = ArchiveCache.fingerprint(TEST_BUNDLE, archiver);
+        assertEquals(Arrays.asList(cacheDir.resolve(fingerprint + ".md5"), cacheDir.resolve(fingerprint + ".zip")),
+                listFiles(cacheDir));
+    }
+
+    @Test
+    void pruneOnlyOwnFiles(@TempDir Path tempDir) throws IOException {
+        BundlesArchiver archiver = new BundlesArchiver(tempDir.resolve("archives"));
+        Path cacheDir = Files.createDirectories(tempDir.resolve("cache"));
+        String unusedFingerprint = ArchiveCache.fingerprint(
+                new FsDipBundle(TEST_BUNDLE.getPath(), TEST_BUNDLE.getFiles().subList(0, 2)), archiver);
+
+        Path foreignFile = Files.write(cacheDir.resolve("notes.txt"), new byte[]{1});
+        Path foreignZip = Files.write(cacheDir.resolve("backup.zip"), new byte[]{1});
+        Path foreignDir = Files.createDirectory(cacheDir.resolve(unusedFingerprint + ".zip.d"));
+        Path unusedEntry = Files.write(cacheDir.resolve(unusedFingerprint + ".zip"), new byte[]{1});
+        Path tempFile = Files.write(cacheDir.resolve("tmp-123" + unusedFingerprint + ".md5"), new byte[]{1});
+
+        ArchiveCache cache = new ArchiveCache(cacheDir);
+        cache.getOrBuild(TEST_BUNDLE, archiver);
+        cache.prune();
+
+        String fingerprint = ArchiveCache.fingerprint(TEST_BUNDLE, archiver);
+        assertEquals(Arrays.asList(cacheDir.resolve(fingerprint + ".md5"), cacheDir.resolve(fingerprint + ".zip"),
+                foreignZip, foreignDir, foreignFile), listFiles(cacheDir));
+        assertFalse(Files.exists(unusedEntry));
+        assertFalse(Files.exists(tempFile));
+    }
+}
@@ -0,0 +1,107 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryDeltaTest {
+    private static byte[] random(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Insert, overwrite and delete few ranges like a new version of a file would.
+     */
+    private static byte[] modify(byte[] source) {
+        byte[] inserted = "inserted text".getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[source.length + inserted.length];
+        int middle = source.length / 2;
+
+        System.arraycopy(source, 0, result, 0, middle);
+        System.arraycopy(inserted, 0, result, middle, inserted.length);
+        System.arraycopy(source, middle, result, middle + inserted.length, source.length - middle);
+        Arrays.fill(result, result.length / 4, result.length / 4 + 10, (byte) 7);
+        return Arrays.copyOfRange(result, 100, result.length);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 15, 16, 17, 1000, 100_000})
+    void randomContent(int size) {
+        byte[] source = random(size, 1);
+        byte[] target = random(size, 2);
+
+        assertThat(BinaryDelta.patch(source, BinaryDelta.diff(source, target))).isEqualTo(target);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1000, 100_000, 1_000_000})
+    void similarContent(int size) {
+        byte[] source = random(size, size);
+        byte[] target = modify(source);
+        byte[] delta = BinaryDelta.diff(source, target);
+
+        assertThat(BinaryDelta.patch(source, delta)).isEqualTo(target);
+        assertThat(delta.length).isLessThan(100);
+    }
+
+    @Test
+    void sameContent() {
+        byte[] content = random(10_000, 3);
+        byte[] delta = BinaryDelta.diff(content, content);
+
+        assertThat(BinaryDelta.patch(content, delta)).isEqualTo(content);
+        assertThat(delta.length).isLessThan(30);
+    }
+
+    @Test
+    void emptySourceOrTarget() {
+        byte[] empty = new byte[0];
+        byte[] content = random(1000, 4);
+
+        assertThat(BinaryDelta.patch(empty, BinaryDelta.diff(empty, content))).isEqualTo(content);
+        assertThat(BinaryDelta.patch(content, BinaryDelta.diff(content, empty))).isEmpty();
+        assertThat(BinaryDelta.patch(empty, BinaryDelta.diff(empty, empty))).isEmpty();
+    }
+
+    @Test
+    void deterministic() {
+        byte[] source = random(50_000, 5);
+        byte[] target = modify(source);
+
+        assertThat(BinaryDelta.diff(source, target)).isEqualTo(BinaryDelta.diff(source, target));
+    }
+
+    @Test
+    void differentSource() {
+        byte[] source = random(1000, 6);
+        byte[] delta = BinaryDelta.diff(source, modify(source));
+        byte[] otherSource = source.clone();
+        otherSource[500]++;
+
+        assertThatThrownBy(() -> BinaryDelta.patch(otherSource, delta))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different source");
+    }
+
+    @Test
+    void invalidDelta() {
+        byte[] source = random(1000, 7);
+        byte[] delta = BinaryDelta.diff(source, modify(source));
+
+        assertThatThrownBy(() -> BinaryDelta.patch(source, Arrays.copyOf(delta, delta.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid delta");
+        assertThatThrownBy(() -> BinaryDelta.patch(source, "garbage".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid delta");
+    }
+}
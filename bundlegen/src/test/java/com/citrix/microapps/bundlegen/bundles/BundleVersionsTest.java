@@ -0,0 +1,49 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BundleVersionsTest {
+    private static FsBundle dipBundle(String path) {
+        return new FsDipBundle(Paths.get(path), Collections.emptyList());
+    }
+
+    @Test
+    void ordering() {
+        List<String> versions = Stream.of("1.10", "1.2.0", "1.2", "0.9.9", "1.2.0-SNAPSHOT", "10", "1.9.99999999999")
+                .sorted(BundleVersions.COMPARATOR)
+                .collect(Collectors.toList());
+
+        assertThat(versions).containsExactly("0.9.9", "1.2.0-SNAPSHOT", "1.2", "1.2.0", "1.9.99999999999", "1.10",
+                "10");
+    }
+
+    @Test
+    void previousVersions() {
+        FsBundle v1 = dipBundle("dip/vendor/id/1.0.0");
+        FsBundle v2 = dipBundle("dip/vendor/id/1.2.0");
+        FsBundle v10 = dipBundle("dip/vendor/id/1.10.0");
+        FsBundle otherId = dipBundle("dip/vendor/other/1.1.0");
+        FsBundle otherVendor = dipBundle("dip/vendor2/id/1.1.0");
+        FsBundle invalid = dipBundle("dip/vendor/id/latest");
+        FsBundle http = new FsHttpBundle(Paths.get("http/vendor/id"), Collections.emptyList());
+
+        Map<Path, FsBundle> previous = BundleVersions.findPreviousVersions(
+                Arrays.asList(v10, otherVendor, invalid, v1, http, otherId, v2));
+
+        assertThat(previous)
+                .hasSize(2)
+                .containsEntry(v2.getPath(), v1)
+                .containsEntry(v10.getPath(), v2);
+    }
+}
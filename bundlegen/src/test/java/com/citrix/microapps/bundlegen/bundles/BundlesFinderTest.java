@@ -1,6 +1,8 @@
 package com.citrix.microapps.bundlegen.bundles;
 
+import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -10,8 +12,10 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -51,6 +55,80 @@ class BundlesFinderTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void bundlesSortedLevelByLevel(@TempDir Path tempDir) throws IOException {
+        // Plain Path.compareTo() would place `a-b` before `a`, '-' is less than '/'.
+        for (String dir : Arrays.asList("dip/a-b/id/1.0.0", "dip/a/id/1.0.0", "dip/a/id-2/1.0.0", "http/v/b", "http/v/a")) {
+            Path bundle = Files.createDirectories(tempDir.resolve(dir));
+            Files.write(bundle.resolve("metadata.json"), new byte[0]);
+        }
+
+        List<Path> actual = new BundlesFinder(tempDir)
+                .findBundles()
+                .map(bundle -> tempDir.relativize(bundle.getPath()))
+                .collect(Collectors.toList());
+
+        assertThat(actual).containsExactly(
+                Paths.get("dip/a/id/1.0.0"),
+                Paths.get("dip/a/id-2/1.0.0"),
+                Paths.get("dip/a-b/id/1.0.0"),
+                Paths.get("http/v/a"),
+                Paths.get("http/v/b"));
+    }
+
+    @Test
+    void findChangedBundles() {
+        Path bundlesDir = path("src/test/resources/bundles");
+        Path bundle = bundlesDir.resolve("dip/vendor1/bundle1/0.0.1");
+
+        ChangedBundles changed = new BundlesFinder(bundlesDir).findChangedBundles(Arrays.asList(
+                bundle.resolve("i18n/de.json"),
+                bundle.resolve("metadata.json"),
+                bundlesDir.resolve("dip/vendor1/deleted/1.0.0/metadata.json"),
+                bundlesDir.resolve("http/vendor2/bundle2/metadata.json"),
+                bundlesDir.resolve("README.md"),
+                Paths.get("pom.xml"))).get();
+
+        assertThat(changed.getUpdated())
+                .extracting(FsBundle::getPath)
+                .containsExactly(bundle, bundlesDir.resolve("http/vendor2/bundle2"));
+        assertThat(changed.getUpdated().get(0).getFiles()).hasSize(9);
+
+        assertThat(changed.getDeleted())
+                .extracting(FsBundle::getPath)
+                .containsExactly(bundlesDir.resolve("dip/vendor1/deleted/1.0.0"));
+        assertThat(changed.getDeleted().get(0).getFiles()).isEmpty();
+    }
+
+    @Test
+    void findVersions(@TempDir Path tempDir) throws IOException {
+        for (String dir : Arrays.asList("dip/v/id/1.1.0", "dip/v/id/1.0.0", "dip/v/other/1.0.0", "http/v/id")) {
+            Path bundle = Files.createDirectories(tempDir.resolve(dir));
+            Files.write(bundle.resolve("metadata.json"), new byte[0]);
+        }
+
+        BundlesFinder finder = new BundlesFinder(tempDir);
+        ChangedBundles changed = finder.findChangedBundles(Arrays.asList(
+                tempDir.resolve("dip/v/id/1.1.0/metadata.json"),
+                tempDir.resolve("dip/v/deleted/1.0.0/metadata.json"),
+                tempDir.resolve("http/v/id/metadata.json"))).get();
+
+        List<Path> actual = finder.findVersions(changed.getUpdated()).stream()
+                .map(bundle -> tempDir.relativize(bundle.getPath()))
+                .collect(Collectors.toList());
+        assertThat(actual).containsExactly(Paths.get("dip/v/id/1.0.0"), Paths.get("dip/v/id/1.1.0"));
+
+        assertThat(finder.findVersions(changed.getDeleted())).isEmpty();
+    }
+
+    @Test
+    void findChangedBundlesAboveBundles() {
+        Path bundlesDir = path("src/test/resources/bundles");
+
+        assertThat(new BundlesFinder(bundlesDir).findChangedBundles(Collections.singletonList(
+                bundlesDir.resolve("dip/vendor1/README.md")))).isEmpty();
+    }
+
     @Test
     void unexpectedFileInDirectories() {
         assertThatThrownBy(() -> findBundles(path("src/test/resources/bundles_unexpected_file")))
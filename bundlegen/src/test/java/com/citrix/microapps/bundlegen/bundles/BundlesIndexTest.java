@@ -0,0 +1,94 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BundlesIndexTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static List<OutMetadata> realBundles() {
+        URI repository = URI.create("https://example.com/bundles/archives/");
+        return new BundlesFinder(path("../bundles")).findBundles()
+                .map(fsBundle -> new OutMetadata(new BundlesLoader().loadBundle(fsBundle).getMetadata(),
+                        fsBundle.getDownloadUrl(repository), "0123456789abcdef0123456789abcdef"))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void facets() {
+        // DIP bundle with tags and all languages and HTTP bundle with English only, twice
+        List<OutMetadata> bundles = new ArrayList<>(realBundles());
+        bundles.addAll(realBundles());
+        BundlesIndex index = BundlesIndex.of(bundles);
+
+        assertEquals(4, index.getBundlesCount());
+        assertThat(index.getVendors()).containsOnlyKeys("Citrix");
+        assertThat(index.getVendors().get("Citrix")).containsExactly(0, 1, 2, 3);
+        assertThat(index.getCategories()).containsOnlyKeys("WEB_SERVICES");
+        assertThat(index.getCategories().get("WEB_SERVICES")).containsExactly(0, 2);
+        assertThat(index.getLanguages().get("en")).containsExactly(0, 1, 2, 3);
+        assertThat(index.getLanguages().get("de")).containsExactly(0, 2);
+        assertThat(index.getTags()).isNotEmpty();
+        index.getTags().values().forEach(values -> values.values()
+                .forEach(positions -> assertThat(positions).containsExactly(0, 2)));
+    }
+
+    @Test
+    void sameFromSerializedEntries() {
+        List<OutMetadata> bundles = realBundles();
+        JsonNode entries = MAPPER.valueToTree(bundles);
+
+        assertEquals(BundlesIndex.of(bundles).toJson(), BundlesIndex.of(entries).toJson());
+    }
+
+    @Test
+    void duplicateValuesCountedOnce() {
+        JsonNode entry = MAPPER.createObjectNode()
+                .put("vendor", "vendor")
+                .set("i18nLanguages", MAPPER.valueToTree(Arrays.asList("en", "en")));
+        BundlesIndex index = BundlesIndex.of(MAPPER.createArrayNode().add(entry));
+
+        assertThat(index.getLanguages().get("en")).containsExactly(0);
+    }
+
+    @Test
+    void format(@TempDir Path tempDir) throws IOException {
+        Path indexJson = tempDir.resolve(FsConstants.BUNDLES_INDEX_JSON);
+        BundlesIndex.of(realBundles()).write(indexJson);
+
+        JsonNode content = MAPPER.readTree(indexJson.toFile());
+        assertEquals(2, content.path("bundlesCount").asInt());
+        assertEquals(2, content.path("facets").path("vendor").path("Citrix").path("count").asInt());
+        assertEquals(MAPPER.valueToTree(Arrays.asList(0, 1)),
+                content.path("facets").path("vendor").path("Citrix").path("bundles"));
+        assertEquals(1, content.path("facets").path("language").path("de").path("count").asInt());
+        assertThat(Files.exists(tempDir.resolve(FsConstants.BUNDLES_INDEX_JSON + FsConstants.GZIP_EXTENSION)))
+                .isTrue();
+    }
+
+    @Test
+    void emptyCatalog() {
+        BundlesIndex index = BundlesIndex.of(Collections.emptyList());
+
+        assertEquals(0, index.getBundlesCount());
+        assertThat(index.toJson().path("facets").path("vendor").size()).isZero();
+    }
+}
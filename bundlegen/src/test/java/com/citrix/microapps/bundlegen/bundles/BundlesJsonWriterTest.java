@@ -0,0 +1,197 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.pojo.Bundles;
+import com.citrix.microapps.bundlegen.pojo.OutDelta;
+import com.citrix.microapps.bundlegen.pojo.OutMetadata;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class BundlesJsonWriterTest {
+    private static final URI BUNDLES_REPOSITORY = URI.create("https://example.com/bundles/archives/");
+
+    private static List<OutMetadata> realBundles() {
+        return new BundlesFinder(path("../bundles")).findBundles()
+                .map(fsBundle -> new OutMetadata(new BundlesLoader().loadBundle(fsBundle).getMetadata(),
+                        fsBundle.getDownloadUrl(BUNDLES_REPOSITORY),
+                        BundlesArchiver.md5Hex(fsBundle.getArchiveName().getBytes(StandardCharsets.UTF_8))))
+                .collect(Collectors.toList());
+    }
+
+    private static byte[] serializeByObjectMapper(List<OutMetadata> bundles) throws IOException {
+        return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(new Bundles(bundles));
+    }
+
+    private static void assertSameAsObjectMapper(BundlesJsonWriter writer, List<OutMetadata> bundles, Path file)
+            throws IOException {
+        writer.write(bundles, file);
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .isEqualTo(new String(serializeByObjectMapper(bundles), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void sameAsObjectMapper(@TempDir Path tempDir) throws IOException {
+        List<OutMetadata> bundles = realBundles();
+        assertThat(bundles).hasSize(2);
+
+        assertSameAsObjectMapper(new BundlesJsonWriter(), bundles, tempDir.resolve("bundles.json"));
+    }
+
+    @Test
+    void emptyCatalog(@TempDir Path tempDir) throws IOException {
+        assertSameAsObjectMapper(new BundlesJsonWriter(), Collections.emptyList(), tempDir.resolve("bundles.json"));
+    }
+
+    @Test
+    void deltas(@TempDir Path tempDir) throws IOException {
+        List<OutMetadata> bundles = new ArrayList<>(realBundles());
+        OutMetadata dip = bundles.get(0);
+        bundles.set(0, dip.withDeltas(Collections.singletonList(new OutDelta("0.2.3",
+                URI.create(dip.getDownloadUrl() + ".delta"), 1234, "0123456789abcdef0123456789abcdef"))));
+
+        assertSameAsObjectMapper(new BundlesJsonWriter(), bundles, tempDir.resolve("bundles.json"));
+    }
+
+    @Test
+    void cachedFragments(@TempDir Path tempDir) throws IOException {
+        BundlesJsonWriter writer = new BundlesJsonWriter();
+        List<OutMetadata> bundles = realBundles();
+        Path file = tempDir.resolve("bundles.json");
+
+        assertSameAsObjectMapper(writer, bundles, file);
+        assertThat(writer.getCachedCount()).isEqualTo(2);
+
+        // Repeated write copies the cached entries
+        assertSameAsObjectMapper(writer, bundles, file);
+
+        // Changed checksum is serialized again, entries of removed bundles are dropped
+        OutMetadata changed = new OutMetadata(bundles.get(0).getMetadata(), bundles.get(0).getDownloadUrl(),
+                "ffffffffffffffffffffffffffffffff");
+        assertSameAsObjectMapper(writer, Collections.singletonList(changed), file);
+        assertThat(writer.getCachedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void entriesAddedOneByOne(@TempDir Path tempDir) throws IOException {
+        List<OutMetadata> bundles = realBundles();
+        Path file = tempDir.resolve("bundles.json");
+
+        try (BundlesJsonWriter.Entries entries = new BundlesJsonWriter().open(file)) {
+            for (OutMetadata bundle : bundles) {
+                entries.add(bundle);
+            }
+
+            assertThat(entries.getCount()).isEqualTo(2);
+            assertThat(file).doesNotExist();
+            entries.finish();
+        }
+
+        assertArrayEquals(serializeByObjectMapper(bundles), Files.readAllBytes(file));
+        assertThat(listNames(tempDir)).containsExactly("bundles.json", "bundles.json.gz");
+    }
+
+    @Test
+    void unfinishedWriteKeepsPrevious(@TempDir Path tempDir) throws IOException {
+        BundlesJsonWriter writer = new BundlesJsonWriter();
+        List<OutMetadata> bundles = realBundles();
+        Path file = tempDir.resolve("bundles.json");
+        writer.write(bundles, file);
+        byte[] previous = Files.readAllBytes(file);
+
+        try (BundlesJsonWriter.Entries entries = writer.open(file)) {
+            entries.add(bundles.get(1));
+        }
+
+        assertArrayEquals(previous, Files.readAllBytes(file));
+        assertThat(listNames(tempDir)).containsExactly("bundles.json", "bundles.json.gz");
+        assertThat(writer.getCachedCount()).as("Cache of the last finished write").isEqualTo(2);
+    }
+
+    @Test
+    void jsonEntriesShareCache(@TempDir Path tempDir) throws IOException {
+        List<OutMetadata> bundles = new ArrayList<>(realBundles());
+        OutMetadata dip = bundles.get(0);
+        bundles.set(0, dip.withDeltas(Collections.singletonList(new OutDelta("0.2.3",
+                URI.create(dip.getDownloadUrl() + ".delta"), 1234, "0123456789abcdef0123456789abcdef"))));
+        JsonNode json = new ObjectMapper().valueToTree(new Bundles(bundles)).path("bundles");
+        Path file = tempDir.resolve("bundles.json");
+
+        // Not cached yet, the same output as for the POJOs
+        BundlesJsonWriter writer = new BundlesJsonWriter();
+        try (BundlesJsonWriter.Entries entries = writer.open(file)) {
+            json.forEach(entries::add);
+            entries.finish();
+        }
+        assertArrayEquals(serializeByObjectMapper(bundles), Files.readAllBytes(file));
+
+        // The cached fragments of the POJOs are copied, the modified metadata has no effect
+        writer = new BundlesJsonWriter();
+        writer.write(bundles, file);
+        json.forEach(bundle -> ((ObjectNode) bundle).put("title", "modified"));
+        try (BundlesJsonWriter.Entries entries = writer.open(file)) {
+            json.forEach(entries::add);
+            entries.finish();
+        }
+        assertArrayEquals(serializeByObjectMapper(bundles), Files.readAllBytes(file));
+        assertThat(writer.getCachedCount()).isEqualTo(2);
+    }
+
+    private static List<String> listNames(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] gunzip(Path file) throws IOException {
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    @Test
+    void gzipSibling(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("bundles.json");
+        Path gzipFile = tempDir.resolve("bundles.json.gz");
+
+        new BundlesJsonWriter().write(realBundles(), file);
+        byte[] gzip = Files.readAllBytes(gzipFile);
+        assertArrayEquals(Files.readAllBytes(file), gunzip(gzipFile));
+        assertThat(gzip.length).isLessThan((int) Files.size(file) / 2);
+
+        // Fixed header: deflate, no flags, zero modification time, maximum compression, unknown OS
+        assertThat(Arrays.copyOf(gzip, 10))
+                .containsExactly(0x1f, 0x8b, 8, 0, 0, 0, 0, 0, 2, 0xff);
+
+        // The same output of a new writer
+        new BundlesJsonWriter().write(realBundles(), file);
+        assertArrayEquals(gzip, Files.readAllBytes(gzipFile));
+    }
+}
@@ -0,0 +1,281 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static com.citrix.microapps.bundlegen.TestUtils.copyTree;
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVES_DIR;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLES_JSON;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.SEARCH_INDEX_JSON;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BundlesProcessorTest {
+    private static final URI BUNDLES_REPOSITORY = URI.create("https://example.com/bundles/archives/");
+
+    private static BundlesProcessor newProcessor(Path bundlesDir, Path distDir, int threads) {
+        return new BundlesProcessor(
+                new BundlesFinder(bundlesDir),
+                new BundlesLoader(),
+                new BundlesArchiver(distDir.resolve(ARCHIVES_DIR)),
+                ArchiveCache.disabled(),
+                distDir,
+                BUNDLES_REPOSITORY,
+                threads);
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .map(directory::relativize)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void parallelOutputSameAsSequential(@TempDir Path tempDir) throws IOException {
+        Path sequentialDir = tempDir.resolve("sequential");
+        Path parallelDir = tempDir.resolve("parallel");
+
+        assertTrue(newProcessor(path("../bundles"), sequentialDir, 1).processAllBundles());
+        assertTrue(newProcessor(path("../bundles"), parallelDir, 4).processAllBundles());
+
+        assertThat(listFiles(sequentialDir)).contains(sequentialDir.relativize(sequentialDir.resolve(BUNDLES_JSON)));
+        assertSameFiles(sequentialDir, parallelDir);
+    }
+
+    @Test
+    void stageMetricsRecorded(@TempDir Path tempDir) throws IOException {
+        StageMetrics metrics = StageMetrics.global();
+        Map<Stage, Long> counts = stageCounts(metrics);
+        long bytesWritten = metrics.get(Stage.BUNDLES_JSON_WRITE).getBytesWritten();
+
+        assertTrue(newProcessor(path("../bundles"), tempDir, 2).processAllBundles());
+
+        Map<Stage, Long> added = stageCounts(metrics);
+        added.replaceAll((stage, count) -> count - counts.get(stage));
+        assertThat(added)
+                .containsEntry(Stage.DISCOVERY, 2L)
+                .containsEntry(Stage.METADATA_PARSE, 2L)
+                .containsEntry(Stage.TEMPLATE_PARSE, 2L)
+                .containsEntry(Stage.TRANSLATION_CHECKSUM, 9L)
+                .containsEntry(Stage.ZIP_BUILD, 2L)
+                .containsEntry(Stage.ARCHIVE_STORE, 0L)
+                .containsEntry(Stage.BUNDLES_JSON_WRITE, 1L)
+                .containsEntry(Stage.INDEX_WRITE, 2L);
+
+        Path bundlesJson = tempDir.resolve(BUNDLES_JSON);
+        assertEquals(Files.size(bundlesJson) + Files.size(BundlesJsonWriter.gzipPath(bundlesJson)),
+                metrics.get(Stage.BUNDLES_JSON_WRITE).getBytesWritten() - bytesWritten);
+        assertThat(metrics.getSlowestBundles(StageMetrics.SLOWEST_BUNDLES))
+                .containsKey(path("../bundles/dip/Citrix/com.sapho.services.jira.JiraService/0.2.4").toString());
+    }
+
+    private static Map<Stage, Long> stageCounts(StageMetrics metrics) {
+        Map<Stage, Long> counts = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            counts.put(stage, metrics.get(stage).getCount());
+        }
+        return counts;
+    }
+
+    private static void assertSameFiles(Path expectedDir, Path actualDir) throws IOException {
+        List<Path> files = listFiles(expectedDir);
+        assertEquals(files, listFiles(actualDir));
+
+        for (Path file : files) {
+            assertArrayEquals(Files.readAllBytes(expectedDir.resolve(file)),
+                    Files.readAllBytes(actualDir.resolve(file)),
+                    "Files should be same on byte level: " + file);
+        }
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void changedBundlesSameAsAll(@TempDir Path tempDir) throws IOException {
+        Path bundlesDir = tempDir.resolve("bundles");
+        Path changedDir = tempDir.resolve("changed");
+        Path allDir = tempDir.resolve("all");
+        copyTree(path("../bundles"), bundlesDir);
+
+        List<FsBundle> bundles = new BundlesFinder(bundlesDir).findBundles().collect(Collectors.toList());
+        FsBundle dipBundle = bundles.get(0);
+        FsBundle httpBundle = bundles.get(1);
+        Path httpBackup = tempDir.resolve("http-backup");
+        copyTree(httpBundle.getPath(), httpBackup);
+
+        // Initial state without the HTTP bundle
+        deleteTree(httpBundle.getPath());
+        assertTrue(newProcessor(bundlesDir, changedDir, 1).processAllBundles());
+
+        // Added bundle, the file outside of the bundles is ignored
+        copyTree(httpBackup, httpBundle.getPath());
+        ChangedBundles added = new BundlesFinder(bundlesDir).findChangedBundles(Arrays.asList(
+                httpBundle.getPath().resolve("metadata.json"),
+                tempDir.resolve("README.md"))).get();
+        assertEquals(Collections.singletonList(httpBundle), added.getUpdated());
+        assertTrue(newProcessor(bundlesDir, changedDir, 1).processChangedBundles(added));
+
+        assertTrue(newProcessor(bundlesDir, allDir, 1).processAllBundles());
+        assertSameFiles(allDir, changedDir);
+
+        // Deleted bundle
+        deleteTree(dipBundle.getPath());
+        ChangedBundles deleted = new BundlesFinder(bundlesDir).findChangedBundles(Collections.singletonList(
+                dipBundle.getPath().resolve("metadata.json"))).get();
+        assertEquals(1, deleted.getDeleted().size());
+        assertTrue(newProcessor(bundlesDir, changedDir, 1).processChangedBundles(deleted));
+
+        deleteTree(allDir);
+        assertTrue(newProcessor(bundlesDir, allDir, 1).processAllBundles());
+        assertSameFiles(allDir, changedDir);
+    }
+
+    @Test
+    void changedBundlesWithoutBundlesJson(@TempDir Path tempDir) throws IOException {
+        Path changedDir = tempDir.resolve("changed");
+        Path allDir = tempDir.resolve("all");
+
+        ChangedBundles noChange = new ChangedBundles(Collections.emptyList(), Collections.emptyList());
+        assertTrue(newProcessor(path("../bundles"), changedDir, 1).processChangedBundles(noChange));
+        assertTrue(newProcessor(path("../bundles"), allDir, 1).processAllBundles());
+
+        assertSameFiles(allDir, changedDir);
+    }
+
+    @Test
+    void changedBundlesKeepTermsOfUnchanged(@TempDir Path tempDir) throws IOException {
+        Path bundlesDir = tempDir.resolve("bundles");
+        Path distDir = tempDir.resolve("dist");
+        copyTree(path("../bundles"), bundlesDir);
+
+        List<FsBundle> bundles = new BundlesFinder(bundlesDir).findBundles().collect(Collectors.toList());
+        FsBundle dipBundle = bundles.get(0);
+        FsBundle httpBundle = bundles.get(1);
+        assertTrue(newProcessor(bundlesDir, distDir, 1).processAllBundles());
+        byte[] searchIndex = Files.readAllBytes(distDir.resolve(SEARCH_INDEX_JSON));
+
+        // Reading of the unchanged bundle would fail
+        Files.write(dipBundle.getPath().resolve("i18n/de.json"), "broken".getBytes(StandardCharsets.UTF_8));
+        ChangedBundles changed = new ChangedBundles(Collections.singletonList(httpBundle), Collections.emptyList());
+        assertTrue(newProcessor(bundlesDir, distDir, 1).processChangedBundles(changed));
+        assertArrayEquals(searchIndex, Files.readAllBytes(distDir.resolve(SEARCH_INDEX_JSON)));
+
+        // All bundles are validated without the index
+        Files.delete(distDir.resolve(SEARCH_INDEX_JSON));
+        assertFalse(newProcessor(bundlesDir, distDir, 1).processChangedBundles(changed));
+    }
+
+    private static FsBundle copyVersion(Path bundlesDir, FsBundle bundle, String version) throws IOException {
+        Path copy = bundle.getPath().resolveSibling(version);
+        copyTree(bundle.getPath(), copy);
+
+        Path metadata = copy.resolve(FsConstants.METADATA_FILE);
+        String content = new String(Files.readAllBytes(metadata), StandardCharsets.UTF_8);
+        Files.write(metadata, content
+                .replace("\"version\" : \"" + bundle.getVersion().get() + "\"", "\"version\" : \"" + version + "\"")
+                .getBytes(StandardCharsets.UTF_8));
+
+        return new BundlesFinder(bundlesDir).findBundles()
+                .filter(found -> found.getPath().equals(copy))
+                .findFirst()
+                .get();
+    }
+
+    private static void assertDelta(Path distDir, FsBundle from, FsBundle to) throws IOException {
+        byte[] source = Files.readAllBytes(from.getArchivePath(distDir.resolve(ARCHIVES_DIR)));
+        byte[] target = Files.readAllBytes(to.getArchivePath(distDir.resolve(ARCHIVES_DIR)));
+        byte[] delta = Files.readAllBytes(to.getDeltaPath(distDir.resolve(ARCHIVES_DIR)));
+
+        assertArrayEquals(target, BinaryDelta.patch(source, delta));
+        assertThat(delta.length).isLessThan(target.length / 10);
+
+        JsonNode bundles = new ObjectMapper().readTree(distDir.resolve(BUNDLES_JSON).toFile()).path("bundles");
+        JsonNode entry = Stream.of(bundles.get(0), bundles.get(1), bundles.get(2))
+                .filter(node -> node.path("version").asText().equals(to.getVersion().get()))
+                .findFirst()
+                .get();
+
+        assertEquals(1, entry.path("deltas").size());
+        JsonNode outDelta = entry.path("deltas").get(0);
+        assertEquals(from.getVersion().get(), outDelta.path("fromVersion").asText());
+        assertEquals(to.getDeltaUrl(BUNDLES_REPOSITORY).toString(), outDelta.path("downloadUrl").asText());
+        assertEquals(delta.length, outDelta.path("size").asLong());
+        assertEquals(BundlesArchiver.md5Hex(delta), outDelta.path("md5Checksum").asText());
+        assertEquals(BundlesArchiver.md5Hex(target), entry.path("md5Checksum").asText());
+    }
+
+    @Test
+    void deltasBetweenVersions(@TempDir Path tempDir) throws IOException {
+        Path bundlesDir = tempDir.resolve("bundles");
+        Path changedDir = tempDir.resolve("changed");
+        Path allDir = tempDir.resolve("all");
+        copyTree(path("../bundles"), bundlesDir);
+
+        FsBundle oldVersion = new BundlesFinder(bundlesDir).findBundles().findFirst().get();
+        FsBundle newVersion = copyVersion(bundlesDir, oldVersion, "0.10.0");
+        assertTrue(newProcessor(bundlesDir, changedDir, 1).processAllBundles());
+        assertDelta(changedDir, oldVersion, newVersion);
+        assertFalse(Files.exists(oldVersion.getDeltaPath(changedDir.resolve(ARCHIVES_DIR))));
+
+        // Version added in the middle changes the delta of the newest one
+        FsBundle middleVersion = copyVersion(bundlesDir, oldVersion, "0.9.0");
+        ChangedBundles added = new BundlesFinder(bundlesDir).findChangedBundles(Collections.singletonList(
+                middleVersion.getPath().resolve("metadata.json"))).get();
+        assertTrue(newProcessor(bundlesDir, changedDir, 1).processChangedBundles(added));
+        assertDelta(changedDir, oldVersion, middleVersion);
+        assertDelta(changedDir, middleVersion, newVersion);
+
+        assertTrue(newProcessor(bundlesDir, allDir, 1).processAllBundles());
+        assertSameFiles(allDir, changedDir);
+
+        // The deleted version is skipped
+        deleteTree(middleVersion.getPath());
+        ChangedBundles deleted = new BundlesFinder(bundlesDir).findChangedBundles(Collections.singletonList(
+                middleVersion.getPath().resolve("metadata.json"))).get();
+        assertTrue(newProcessor(bundlesDir, changedDir, 1).processChangedBundles(deleted));
+
+        deleteTree(allDir);
+        assertTrue(newProcessor(bundlesDir, allDir, 1).processAllBundles());
+        assertSameFiles(allDir, changedDir);
+        assertFalse(Files.exists(middleVersion.getDeltaPath(changedDir.resolve(ARCHIVES_DIR))));
+    }
+
+    @Test
+    void validationFailure(@TempDir Path tempDir) {
+        assertFalse(newProcessor(path("src/test/resources/bundles"), tempDir, 4).processAllBundles());
+        assertFalse(Files.exists(tempDir.resolve(BUNDLES_JSON)));
+    }
+}
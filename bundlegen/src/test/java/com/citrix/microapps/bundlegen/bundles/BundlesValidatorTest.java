@@ -0,0 +1,21 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import org.junit.jupiter.api.Test;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BundlesValidatorTest {
+    @Test
+    void validBundles() {
+        assertTrue(new BundlesValidator(new BundlesFinder(path("../bundles")), new BundlesLoader())
+                .validateAllBundles(4));
+    }
+
+    @Test
+    void invalidBundles() {
+        assertFalse(new BundlesValidator(new BundlesFinder(path("src/test/resources/bundles")), new BundlesLoader())
+                .validateAllBundles(4));
+    }
+}
@@ -0,0 +1,78 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.metrics.Stage;
+import com.citrix.microapps.bundlegen.metrics.StageMetrics;
+
+import static com.citrix.microapps.bundlegen.TestUtils.copyTree;
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVES_DIR;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLES_JSON;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BundlesWatcherTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Test
+    void rebuildChangedBundle(@TempDir Path tempDir) throws Exception {
+        Path bundlesDir = tempDir.resolve("bundles");
+        Path distDir = tempDir.resolve("dist");
+        copyTree(path("../bundles"), bundlesDir);
+
+        BundlesFinder finder = new BundlesFinder(bundlesDir);
+        BundlesProcessor processor = new BundlesProcessor(finder, new BundlesLoader(),
+                new BundlesArchiver(distDir.resolve(ARCHIVES_DIR)), ArchiveCache.disabled(), distDir,
+                URI.create("https://example.com/bundles/archives/"), 2);
+        assertTrue(processor.processAllBundles());
+
+        AtomicInteger rebuilds = new AtomicInteger();
+        try (BundlesWatcher watcher = new BundlesWatcher(bundlesDir, finder, processor, 50,
+                rebuilds::incrementAndGet)) {
+            Thread thread = new Thread(watcher::watch, "watcher");
+            thread.start();
+
+            FsBundle httpBundle = finder.findBundles()
+                    .filter(bundle -> bundle instanceof FsHttpBundle)
+                    .findFirst()
+                    .get();
+            Path metadataFile = httpBundle.getMetadataPath();
+            String metadata = new String(Files.readAllBytes(metadataFile), StandardCharsets.UTF_8);
+            Files.write(metadataFile, metadata.replace("HTTP integration", "Changed title")
+                    .getBytes(StandardCharsets.UTF_8));
+
+            assertThat(waitForContent(distDir.resolve(BUNDLES_JSON), "Changed title")).isTrue();
+            assertThat(StageMetrics.global().get(Stage.DISCOVERY).getCount())
+                    .as("Only the changed bundle listed since the reset, not the whole tree")
+                    .isLessThan(2);
+
+            watcher.close();
+            thread.join(TIMEOUT_MILLIS);
+            assertThat(thread.isAlive()).isFalse();
+            assertThat(rebuilds.get()).isPositive();
+        }
+    }
+
+    private static boolean waitForContent(Path file, String expected) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            if (new String(Files.readAllBytes(file), StandardCharsets.UTF_8).contains(expected)) {
+                return true;
+            }
+
+            Thread.sleep(50);
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressionProfileTest {
+    private static byte[] json(int size) {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; builder.length() < size; i++) {
+            builder.append("\"key").append(i).append("\": \"value of the key ").append(i % 17).append("\",\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] random(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionProfile.class)
+    void names(CompressionProfile profile) {
+        assertThat(CompressionProfile.fromName(profile.getName())).contains(profile);
+    }
+
+    @Test
+    void unknownName() {
+        assertThat(CompressionProfile.fromName("MAX")).isEqualTo(Optional.empty());
+        assertThat(CompressionProfile.fromName("brotli")).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void configuration() {
+        // Cached archives of the former fixed level stay valid
+        assertThat(CompressionProfile.MAX.getConfiguration()).isEqualTo("deflate-level-9");
+        assertThat(CompressionProfile.FAST.getConfiguration()).isEqualTo("deflate-level-1");
+        assertThat(CompressionProfile.ADAPTIVE.getConfiguration()).startsWith("adaptive-");
+    }
+
+    @Test
+    void fixedLevels() {
+        byte[] content = random(100);
+        assertThat(CompressionProfile.FAST.chooseLevel(content)).isEqualTo(Deflater.BEST_SPEED);
+        assertThat(CompressionProfile.BALANCED.chooseLevel(content)).isEqualTo(6);
+        assertThat(CompressionProfile.MAX.chooseLevel(content)).isEqualTo(Deflater.BEST_COMPRESSION);
+    }
+
+    @Test
+    void adaptive() {
+        CompressionProfile profile = CompressionProfile.ADAPTIVE;
+
+        assertThat(profile.chooseLevel(new byte[0])).isEqualTo(CompressionProfile.STORED_LEVEL);
+        assertThat(profile.chooseLevel("{}".getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(CompressionProfile.STORED_LEVEL);
+        assertThat(profile.chooseLevel(random(100_000))).isEqualTo(CompressionProfile.STORED_LEVEL);
+        assertThat(profile.chooseLevel(json(1_000))).isEqualTo(Deflater.BEST_SPEED);
+        assertThat(profile.chooseLevel(json(10_000))).isEqualTo(Deflater.BEST_COMPRESSION);
+        assertThat(profile.chooseLevel(json(100_000))).isEqualTo(6);
+    }
+}
@@ -0,0 +1,65 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntryStoreTest {
+    private static CompressedEntry entry(int size) {
+        return CompressedEntry.stored(new byte[size]);
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        EntryStore store = new EntryStore(100);
+        store.put("a", entry(40));
+        store.put("b", entry(40));
+        assertTrue(store.get("a").isPresent());
+
+        store.put("c", entry(40));
+
+        assertTrue(store.get("a").isPresent());
+        assertFalse(store.get("b").isPresent(), "Least recently used");
+        assertTrue(store.get("c").isPresent());
+        assertEquals(2, store.size());
+        assertEquals(80, store.getBytes());
+    }
+
+    @Test
+    void evictMultiple() {
+        EntryStore store = new EntryStore(100);
+        store.put("a", entry(30));
+        store.put("b", entry(30));
+        store.put("c", entry(30));
+
+        store.put("d", entry(90));
+
+        assertEquals(1, store.size());
+        assertEquals(90, store.getBytes());
+        assertTrue(store.get("d").isPresent());
+    }
+
+    @Test
+    void tooLargeEntry() {
+        EntryStore store = new EntryStore(100);
+        store.put("a", entry(30));
+        CompressedEntry large = entry(101);
+
+        assertSame(large, store.put("b", large));
+        assertFalse(store.get("b").isPresent());
+        assertTrue(store.get("a").isPresent(), "Nothing evicted");
+    }
+
+    @Test
+    void firstEntryKept() {
+        EntryStore store = new EntryStore(100);
+        CompressedEntry first = entry(10);
+
+        assertSame(first, store.put("a", first));
+        assertSame(first, store.put("a", entry(10)));
+        assertEquals(10, store.getBytes());
+    }
+}
@@ -0,0 +1,117 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.pojo.Type;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileContentTest {
+    private static void assertContent(byte[] expected, FileContent content) {
+        assertEquals(expected.length, content.size());
+        assertArrayEquals(expected, content.toByteArray());
+        assertEquals(ByteBuffer.wrap(expected), content.asByteBuffer());
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        content.updateDigest(digest);
+        assertArrayEquals(DigestUtils.sha256(expected), digest.digest());
+    }
+
+    @Test
+    void smallFile(@TempDir Path tempDir) throws IOException {
+        byte[] bytes = "{\"app\": {\"b\": \"B\", \"a\": \"A\"}}".getBytes(StandardCharsets.UTF_8);
+        Path path = Files.write(tempDir.resolve("en.json"), bytes);
+
+        FileContent content = FileContent.read(path);
+        assertFalse(content.isMapped());
+        assertContent(bytes, content);
+        assertSame(content.toByteArray(), content.toByteArray(), "No copy of small file");
+        assertThat(TranslationKeysReader.read(content).get("app")).containsExactly("a", "b");
+    }
+
+    @Test
+    void largeFile(@TempDir Path tempDir) throws IOException {
+        char[] padding = new char[FileContent.MAP_THRESHOLD];
+        Arrays.fill(padding, 'x');
+        byte[] bytes = ("{\"apps\": \"" + new String(padding) + "\", \"translationChecksum\": \"ABC\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        Path path = Files.write(tempDir.resolve("file.sapp"), bytes);
+
+        FileContent content = FileContent.read(path);
+        assertTrue(content.isMapped());
+        assertFalse(content.asByteBuffer().hasArray(), "No copy in heap");
+        assertContent(bytes, content);
+        assertEquals("ABC", TemplateFileReader.read(content).getTranslationChecksum());
+        assertEquals("ABC", TemplateFileReader.read(content).getTranslationChecksum(), "Parsed again");
+    }
+
+    @Test
+    void emptyFile(@TempDir Path tempDir) throws IOException {
+        FileContent content = FileContent.read(Files.createFile(tempDir.resolve("empty.json")));
+        assertContent(new byte[0], content);
+    }
+
+    @Test
+    void sharedContents() throws IOException {
+        FsBundle bundle = new BundlesFinder(path("../bundles")).findBundles()
+                .filter(fsBundle -> fsBundle.getType() == Type.DIP)
+                .findFirst()
+                .get();
+        BundleContents contents = new BundleContents(bundle);
+
+        FileContent template = contents.get(Paths.get("file.sapp"));
+        assertTrue(template.isMapped());
+        assertSame(template, contents.get(Paths.get("file.sapp")));
+
+        FileContent metadata = contents.get(Paths.get("metadata.json"));
+        assertFalse(metadata.isMapped());
+        assertNotSame(metadata, contents.get(Paths.get("metadata.json")), "Small files are not kept");
+    }
+
+    @Test
+    void unmappedContents() throws IOException {
+        FsBundle bundle = new BundlesFinder(path("../bundles")).findBundles()
+                .filter(fsBundle -> fsBundle.getType() == Type.DIP)
+                .findFirst()
+                .get();
+        BundleContents contents = new BundlesLoader(false).loadBundle(bundle).getContents();
+
+        FileContent template = contents.get(Paths.get("file.sapp"));
+        assertFalse(template.isMapped());
+        assertNotSame(template, contents.get(Paths.get("file.sapp")), "Every stage reads its own copy");
+    }
+
+    @Test
+    void archiveOfLoadedBundle(@TempDir Path tempDir) {
+        List<FsBundle> fsBundles = new BundlesFinder(path("../bundles")).findBundles().collect(Collectors.toList());
+        BundlesLoader loader = new BundlesLoader();
+
+        for (FsBundle fsBundle : fsBundles) {
+            Bundle bundle = loader.loadBundle(fsBundle);
+            assertThat(bundle.getIssues()).isEmpty();
+
+            assertArrayEquals(new BundlesArchiver(tempDir).buildArchive(fsBundle),
+                    new BundlesArchiver(tempDir).buildArchive(bundle));
+        }
+    }
+}
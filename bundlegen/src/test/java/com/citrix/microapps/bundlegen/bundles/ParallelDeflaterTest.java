@@ -0,0 +1,172 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelDeflaterTest {
+    private static final int BLOCK_SIZE = 32 * 1024;
+
+    /**
+     * Compressible but not trivially, references cross the block boundaries.
+     */
+    private static byte[] content(int size) {
+        Random random = new Random(size);
+        StringBuilder builder = new StringBuilder(size + 100);
+        while (builder.length() < size) {
+            builder.append("{\"id\": ").append(random.nextInt(1000)).append(", \"name\": \"item ")
+                    .append(random.nextInt(50)).append("\"},\n");
+        }
+        return Arrays.copyOf(builder.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+
+    private static long crc(byte[] content, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(content, offset, length);
+        return crc.getValue();
+    }
+
+    private static byte[] inflate(byte[] deflated) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        // Raw inflate may need an extra dummy byte, see Inflater(boolean)
+        inflater.setInput(Arrays.copyOf(deflated, deflated.length + 1));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+
+        while (!inflater.finished()) {
+            int count = inflater.inflate(buffer);
+            if (count == 0 && inflater.needsInput()) {
+                throw new DataFormatException("Truncated deflate stream");
+            }
+            output.write(buffer, 0, count);
+        }
+
+        assertThat(inflater.getRemaining()).as("Data after end of stream").isLessThanOrEqualTo(1);
+        inflater.end();
+        return output.toByteArray();
+    }
+
+    /**
+     * Memory-mapped files have no array either.
+     */
+    private static ByteBuffer direct(byte[] content) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content);
+        buffer.flip();
+        return buffer;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 100, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 5 * BLOCK_SIZE + 123, 300_000})
+    void directBufferSameAsArray(int size) {
+        byte[] content = content(size);
+        ParallelDeflater deflater = new ParallelDeflater(BLOCK_SIZE, 4);
+        CompressedEntry parallel = deflater.deflate(direct(content), 6, cpuNanos -> {
+        });
+        CompressedEntry single = CompressedEntry.deflated(direct(content), 6);
+
+        assertThat(parallel.getData()).isEqualTo(deflater.deflate(content, 6).getData());
+        assertThat(parallel.getCrc()).isEqualTo(crc(content, 0, size));
+        assertThat(single.getData()).isEqualTo(CompressedEntry.deflated(content, 6).getData());
+        assertThat(single.getCrc()).isEqualTo(crc(content, 0, size));
+        assertThat(single.getSize()).isEqualTo(size);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 100, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 5 * BLOCK_SIZE + 123})
+    void deflate(int size) throws Exception {
+        byte[] content = content(size);
+        CompressedEntry deflated = new ParallelDeflater(BLOCK_SIZE, 4)
+                .deflate(content, Deflater.BEST_COMPRESSION);
+
+        assertThat(inflate(deflated.getData())).isEqualTo(content);
+        assertThat(deflated.getSize()).isEqualTo(size);
+        assertThat(deflated.getCrc()).isEqualTo(crc(content, 0, size));
+    }
+
+    @Test
+    void poolCpuTime() {
+        byte[] content = content(5 * BLOCK_SIZE);
+        AtomicLong poolCpuNanos = new AtomicLong();
+        AtomicInteger poolBlocks = new AtomicInteger();
+
+        new ParallelDeflater(BLOCK_SIZE, 2).deflate(content, 6, cpuNanos -> {
+            poolBlocks.incrementAndGet();
+            poolCpuNanos.addAndGet(cpuNanos);
+        });
+
+        // The first block is compressed by the calling thread
+        assertThat(poolBlocks.get()).isEqualTo(4);
+        assertThat(poolCpuNanos.get()).isPositive();
+    }
+
+    @Test
+    void independentOfThreads() {
+        byte[] content = content(10 * BLOCK_SIZE);
+        byte[] single = new ParallelDeflater(BLOCK_SIZE, 1).deflate(content, 6).getData();
+
+        for (int threads = 2; threads <= 8; threads *= 2) {
+            ParallelDeflater deflater = new ParallelDeflater(BLOCK_SIZE, threads);
+            for (int i = 0; i < 5; i++) {
+                assertThat(deflater.deflate(content, 6).getData()).isEqualTo(single);
+            }
+        }
+    }
+
+    @Test
+    void singleBlockSameAsDeflater() {
+        byte[] content = content(BLOCK_SIZE);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(content);
+        deflater.finish();
+        byte[] buffer = new byte[2 * BLOCK_SIZE];
+        int count = deflater.deflate(buffer);
+        deflater.end();
+
+        assertThat(new ParallelDeflater(BLOCK_SIZE, 2).deflate(content, Deflater.BEST_COMPRESSION).getData())
+                .isEqualTo(Arrays.copyOf(buffer, count));
+    }
+
+    @Test
+    void dictionaryImprovesRatio() {
+        byte[] content = content(8 * BLOCK_SIZE);
+        int parallel = new ParallelDeflater(BLOCK_SIZE, 4).deflate(content, 6).getData().length;
+        int serial = new ParallelDeflater(content.length, 1).deflate(content, 6).getData().length;
+
+        // Only the sync flush markers and resets of the block statistics
+        assertThat(parallel).isLessThan(serial + serial / 50);
+    }
+
+    @Test
+    void combineCrc() {
+        byte[] content = content(100_000);
+
+        for (int split : new int[]{0, 1, 7, 4096, 65_536, 99_999, 100_000}) {
+            long combined = ParallelDeflater.combineCrc(crc(content, 0, split),
+                    crc(content, split, content.length - split), content.length - split);
+            assertThat(combined).as("Split at %d", split).isEqualTo(crc(content, 0, content.length));
+        }
+    }
+
+    @Test
+    void tooSmallBlock() {
+        assertThatThrownBy(() -> new ParallelDeflater(1024, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Block size should be at least");
+    }
+}
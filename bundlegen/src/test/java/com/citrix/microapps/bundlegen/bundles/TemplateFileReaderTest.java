@@ -0,0 +1,75 @@
+package com.citrix.microapps.bundlegen.bundles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TemplateFileReaderTest {
+    private static Path write(Path directory, String content) throws IOException {
+        return Files.write(directory.resolve("file.sapp"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Stream<Arguments> readOkProvider() {
+        return Stream.of(
+                Arguments.of("{\"translationChecksum\": \"ABC\"}", "ABC"),
+                Arguments.of("{\"applications\": [{\"translationChecksum\": \"nested\"}], " +
+                        "\"other\": {\"a\": {\"b\": [1, 2]}}, \"translationChecksum\": \"ABC\"}", "ABC"),
+                Arguments.of("{\"translationChecksum\": 42}", "42"),
+                Arguments.of("{\"translationChecksum\": null}", "")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("readOkProvider")
+    void readOk(String content, String expectedChecksum, @TempDir Path tempDir) throws IOException {
+        assertEquals(expectedChecksum, TemplateFileReader.read(write(tempDir, content)).getTranslationChecksum());
+    }
+
+    private static Stream<Arguments> readIssuesProvider() {
+        return Stream.of(
+                Arguments.of("{\"applications\": [{\"translationChecksum\": \"nested\"}]}",
+                        "Missing required property 'translationChecksum'"),
+                Arguments.of("[\"translationChecksum\"]",
+                        "Unexpected token START_ARRAY, expecting START_OBJECT"),
+                Arguments.of("{\"translationChecksum\": {}}",
+                        "Cannot read property 'translationChecksum' as string from token START_OBJECT"),
+                Arguments.of("{\"applications\": [",
+                        "Unexpected end-of-input"),
+                // The rest of file is still checked after the field is found.
+                Arguments.of("{\"translationChecksum\": \"ABC\", broken",
+                        "Unexpected character ('b'"),
+                Arguments.of("{\"translationChecksum\": \"ABC\", \"applications\": [{}",
+                        "Unexpected end-of-input")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("readIssuesProvider")
+    void readIssues(String content, String expectedMessage, @TempDir Path tempDir) throws IOException {
+        Path path = write(tempDir, content);
+
+        assertThatThrownBy(() -> TemplateFileReader.read(path))
+                .isInstanceOf(JsonProcessingException.class)
+                .hasMessageContaining(expectedMessage);
+    }
+
+    @Test
+    void readBundleTemplate() throws IOException {
+        Path path = path("src/test/resources/bundles/dip/vendor1/bundle1/0.0.1/file.sapp");
+        assertEquals("C0F2F04FD59370AC01C7525DAB3163D7", TemplateFileReader.read(path).getTranslationChecksum());
+    }
+}
@@ -1,11 +1,28 @@
 package com.citrix.microapps.bundlegen.bundles;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import com.citrix.microapps.bundlegen.pojo.ModelTranslation;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class TranslationValidatorTest {
@@ -19,4 +36,73 @@ class TranslationValidatorTest {
 
         assertEquals(translationChecksum, new TranslationValidator(translationModel).checksum().get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamedChecksumSameAsBound() throws IOException {
+        List<Path> translationFiles;
+        try (Stream<Path> paths = Files.walk(path("../bundles"))) {
+            translationFiles = paths
+                    .filter(path -> path.getParent().getFileName().toString().equals("i18n"))
+                    .collect(Collectors.toList());
+        }
+
+        assertThat(translationFiles).isNotEmpty();
+        for (Path file : translationFiles) {
+            ModelTranslation bound = new ObjectMapper().readValue(file.toFile(), ModelTranslation.class);
+
+            assertThat(TranslationValidator.checksum(file))
+                    .as(file.toString())
+                    .isEqualTo(legacyChecksum(bound))
+                    .isEqualTo(new TranslationValidator(bound).checksum());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "{\"app\": {}}",
+            "{\"app\": {\"k\": \"v\"}, \"app\": {\"k2\": 1}}",
+            "{\"b\": {\"z\": \"1\", \"a\": null, \"ž\": true}, \"a\": {\"y\": \"x\", \"y\": \"x\"}, \"c\": {}}",
+    })
+    void streamedChecksumEdgeCases(String content, @TempDir Path tempDir) throws IOException {
+        Path file = Files.write(tempDir.resolve("en.json"), content.getBytes(StandardCharsets.UTF_8));
+        ModelTranslation bound = new ObjectMapper().readValue(file.toFile(), ModelTranslation.class);
+
+        assertThat(TranslationValidator.checksum(file)).isEqualTo(legacyChecksum(bound));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "[]",
+            "{\"app\": []}",
+            "{\"app\": \"text\"}",
+            "{\"app\": {\"k\": {\"nested\": \"v\"}}}",
+            "{\"app\": {\"k\": [\"v\"]}}",
+            "{\"app\": {\"k\": \"v\"",
+    })
+    void invalidTranslationFile(String content, @TempDir Path tempDir) throws IOException {
+        Path file = Files.write(tempDir.resolve("en.json"), content.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> TranslationValidator.checksum(file))
+                .isInstanceOf(IOException.class);
+    }
+
+    /**
+     * The original implementation, the optimized one must produce exactly the same results.
+     */
+    private static Optional<String> legacyChecksum(ModelTranslation modelTranslation) {
+        if (modelTranslation.getAppTranslations().isEmpty()) {
+            return Optional.empty();
+        }
+
+        String hashes = modelTranslation.getAppTranslations()
+                .entrySet()
+                .stream()
+                .map(entry -> DigestUtils.md5Hex(format("%s-%s", entry.getKey(),
+                        entry.getValue().keySet().stream().sorted().collect(Collectors.joining(",")))))
+                .sorted()
+                .collect(Collectors.joining());
+
+        return Optional.of(DigestUtils.md5Hex(hashes + "Citrix").toUpperCase());
+    }
+}
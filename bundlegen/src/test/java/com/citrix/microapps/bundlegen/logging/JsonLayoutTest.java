@@ -0,0 +1,74 @@
+package com.citrix.microapps.bundlegen.logging;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.joran.spi.JoranException;
+import ch.qos.logback.core.status.Status;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class JsonLayoutTest {
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("com.citrix.microapps.bundlegen.Test");
+
+    @Test
+    void event() throws IOException {
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+                "Bundle archive created: {}, {} B", null, new Object[]{"vendor/\"bundle\"\n", 42});
+        event.setThreadName("worker-1");
+        event.setTimeStamp(1_571_227_200_123L);
+
+        String line = new JsonLayout().doLayout(event);
+        assertThat(line).endsWith("}\n").containsOnlyOnce("\n");
+
+        JsonNode json = new ObjectMapper().readTree(line);
+        assertEquals("2019-10-16T12:00:00.123Z", json.path("timestamp").asText());
+        assertEquals("INFO", json.path("level").asText());
+        assertEquals("com.citrix.microapps.bundlegen.Test", json.path("logger").asText());
+        assertEquals("worker-1", json.path("thread").asText());
+        assertEquals("Bundle archive created: vendor/\"bundle\"\n, 42 B", json.path("message").asText());
+        assertFalse(json.has("exception"));
+    }
+
+    @Test
+    void exception() throws IOException {
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.WARN, "Pruning failed",
+                new IllegalStateException("Broken"), null);
+
+        JsonNode json = new ObjectMapper().readTree(new JsonLayout().doLayout(event));
+        assertEquals("WARN", json.path("level").asText());
+        assertThat(json.path("exception").asText())
+                .startsWith("java.lang.IllegalStateException: Broken")
+                .contains("at com.citrix.microapps.bundlegen.logging.JsonLayoutTest.exception");
+    }
+
+    @Test
+    void productionConfiguration() throws JoranException {
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(getClass().getResource("/logback-production.xml"));
+
+        assertThat(context.getStatusManager().getCopyOfStatusList())
+                .allSatisfy(status -> assertThat(status.getLevel()).isLessThan(Status.WARN));
+
+        AsyncAppender async = (AsyncAppender) context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender("ASYNC");
+        assertFalse(async.isIncludeCallerData());
+        assertEquals(0, async.getDiscardingThreshold());
+        assertThat(async.getAppender("STDOUT")).isNotNull();
+        assertEquals(Level.INFO, context.getLogger("com.citrix.microapps.bundlegen").getLevel());
+
+        context.stop();
+    }
+}
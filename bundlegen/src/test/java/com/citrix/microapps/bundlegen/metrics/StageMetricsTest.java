@@ -0,0 +1,174 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.pojo.Type;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StageMetricsTest {
+    @Test
+    void recordStages() {
+        StageMetrics metrics = new StageMetrics();
+
+        try (StageMetrics.Measurement measurement = metrics.start(Stage.ZIP_BUILD, "bundle1", Type.DIP)) {
+            measurement.addBytesRead(100);
+            measurement.addBytesRead(20);
+            measurement.addBytesWritten(50);
+        }
+
+        StageMetrics.Measurement closedTwice = metrics.start(Stage.ZIP_BUILD, "bundle2", Type.HTTP);
+        closedTwice.close();
+        closedTwice.close();
+
+        StageMetrics.Counters counters = metrics.get(Stage.ZIP_BUILD);
+        assertEquals(2, counters.getCount());
+        assertEquals(120, counters.getBytesRead());
+        assertEquals(50, counters.getBytesWritten());
+        assertThat(counters.getWallNanos()).isPositive();
+        assertEquals(0, metrics.get(Stage.DISCOVERY).getCount());
+        assertThat(metrics.toString()).startsWith("zip_build 2 x, wall ");
+    }
+
+    @Test
+    void allocatedBytes() {
+        StageMetrics metrics = new StageMetrics();
+
+        try (StageMetrics.Measurement ignored = metrics.start(Stage.METADATA_PARSE)) {
+            assertThat(new byte[1024 * 1024]).hasSize(1024 * 1024);
+        }
+
+        assertThat(metrics.get(Stage.METADATA_PARSE).getAllocatedBytes()).isGreaterThanOrEqualTo(1024 * 1024);
+    }
+
+    @Test
+    void slowestBundles() {
+        StageMetrics metrics = new StageMetrics();
+        measure(metrics, "fast", 0);
+        measure(metrics, "slow", 20);
+        measure(metrics, "medium", 5);
+        measure(metrics, "medium", 5);
+
+        assertThat(metrics.getSlowestBundles(2)).containsOnlyKeys("slow", "medium");
+        assertThat(metrics.getSlowestBundles(10).keySet()).containsExactly("slow", "medium", "fast");
+    }
+
+    @Test
+    void discoveryNotCountedToBundles() {
+        StageMetrics metrics = new StageMetrics();
+        try (StageMetrics.Measurement ignored = metrics.start(Stage.DISCOVERY, "bundles/dip", Type.DIP)) {
+            assertEquals(0, metrics.get(Stage.DISCOVERY).getCount(), "Recorded on close");
+        }
+
+        assertEquals(1, metrics.get(Stage.DISCOVERY).getCount());
+        assertThat(metrics.getSlowestBundles(10)).isEmpty();
+    }
+
+    @Test
+    void reset() throws InterruptedException {
+        StageMetrics metrics = new StageMetrics();
+        StageMetrics.Measurement running = metrics.start(Stage.ZIP_BUILD, "bundle2", Type.DIP);
+        measure(metrics, "bundle1", 0);
+        Thread.sleep(5);
+
+        long elapsedNanos = metrics.getElapsedNanos();
+        metrics.reset();
+        assertThat(metrics.getElapsedNanos()).isLessThan(elapsedNanos);
+        assertEquals(0, metrics.get(Stage.ZIP_BUILD).getCount());
+        assertThat(metrics.getSlowestBundles(10)).isEmpty();
+        assertEquals("", metrics.toString());
+
+        running.close();
+        assertEquals(1, metrics.get(Stage.ZIP_BUILD).getCount(), "Recorded to the new run");
+        assertThat(metrics.getSlowestBundles(10)).containsOnlyKeys("bundle2");
+    }
+
+    @Test
+    void listener() {
+        StageMetrics metrics = new StageMetrics();
+        List<String> events = new ArrayList<>();
+        metrics.setListener(stage -> {
+            events.add("start " + stage.getName());
+            return measurement -> events.add(String.format("end %s %s %s %d %d %d",
+                    measurement.getStage().getName(), measurement.getPath().orElse("-"),
+                    measurement.getType().map(Type::name).orElse("-"), measurement.getBytesRead(),
+                    measurement.getBytesWritten(), measurement.getIssues()));
+        });
+
+        try (StageMetrics.Measurement measurement = metrics.start(Stage.METADATA_PARSE, "vendor/bundle", Type.DIP)) {
+            measurement.addBytesRead(10);
+            measurement.addIssues(2);
+        }
+        metrics.start(Stage.INDEX_WRITE).close();
+
+        assertThat(events).containsExactly(
+                "start metadata_parse",
+                "end metadata_parse vendor/bundle DIP 10 0 2",
+                "start index_write",
+                "end index_write - - 0 0 0");
+    }
+
+    private static void measure(StageMetrics metrics, String bundle, long sleepMillis) {
+        try (StageMetrics.Measurement ignored = metrics.start(Stage.TEMPLATE_PARSE, bundle, Type.DIP)) {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void writeReport(@TempDir Path tempDir) throws IOException {
+        StageMetrics metrics = new StageMetrics();
+        try (StageMetrics.Measurement measurement = metrics.start(Stage.DELTA_BUILD, "vendor/bundle", Type.DIP)) {
+            measurement.addBytesWritten(7);
+        }
+
+        Path reportJson = tempDir.resolve("reports/metrics.json");
+        metrics.writeReport(reportJson);
+
+        JsonNode report = new ObjectMapper().readTree(reportJson.toFile());
+        assertThat(report.path("stages").size()).isEqualTo(Stage.values().length);
+        assertEquals(1, report.path("stages").path("delta_build").path("count").asLong());
+        assertEquals(7, report.path("stages").path("delta_build").path("bytesWritten").asLong());
+        assertEquals(0, report.path("stages").path("discovery").path("count").asLong());
+        assertEquals("vendor/bundle", report.path("slowestBundles").path(0).path("bundle").asText());
+        assertThat(report.path("elapsedNanos").asLong()).isPositive();
+        assertThat(tempDir.resolve("reports")).isDirectoryContaining(path -> path.equals(reportJson));
+    }
+
+    @Test
+    void writePrometheus(@TempDir Path tempDir) throws IOException {
+        StageMetrics metrics = new StageMetrics();
+        try (StageMetrics.Measurement measurement = metrics.start(Stage.ZIP_BUILD, "C:\\bundle \"1\"",
+                Type.HTTP)) {
+            measurement.addBytesRead(42);
+        }
+
+        Path textFile = tempDir.resolve("bundlegen.prom");
+        metrics.writePrometheus(textFile);
+
+        String text = new String(Files.readAllBytes(textFile), StandardCharsets.UTF_8);
+        assertThat(text)
+                .contains("# TYPE bundlegen_stage_wall_seconds gauge\n")
+                .contains("bundlegen_stage_calls{stage=\"zip_build\"} 1\n")
+                .contains("bundlegen_stage_calls{stage=\"discovery\"} 0\n")
+                .contains("bundlegen_stage_read_bytes{stage=\"zip_build\"} 42\n")
+                .contains("bundlegen_bundle_wall_seconds{bundle=\"C:\\\\bundle \\\"1\\\"\"} ")
+                .endsWith("\n");
+
+        for (String line : text.split("\n")) {
+            assertThat(line).matches("# (HELP|TYPE) bundlegen_\\w+ .+|bundlegen_\\w+(\\{.+})? [0-9.E-]+");
+        }
+    }
+}
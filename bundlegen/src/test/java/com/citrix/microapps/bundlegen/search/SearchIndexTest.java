@@ -0,0 +1,144 @@
+package com.citrix.microapps.bundlegen.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.citrix.microapps.bundlegen.bundles.Bundle;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchIndexTest {
+    /**
+     * The real catalog, the DIP JIRA bundle is at position 0, the HTTP one at 1.
+     */
+    private static List<Bundle> realBundles() {
+        BundlesLoader loader = new BundlesLoader();
+        return new BundlesFinder(path("../bundles")).findBundles()
+                .map(loader::loadBundle)
+                .collect(Collectors.toList());
+    }
+
+    private static byte[] build(List<SearchDocument> documents) throws IOException {
+        SearchIndexBuilder builder = new SearchIndexBuilder();
+        documents.forEach(builder::add);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        builder.write(output);
+        return output.toByteArray();
+    }
+
+    private static SearchIndex realIndex() throws IOException {
+        byte[] content = build(realBundles().stream()
+                .map(bundle -> SearchDocument.of(bundle.getMetadata(), bundle.getFs()))
+                .collect(Collectors.toList()));
+        return SearchIndex.read(new ByteArrayInputStream(content));
+    }
+
+    @Test
+    void searchMetadata() throws IOException {
+        SearchIndex index = realIndex();
+
+        assertEquals(2, index.getBundlesCount());
+        assertThat(index.getLanguages()).contains("en", "de", "ja", "zh-CN");
+        assertThat(index.search("integration", "en")).containsExactly(0, 1);
+        assertThat(index.search("JIRA integration", "en")).containsExactly(0);
+        assertThat(index.search("ServiceDesk lookup", "en")).containsExactly(0);
+        assertThat(index.search("blank microapp", "en")).containsExactly(1);
+        assertThat(index.search("jira blank", "en")).isEmpty();
+        assertThat(index.search("unknown", "en")).isEmpty();
+        assertThat(index.search(" - ", "en")).isEmpty();
+    }
+
+    @Test
+    void searchByPrefix() throws IOException {
+        SearchIndex index = realIndex();
+
+        assertThat(index.search("ji", "en")).containsExactly(0);
+        assertThat(index.search("j", "en")).containsExactly(0);
+        assertThat(index.search("integ", "en")).containsExactly(0, 1);
+    }
+
+    @Test
+    void searchTranslations() throws IOException {
+        SearchIndex index = realIndex();
+
+        assertThat(index.search("Unteraufgabe", "de")).containsExactly(0);
+        assertThat(index.search("ticketschl", "de")).containsExactly(0);
+        assertThat(index.search("サブタスク", "ja")).containsExactly(0);
+        assertThat(index.search("タ", "ja")).containsExactly(0);
+        // Texts of other languages are not found, English is searched in all of them
+        assertThat(index.search("Unteraufgabe", "fr")).isEmpty();
+        assertThat(index.search("jira", "de")).containsExactly(0);
+        assertThat(index.search("jira", "xx")).containsExactly(0);
+    }
+
+    @Test
+    void searchMixedLanguages() throws IOException {
+        SearchIndex index = SearchIndex.read(new ByteArrayInputStream(build(Arrays.asList(
+                document("Expense approval", "Spesen genehmigen"),
+                document("Expense report", "Spesenbericht")))));
+
+        // Translated word together with an untranslated one
+        assertThat(index.search("genehmigen approval", "de")).containsExactly(0);
+        assertThat(index.search("spesen expense", "de")).containsExactly(0, 1);
+        assertThat(index.search("genehmigen report", "de")).isEmpty();
+        assertThat(index.search("genehmigen approval", "en")).isEmpty();
+        assertThat(realIndex().search("Unteraufgabe ServiceDesk", "de")).containsExactly(0);
+    }
+
+    private static SearchDocument document(String english, String german) {
+        SortedMap<String, List<String>> texts = new TreeMap<>();
+        texts.put("en", Collections.singletonList(english));
+        texts.put("de", Collections.singletonList(german));
+        return new SearchDocument(texts);
+    }
+
+    @Test
+    void sameFromSerializedEntries() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Bundle> bundles = realBundles();
+
+        byte[] fromMetadata = build(bundles.stream()
+                .map(bundle -> SearchDocument.of(bundle.getMetadata(), bundle.getFs()))
+                .collect(Collectors.toList()));
+        byte[] fromEntries = build(bundles.stream()
+                .map(bundle -> SearchDocument.of(mapper.valueToTree(bundle.getMetadata()), Optional.of(bundle.getFs())))
+                .collect(Collectors.toList()));
+
+        assertArrayEquals(fromMetadata, fromEntries);
+    }
+
+    @Test
+    void emptyIndex() throws IOException {
+        SearchIndex index = SearchIndex.read(new ByteArrayInputStream(build(Collections.emptyList())));
+
+        assertEquals(0, index.getBundlesCount());
+        assertThat(index.search("jira", "en")).isEmpty();
+    }
+
+    @Test
+    void unsupportedVersion() {
+        byte[] content = "{\"version\":2,\"bundlesCount\":0,\"languages\":{}}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> SearchIndex.read(new ByteArrayInputStream(content)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+    }
+}
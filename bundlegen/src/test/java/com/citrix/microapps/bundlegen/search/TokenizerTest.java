@@ -0,0 +1,40 @@
+package com.citrix.microapps.bundlegen.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenizerTest {
+    @Test
+    void words() {
+        assertThat(new Tokenizer("en").tokenize("Create Sub-Task, add a comment to JIRA 2"))
+                .containsExactly("add", "comment", "create", "jira", "sub", "task", "to");
+    }
+
+    @Test
+    void placeholdersIgnored() {
+        assertThat(new Tokenizer("en").tokenize("{{issue_key}} - \"{{summary}}\" has been moved"))
+                .containsExactly("been", "has", "moved");
+    }
+
+    @Test
+    void languageRules() {
+        assertThat(new Tokenizer("de").tokenize("Ticketschlüssel ÄNDERN")).containsExactly("ticketschlüssel", "ändern");
+        assertThat(new Tokenizer("tr").tokenize("TITLE")).containsExactly("tıtle");
+        // Fullwidth forms are normalized
+        assertThat(new Tokenizer("ja").tokenize("ＪＩＲＡ")).containsExactly("jira");
+    }
+
+    @Test
+    void ideographs() {
+        assertThat(new Tokenizer("ja").tokenize("サブタスクの作成"))
+                .containsExactlyInAnyOrder("サブ", "ブタ", "タス", "スク", "クの", "の作", "作成", "成");
+        assertThat(new Tokenizer("zh-CN").tokenize("JIRA 集成")).containsExactlyInAnyOrder("jira", "集成", "成");
+    }
+
+    @Test
+    void queryWithSingleLetters() {
+        assertThat(new Tokenizer("en").tokenize("a b")).isEmpty();
+        assertThat(new Tokenizer("en").tokenizeQuery("a b")).containsExactly("a", "b");
+    }
+}
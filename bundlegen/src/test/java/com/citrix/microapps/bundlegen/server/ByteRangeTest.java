@@ -0,0 +1,46 @@
+package com.citrix.microapps.bundlegen.server;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class ByteRangeTest {
+    private static final long SIZE = 100;
+
+    static Stream<Arguments> satisfiableRanges() {
+        return Stream.of(
+                arguments("bytes=0-9", new ByteRange(0, 9)),
+                arguments("bytes=90-", new ByteRange(90, 99)),
+                arguments("bytes=90-1000", new ByteRange(90, 99)),
+                arguments("bytes=-10", new ByteRange(90, 99)),
+                arguments("bytes=-1000", new ByteRange(0, 99)),
+                arguments(" bytes=5-5 ", new ByteRange(5, 5))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("satisfiableRanges")
+    void satisfiable(String header, ByteRange expected) {
+        assertEquals(Optional.of(expected), ByteRange.parse(header).flatMap(range -> range.resolve(SIZE)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes=100-", "bytes=100-200", "bytes=-0"})
+    void notSatisfiable(String header) {
+        assertEquals(Optional.empty(), ByteRange.parse(header).get().resolve(SIZE));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "bytes=", "bytes=-", "bytes=9-0", "bytes=0-1,5-6", "items=0-1", "bytes=a-b",
+            "bytes=9999999999999999999-"})
+    void ignored(String header) {
+        assertEquals(Optional.empty(), ByteRange.parse(header));
+    }
+}
@@ -0,0 +1,169 @@
+package com.citrix.microapps.bundlegen.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.bundles.ArchiveCache;
+import com.citrix.microapps.bundlegen.bundles.BundlesArchiver;
+import com.citrix.microapps.bundlegen.bundles.BundlesFinder;
+import com.citrix.microapps.bundlegen.bundles.BundlesLoader;
+import com.citrix.microapps.bundlegen.bundles.BundlesProcessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static com.citrix.microapps.bundlegen.TestUtils.path;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.ARCHIVES_DIR;
+import static com.citrix.microapps.bundlegen.bundles.FsConstants.BUNDLES_JSON;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogServerTest {
+    @TempDir
+    static Path tempDir;
+
+    private static Path distDir;
+
+    private static CatalogServer server;
+    private static String archivePath;
+    private static String archiveMd5;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        distDir = tempDir.resolve("dist");
+        Files.write(tempDir.resolve("secret.txt"), new byte[]{1});
+
+        assertTrue(new BundlesProcessor(new BundlesFinder(path("../bundles")), new BundlesLoader(),
+                new BundlesArchiver(distDir.resolve(ARCHIVES_DIR)), ArchiveCache.disabled(), distDir,
+                URI.create("https://example.com/bundles/archives/"), 2).processAllBundles());
+
+        JsonNode bundle = new ObjectMapper().readTree(distDir.resolve(BUNDLES_JSON).toFile()).path("bundles").get(0);
+        archivePath = URI.create(bundle.path("downloadUrl").asText()).getPath().replaceFirst("^/bundles", "");
+        archiveMd5 = bundle.path("md5Checksum").asText();
+
+        server = new CatalogServer(distDir, 0);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    private static HttpURLConnection request(String path, String... headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+                .openConnection();
+
+        for (int i = 0; i < headers.length; i += 2) {
+            connection.setRequestProperty(headers[i], headers[i + 1]);
+        }
+
+        return connection;
+    }
+
+    private static byte[] readBody(HttpURLConnection connection) throws IOException {
+        try (InputStream input = connection.getInputStream()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    @Test
+    void archiveWithEtag() throws IOException {
+        HttpURLConnection connection = request(archivePath);
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("\"" + archiveMd5 + "\"", connection.getHeaderField("ETag"));
+        assertEquals("application/zip", connection.getHeaderField("Content-Type"));
+        assertEquals("bytes", connection.getHeaderField("Accept-Ranges"));
+        assertArrayEquals(Files.readAllBytes(distDir.resolve(archivePath.substring(1))), readBody(connection));
+    }
+
+    @Test
+    void notModified() throws IOException {
+        String etag = request(archivePath).getHeaderField("ETag");
+
+        assertEquals(304, request(archivePath, "If-None-Match", etag).getResponseCode());
+        assertEquals(304, request(archivePath, "If-None-Match", "\"other\", W/" + etag).getResponseCode());
+        assertEquals(200, request(archivePath, "If-None-Match", "\"other\"").getResponseCode());
+    }
+
+    @Test
+    void range() throws IOException {
+        byte[] content = Files.readAllBytes(distDir.resolve(archivePath.substring(1)));
+        HttpURLConnection connection = request(archivePath, "Range", "bytes=10-19");
+
+        assertEquals(206, connection.getResponseCode());
+        assertEquals("bytes 10-19/" + content.length, connection.getHeaderField("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), readBody(connection));
+
+        HttpURLConnection unsatisfiable = request(archivePath, "Range", "bytes=" + content.length + "-");
+        assertEquals(416, unsatisfiable.getResponseCode());
+        assertEquals("bytes */" + content.length, unsatisfiable.getHeaderField("Content-Range"));
+
+        HttpURLConnection staleIfRange = request(archivePath, "Range", "bytes=10-19", "If-Range", "\"other\"");
+        assertEquals(200, staleIfRange.getResponseCode());
+    }
+
+    @Test
+    void precompressedBundlesJson() throws IOException {
+        HttpURLConnection gzip = request("/" + BUNDLES_JSON, "Accept-Encoding", "br, gzip");
+        assertEquals(200, gzip.getResponseCode());
+        assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.getHeaderField("Vary"));
+        assertArrayEquals(Files.readAllBytes(distDir.resolve(BUNDLES_JSON + ".gz")), readBody(gzip));
+
+        HttpURLConnection identity = request("/" + BUNDLES_JSON, "Accept-Encoding", "gzip;q=0");
+        assertEquals(200, identity.getResponseCode());
+        assertEquals(null, identity.getHeaderField("Content-Encoding"));
+        assertEquals("application/json", identity.getHeaderField("Content-Type"));
+        assertArrayEquals(Files.readAllBytes(distDir.resolve(BUNDLES_JSON)), readBody(identity));
+
+        assertThat(gzip.getHeaderField("ETag")).isNotEqualTo(identity.getHeaderField("ETag"));
+    }
+
+    @Test
+    void notFound() throws IOException {
+        assertEquals(404, request("/missing.zip").getResponseCode());
+        assertEquals(404, request("/" + ARCHIVES_DIR).getResponseCode());
+        assertEquals(404, request("/%2e%2e/secret.txt").getResponseCode());
+        assertEquals(404, request("/" + ARCHIVES_DIR + "/%2e%2e/%2e%2e/secret.txt").getResponseCode());
+    }
+
+    @Test
+    void methodNotAllowed() throws IOException {
+        HttpURLConnection connection = request("/" + BUNDLES_JSON);
+        connection.setRequestMethod("DELETE");
+
+        assertEquals(405, connection.getResponseCode());
+    }
+
+    @Test
+    void stats() throws IOException {
+        request("/missing.zip").getResponseCode();
+        HttpURLConnection connection = request(CatalogServer.STATS_PATH);
+
+        assertEquals(200, connection.getResponseCode());
+        JsonNode stats = new ObjectMapper().readTree(readBody(connection));
+        assertThat(stats.path("requests").asLong()).isPositive();
+        assertThat(stats.path("notFound").asLong()).isPositive();
+    }
+}
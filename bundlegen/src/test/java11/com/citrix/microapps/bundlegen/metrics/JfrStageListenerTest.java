@@ -0,0 +1,93 @@
+package com.citrix.microapps.bundlegen.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.citrix.microapps.bundlegen.pojo.Type;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JfrStageListenerTest {
+    private static List<RecordedEvent> readEvents(Path file) throws IOException {
+        return RecordingFile.readAllEvents(file)
+                .stream()
+                .filter(event -> event.getEventType().getName().startsWith("bundlegen."))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void stageEvents(@TempDir Path tempDir) throws IOException {
+        StageMetrics metrics = new StageMetrics();
+        metrics.setListener(new JfrStageListener());
+        Path file = tempDir.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.start();
+
+            try (StageMetrics.Measurement measurement = metrics.start(Stage.ZIP_BUILD, "vendor/bundle", Type.DIP)) {
+                measurement.addBytesRead(100);
+                measurement.addBytesWritten(40);
+                measurement.addIssues(1);
+            }
+            metrics.start(Stage.INDEX_WRITE).close();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = readEvents(file);
+        assertThat(events)
+                .extracting(event -> event.getEventType().getName())
+                .containsExactlyInAnyOrder("bundlegen.ZipBuild", "bundlegen.IndexWrite");
+
+        RecordedEvent zipBuild = events.stream()
+                .filter(event -> event.getEventType().getName().equals("bundlegen.ZipBuild"))
+                .findFirst()
+                .get();
+        assertEquals("vendor/bundle", zipBuild.getString("path"));
+        assertEquals("DIP", zipBuild.getString("type"));
+        assertEquals(100, zipBuild.getLong("bytesIn"));
+        assertEquals(40, zipBuild.getLong("bytesOut"));
+        assertEquals(1, zipBuild.getInt("issues"));
+        assertThat(zipBuild.getDuration()).isGreaterThan(Duration.ZERO);
+    }
+
+    @Test
+    void noEventsWithoutRecording() {
+        StageMetrics metrics = new StageMetrics();
+        metrics.setListener(new JfrStageListener());
+        metrics.start(Stage.DISCOVERY, "bundles/dip", Type.DIP).close();
+
+        assertEquals(1, metrics.get(Stage.DISCOVERY).getCount());
+    }
+
+    @Test
+    void startRecording(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("bundlegen.jfr");
+        Optional<Closeable> recording = FlightRecorder.startRecording(file);
+        assertTrue(recording.isPresent());
+
+        StageMetrics.global().start(Stage.DISCOVERY, "bundles/http", Type.HTTP).close();
+        recording.get().close();
+
+        assertThat(readEvents(file))
+                .anySatisfy(event -> {
+                    assertEquals("bundlegen.Discovery", event.getEventType().getName());
+                    assertEquals("bundles/http", event.getString("path"));
+                    assertEquals("HTTP", event.getString("type"));
+                });
+    }
+}